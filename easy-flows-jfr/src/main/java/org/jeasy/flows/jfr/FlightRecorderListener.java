@@ -0,0 +1,98 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.jfr;
+
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkExecutionListener;
+
+/**
+ * A {@link WorkExecutionListener} emitting JDK Flight Recorder events:
+ *
+ * <ul>
+ *     <li>{@code org.jeasy.flows.WorkFlowRun} for each workflow run by the engine (threshold 10 ms)</li>
+ *     <li>{@code org.jeasy.flows.WorkExecution} for each work unit executed within a run (threshold 1 ms),
+ *     with the queue wait of parallel flow branches and the iteration of repeat flow work units</li>
+ * </ul>
+ *
+ * Thresholds can be changed in the recording settings, for example
+ * {@code -XX:StartFlightRecording:settings=default,+org.jeasy.flows.WorkExecution#threshold=100us}
+ * on JDK 17+. When no recording has the events enabled, the listener does not allocate.
+ *
+ * <pre>
+ * WorkFlowEngine engine = aNewWorkFlowEngine().workExecutionListener(new FlightRecorderListener()).build();
+ * </pre>
+ */
+public class FlightRecorderListener implements WorkExecutionListener {
+
+    private static final WorkFlowRunEvent WORK_FLOW_RUN_PROBE = new WorkFlowRunEvent();
+    private static final WorkExecutionEvent WORK_EXECUTION_PROBE = new WorkExecutionEvent();
+
+    @Override
+    public void onStart(WorkExecution workExecution) {
+        if (workExecution.getRoot() == workExecution) {
+            if (WORK_FLOW_RUN_PROBE.isEnabled()) {
+                WorkFlowRunEvent event = new WorkFlowRunEvent();
+                event.begin();
+                workExecution.setAttachment(this, event);
+            }
+        } else if (WORK_EXECUTION_PROBE.isEnabled()) {
+            WorkExecutionEvent event = new WorkExecutionEvent();
+            event.begin();
+            workExecution.setAttachment(this, event);
+        }
+    }
+
+    @Override
+    public void onEnd(WorkExecution workExecution) {
+        Object attachment = workExecution.getAttachment(this);
+        if (attachment instanceof WorkFlowRunEvent) {
+            WorkFlowRunEvent event = (WorkFlowRunEvent) attachment;
+            event.end();
+            if (event.shouldCommit()) {
+                event.workFlow = workExecution.getWork().getName();
+                event.status = String.valueOf(workExecution.getStatus());
+                event.error = errorOf(workExecution);
+                event.commit();
+            }
+        } else if (attachment instanceof WorkExecutionEvent) {
+            WorkExecutionEvent event = (WorkExecutionEvent) attachment;
+            event.end();
+            if (event.shouldCommit()) {
+                event.work = workExecution.getWork().getName();
+                event.parent = workExecution.getParent().getWork().getName();
+                event.workFlow = workExecution.getRoot().getWork().getName();
+                event.status = String.valueOf(workExecution.getStatus());
+                event.error = errorOf(workExecution);
+                event.queueWait = workExecution.getQueueWaitNanos();
+                event.iteration = workExecution.getIteration();
+                event.commit();
+            }
+        }
+    }
+
+    private static String errorOf(WorkExecution workExecution) {
+        Throwable error = workExecution.getError();
+        return error == null ? null : error.getClass().getName();
+    }
+}
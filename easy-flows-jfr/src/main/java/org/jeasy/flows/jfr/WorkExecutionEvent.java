@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight recorder event emitted for the execution of a work unit within a workflow run.
+ */
+@Name("org.jeasy.flows.WorkExecution")
+@Label("Work Execution")
+@Description("Execution of a work unit within a workflow run")
+@Category({"Easy Flows"})
+@StackTrace(false)
+@Threshold("1 ms")
+class WorkExecutionEvent extends jdk.jfr.Event {
+
+    @Label("Work")
+    String work;
+
+    @Label("Parent")
+    @Description("Name of the enclosing flow")
+    String parent;
+
+    @Label("Workflow")
+    @Description("Name of the workflow run by the engine")
+    String workFlow;
+
+    @Label("Status")
+    String status;
+
+    @Label("Error")
+    String error;
+
+    @Label("Queue Wait")
+    @Description("Time spent waiting for an executor thread, for work units of a parallel flow")
+    @Timespan(Timespan.NANOSECONDS)
+    long queueWait;
+
+    @Label("Iteration")
+    @Description("Iteration number of a work unit of a repeat flow, 0 otherwise")
+    int iteration;
+}
@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.jeasy.flows.workflow.RepeatFlow;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.RepeatFlow.Builder.aNewRepeatFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class FlightRecorderListenerTest {
+
+    @Test
+    public void eventsAreEmittedForWorkFlowRunsAndWorkExecutions() throws Exception {
+        // given
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        RepeatFlow repeatFlow = aNewRepeatFlow().named("repeat").repeat(work("work1")).times(2).build();
+        ParallelFlow parallelFlow = aNewParallelFlow(executorService).named("parallel")
+                .execute(work("work2"), work("work3")).build();
+        SequentialFlow sequentialFlow = aNewSequentialFlow().named("flow")
+                .execute(repeatFlow).then(parallelFlow).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().workExecutionListener(new FlightRecorderListener()).build();
+        Path dump = Files.createTempFile("easy-flows", ".jfr");
+
+        // when
+        try (Recording recording = new Recording()) {
+            recording.enable("org.jeasy.flows.WorkFlowRun").withThreshold(Duration.ZERO);
+            recording.enable("org.jeasy.flows.WorkExecution").withThreshold(Duration.ZERO);
+            recording.start();
+            workFlowEngine.run(sequentialFlow, new WorkContext());
+            recording.stop();
+            recording.dump(dump);
+        } finally {
+            executorService.shutdown();
+        }
+
+        // then
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        Files.delete(dump);
+        List<RecordedEvent> runs = ofType(events, "org.jeasy.flows.WorkFlowRun");
+        List<RecordedEvent> executions = ofType(events, "org.jeasy.flows.WorkExecution");
+        assertThat(runs).hasSize(1);
+        assertThat(runs.get(0).getString("workFlow")).isEqualTo("flow");
+        assertThat(runs.get(0).getString("status")).isEqualTo("COMPLETED");
+        assertThat(executions).extracting(event -> event.getString("work"))
+                .containsExactlyInAnyOrder("repeat", "work1", "work1", "parallel", "work2", "work3");
+        assertThat(executions).filteredOn(event -> event.getString("work").equals("work1"))
+                .extracting(event -> event.getInt("iteration")).containsExactlyInAnyOrder(1, 2);
+        assertThat(executions).filteredOn(event -> event.getString("work").equals("work2"))
+                .allSatisfy(event -> {
+                    assertThat(event.getString("parent")).isEqualTo("parallel");
+                    assertThat(event.getString("workFlow")).isEqualTo("flow");
+                    assertThat(event.getLong("queueWait")).isNotNegative();
+                });
+    }
+
+    private static List<RecordedEvent> ofType(List<RecordedEvent> events, String type) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(type)).collect(Collectors.toList());
+    }
+
+    private static Work work(String name) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public DefaultWorkReport call(WorkContext workContext) {
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+    }
+}
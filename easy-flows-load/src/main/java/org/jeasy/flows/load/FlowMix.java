@@ -0,0 +1,183 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.jeasy.flows.workflow.ConditionalFlow.Builder.aNewConditionalFlow;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.RepeatFlow.Builder.aNewRepeatFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+/**
+ * A weighted set of workflows from which the load driver picks the workflow of each run.
+ *
+ * @see FlowMix.Builder
+ */
+public class FlowMix {
+
+    /**
+     * Context key of the sequence number of a run, starting at 0.
+     */
+    public static final String SEQUENCE = "sequence";
+
+    private final List<WorkFlow> workFlows;
+    private final int[] cumulativeWeights;
+
+    FlowMix(List<WorkFlow> workFlows, int[] cumulativeWeights) {
+        this.workFlows = workFlows;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    /**
+     * Create the standard mix of synthetic workflows:
+     *
+     * <ul>
+     *     <li>{@code sequential}: three CPU-bound works</li>
+     *     <li>{@code parallel}: a fan-out of eight sleeping works</li>
+     *     <li>{@code repeat}: a CPU-bound work repeated five times</li>
+     *     <li>{@code conditional}: a CPU-bound work followed by a sleeping work for even runs
+     *     and by a CPU-bound work for odd runs</li>
+     * </ul>
+     *
+     * @param weights of the workflows by name, workflows not listed are not part of the mix
+     * @param executorService of the parallel flow
+     * @param cpuMicros duration of CPU-bound works in microseconds
+     * @param sleepMillis duration of sleeping works in milliseconds
+     * @return the mix
+     * @throws IllegalArgumentException if a name is unknown
+     */
+    public static FlowMix standard(Map<String, Integer> weights, ExecutorService executorService,
+                                   long cpuMicros, long sleepMillis) {
+        Map<String, WorkFlow> workFlows = new LinkedHashMap<>();
+        workFlows.put("sequential", aNewSequentialFlow()
+                .named("sequential")
+                .execute(SyntheticWork.cpuBound("cpu-1", cpuMicros, TimeUnit.MICROSECONDS))
+                .then(SyntheticWork.cpuBound("cpu-2", cpuMicros, TimeUnit.MICROSECONDS))
+                .then(SyntheticWork.cpuBound("cpu-3", cpuMicros, TimeUnit.MICROSECONDS))
+                .build());
+        SyntheticWork[] branches = new SyntheticWork[8];
+        for (int i = 0; i < branches.length; i++) {
+            branches[i] = SyntheticWork.sleeping("sleep-" + i, sleepMillis, TimeUnit.MILLISECONDS);
+        }
+        workFlows.put("parallel", aNewParallelFlow(executorService)
+                .named("parallel")
+                .execute(branches)
+                .build());
+        workFlows.put("repeat", aNewRepeatFlow()
+                .named("repeat")
+                .repeat(SyntheticWork.cpuBound("cpu", cpuMicros, TimeUnit.MICROSECONDS))
+                .times(5)
+                .build());
+        WorkReportPredicate evenRun = workReport -> ((Long) workReport.getWorkContext().get(SEQUENCE)) % 2 == 0;
+        workFlows.put("conditional", aNewConditionalFlow()
+                .named("conditional")
+                .execute(SyntheticWork.cpuBound("cpu", cpuMicros, TimeUnit.MICROSECONDS))
+                .when(evenRun)
+                .then(SyntheticWork.sleeping("sleep", sleepMillis, TimeUnit.MILLISECONDS))
+                .otherwise(SyntheticWork.cpuBound("cpu", cpuMicros, TimeUnit.MICROSECONDS))
+                .build());
+        Builder builder = Builder.aNewFlowMix();
+        for (Map.Entry<String, Integer> weight : weights.entrySet()) {
+            WorkFlow workFlow = workFlows.get(weight.getKey());
+            if (workFlow == null) {
+                throw new IllegalArgumentException("Unknown flow '" + weight.getKey() + "', expected one of " + workFlows.keySet());
+            }
+            builder.add(workFlow, weight.getValue());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Pick a workflow according to the weights.
+     *
+     * @param random source of randomness, seeded for repeatable mixes
+     * @return the picked workflow
+     */
+    public WorkFlow pick(Random random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return workFlows.get(i);
+            }
+        }
+        throw new IllegalStateException("Unreachable");
+    }
+
+    public List<WorkFlow> getWorkFlows() {
+        return Collections.unmodifiableList(workFlows);
+    }
+
+    public static class Builder {
+
+        private final List<WorkFlow> workFlows = new ArrayList<>();
+        private final List<Integer> weights = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public static FlowMix.Builder aNewFlowMix() {
+            return new FlowMix.Builder();
+        }
+
+        /**
+         * Add a workflow to the mix.
+         *
+         * @param workFlow to add
+         * @param weight of the workflow relative to the others
+         * @return this builder
+         */
+        public FlowMix.Builder add(WorkFlow workFlow, int weight) {
+            if (weight < 1) {
+                throw new IllegalArgumentException("weight must be at least 1");
+            }
+            workFlows.add(workFlow);
+            weights.add(weight);
+            return this;
+        }
+
+        public FlowMix build() {
+            if (workFlows.isEmpty()) {
+                throw new IllegalStateException("A flow mix needs at least one workflow");
+            }
+            int[] cumulativeWeights = new int[weights.size()];
+            int sum = 0;
+            for (int i = 0; i < cumulativeWeights.length; i++) {
+                sum += weights.get(i);
+                cumulativeWeights[i] = sum;
+            }
+            return new FlowMix(new ArrayList<>(workFlows), cumulativeWeights);
+        }
+    }
+}
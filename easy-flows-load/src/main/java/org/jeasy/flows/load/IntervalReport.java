@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs completed during one reporting interval of a load test. Latencies are measured
+ * from the time each run was due to start according to the arrival rate, not from the
+ * time it actually started, so that a stalled engine is not hidden by the driver
+ * waiting for it (coordinated omission).
+ */
+public class IntervalReport {
+
+    private final long startNanos;
+    private final Histogram latencies = new Histogram();
+    private final AtomicLong failedRuns = new AtomicLong();
+    private volatile long endNanos;
+
+    IntervalReport(long startNanos) {
+        this.startNanos = startNanos;
+    }
+
+    void record(long latencyNanos, boolean failed) {
+        latencies.record(latencyNanos);
+        if (failed) {
+            failedRuns.incrementAndGet();
+        }
+    }
+
+    void close(long endNanos) {
+        this.endNanos = endNanos;
+    }
+
+    /**
+     * @return start of the interval in nanoseconds since the end of the warmup
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return end of the interval in nanoseconds since the end of the warmup
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getCompletedRuns() {
+        return latencies.getCount();
+    }
+
+    public long getFailedRuns() {
+        return failedRuns.get();
+    }
+
+    /**
+     * @return completed runs per second
+     */
+    public double getThroughput() {
+        long durationNanos = endNanos - startNanos;
+        return durationNanos <= 0 ? 0 : getCompletedRuns() * 1e9 / durationNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency at the given percentile in nanoseconds
+     */
+    public long getLatency(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    public long getMaxLatency() {
+        return latencies.getMax();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%8.1f s %10d runs %10.1f/s %10.2f %10.2f %10.2f %10.2f %10.2f ms",
+                startNanos / 1e9, getCompletedRuns(), getThroughput(),
+                millis(getLatency(50)), millis(getLatency(90)), millis(getLatency(99)), millis(getLatency(99.9)),
+                millis(getMaxLatency()));
+    }
+
+    static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+}
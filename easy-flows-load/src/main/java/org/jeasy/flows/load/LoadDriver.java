@@ -0,0 +1,304 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * An open-loop load driver: runs of a {@link FlowMix} are started at a fixed arrival rate
+ * through a {@link WorkFlowEngine}, whether or not previous runs have completed.
+ *
+ * Each run is due at {@code start + n / rate}. Its latency is measured from this due time,
+ * so the time spent waiting for a thread of the driver, or behind a stalled run, counts in
+ * the latency instead of silently lowering the arrival rate (coordinated omission). Runs
+ * due during the warmup are executed but not measured.
+ *
+ * The workflow of each run is picked with a seeded random, and runs are due at the same
+ * offsets, so that two load tests with the same settings submit the same sequence of runs.
+ *
+ * @see LoadDriver.Builder
+ */
+public class LoadDriver {
+
+    private final WorkFlowEngine workFlowEngine;
+    private final FlowMix flowMix;
+    private final double rate;
+    private final long warmupNanos;
+    private final long durationNanos;
+    private final long reportIntervalNanos;
+    private final int threads;
+    private final long seed;
+    private final Consumer<IntervalReport> intervalListener;
+
+    LoadDriver(WorkFlowEngine workFlowEngine, FlowMix flowMix, double rate, long warmupNanos, long durationNanos,
+               long reportIntervalNanos, int threads, long seed, Consumer<IntervalReport> intervalListener) {
+        this.workFlowEngine = workFlowEngine;
+        this.flowMix = flowMix;
+        this.rate = rate;
+        this.warmupNanos = warmupNanos;
+        this.durationNanos = durationNanos;
+        this.reportIntervalNanos = reportIntervalNanos;
+        this.threads = threads;
+        this.seed = seed;
+        this.intervalListener = intervalListener;
+    }
+
+    /**
+     * Run the load test and wait for all runs to complete.
+     *
+     * @return the report of the load test
+     * @throws InterruptedException if the calling thread is interrupted
+     */
+    public LoadReport run() throws InterruptedException {
+        Random random = new Random(seed);
+        Histogram latencies = new Histogram();
+        Histogram serviceTimes = new Histogram();
+        AtomicLong failedRuns = new AtomicLong();
+        List<IntervalReport> intervals = new ArrayList<>();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "easy-flows-load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "easy-flows-load-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long start = System.nanoTime();
+        long measurementStart = start + warmupNanos;
+        long end = measurementStart + durationNanos;
+        AtomicReference<IntervalReport> interval = new AtomicReference<>(new IntervalReport(0));
+        intervals.add(interval.get());
+        reporter.scheduleAtFixedRate(() -> {
+            long now = System.nanoTime() - measurementStart;
+            IntervalReport closed = interval.getAndSet(new IntervalReport(now));
+            closed.close(now);
+            synchronized (intervals) {
+                intervals.add(interval.get());
+            }
+            intervalListener.accept(closed);
+        }, warmupNanos + reportIntervalNanos, reportIntervalNanos, TimeUnit.NANOSECONDS);
+        long scheduledRuns = 0;
+        try {
+            for (long sequence = 0; ; sequence++) {
+                long dueTime = start + (long) (sequence * 1e9 / rate);
+                if (dueTime - end >= 0) {
+                    break;
+                }
+                long delay;
+                while ((delay = dueTime - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+                WorkFlow workFlow = flowMix.pick(random);
+                boolean measured = dueTime - measurementStart >= 0;
+                if (measured) {
+                    scheduledRuns++;
+                }
+                long runSequence = sequence;
+                executorService.execute(() -> {
+                    long startTime = System.nanoTime();
+                    WorkContext workContext = new WorkContext();
+                    workContext.put(FlowMix.SEQUENCE, runSequence);
+                    WorkReport workReport = workFlowEngine.run(workFlow, workContext);
+                    long endTime = System.nanoTime();
+                    if (measured) {
+                        boolean failed = workReport == null || workReport.getStatus() != WorkStatus.COMPLETED;
+                        latencies.record(endTime - dueTime);
+                        serviceTimes.record(endTime - startTime);
+                        if (failed) {
+                            failedRuns.incrementAndGet();
+                        }
+                        interval.get().record(endTime - dueTime, failed);
+                    }
+                });
+            }
+            executorService.shutdown();
+            while (!executorService.awaitTermination(1, TimeUnit.SECONDS)) {
+                // wait for the runs in progress to complete
+            }
+        } finally {
+            executorService.shutdownNow();
+            reporter.shutdownNow();
+            reporter.awaitTermination(1, TimeUnit.SECONDS);
+        }
+        long elapsed = System.nanoTime() - measurementStart;
+        IntervalReport last = interval.get();
+        last.close(elapsed);
+        if (last.getCompletedRuns() > 0) {
+            intervalListener.accept(last);
+        }
+        List<IntervalReport> reportedIntervals;
+        synchronized (intervals) {
+            reportedIntervals = new ArrayList<>(intervals);
+        }
+        if (last.getCompletedRuns() == 0) {
+            reportedIntervals.remove(last);
+        }
+        return new LoadReport(rate, scheduledRuns, elapsed, latencies, serviceTimes, failedRuns.get(), reportedIntervals);
+    }
+
+    public static class Builder {
+
+        private final WorkFlowEngine workFlowEngine;
+        private final FlowMix flowMix;
+        private double rate;
+        private long warmupNanos;
+        private long durationNanos;
+        private long reportIntervalNanos;
+        private int threads;
+        private long seed;
+        private Consumer<IntervalReport> intervalListener;
+
+        private Builder(WorkFlowEngine workFlowEngine, FlowMix flowMix) {
+            this.workFlowEngine = workFlowEngine;
+            this.flowMix = flowMix;
+            this.rate = 100;
+            this.warmupNanos = TimeUnit.SECONDS.toNanos(10);
+            this.durationNanos = TimeUnit.SECONDS.toNanos(60);
+            this.reportIntervalNanos = TimeUnit.SECONDS.toNanos(1);
+            this.threads = 64;
+            this.seed = 42;
+            this.intervalListener = intervalReport -> { };
+        }
+
+        public static LoadDriver.Builder aNewLoadDriver(WorkFlowEngine workFlowEngine, FlowMix flowMix) {
+            return new LoadDriver.Builder(workFlowEngine, flowMix);
+        }
+
+        /**
+         * Set the arrival rate, 100 runs per second by default.
+         *
+         * @param runsPerSecond target arrival rate
+         * @return this builder
+         */
+        public LoadDriver.Builder rate(double runsPerSecond) {
+            if (runsPerSecond <= 0) {
+                throw new IllegalArgumentException("rate must be positive");
+            }
+            this.rate = runsPerSecond;
+            return this;
+        }
+
+        /**
+         * Set the duration of the warmup, during which runs are not measured. 10 seconds by default.
+         *
+         * @param warmup duration of the warmup
+         * @param unit of the duration
+         * @return this builder
+         */
+        public LoadDriver.Builder warmup(long warmup, TimeUnit unit) {
+            this.warmupNanos = unit.toNanos(warmup);
+            return this;
+        }
+
+        /**
+         * Set the duration of the measurement, 60 seconds by default.
+         *
+         * @param duration of the measurement
+         * @param unit of the duration
+         * @return this builder
+         */
+        public LoadDriver.Builder duration(long duration, TimeUnit unit) {
+            this.durationNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Set the duration of reporting intervals, 1 second by default.
+         *
+         * @param reportInterval duration of an interval
+         * @param unit of the duration
+         * @return this builder
+         */
+        public LoadDriver.Builder reportInterval(long reportInterval, TimeUnit unit) {
+            if (reportInterval <= 0) {
+                throw new IllegalArgumentException("reportInterval must be positive");
+            }
+            this.reportIntervalNanos = unit.toNanos(reportInterval);
+            return this;
+        }
+
+        /**
+         * Set the number of threads running workflows, 64 by default. Runs due while all
+         * threads are busy wait in a queue, and this wait counts in their latency.
+         *
+         * @param threads number of threads
+         * @return this builder
+         */
+        public LoadDriver.Builder threads(int threads) {
+            if (threads < 1) {
+                throw new IllegalArgumentException("threads must be at least 1");
+            }
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Set the seed of the random picking workflows in the mix, 42 by default.
+         *
+         * @param seed of the random
+         * @return this builder
+         */
+        public LoadDriver.Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Set a listener notified with the report of each interval when it ends.
+         *
+         * @param intervalListener to notify
+         * @return this builder
+         */
+        public LoadDriver.Builder intervalListener(Consumer<IntervalReport> intervalListener) {
+            this.intervalListener = intervalListener;
+            return this;
+        }
+
+        public LoadDriver build() {
+            return new LoadDriver(workFlowEngine, flowMix, rate, warmupNanos, durationNanos, reportIntervalNanos,
+                    threads, seed, intervalListener);
+        }
+    }
+}
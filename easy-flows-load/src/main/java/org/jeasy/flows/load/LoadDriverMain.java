@@ -0,0 +1,115 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+/**
+ * Command line entry point running the standard {@link FlowMix} with a {@link LoadDriver}:
+ *
+ * <pre>
+ * java -cp easy-flows.jar:easy-flows-load.jar org.jeasy.flows.load.LoadDriverMain \
+ *      --rate 500 --warmup 10 --duration 60 --mix sequential=4,parallel=2,repeat=2,conditional=2
+ * </pre>
+ *
+ * Options, with their defaults: {@code --rate 100} (runs per second), {@code --warmup 10},
+ * {@code --duration 60} and {@code --interval 1} (seconds), {@code --threads 64},
+ * {@code --branch-threads 64} (threads of parallel flows), {@code --seed 42},
+ * {@code --cpu-micros 200}, {@code --sleep-millis 5} and
+ * {@code --mix sequential=1,parallel=1,repeat=1,conditional=1}.
+ */
+public final class LoadDriverMain {
+
+    // per-run logs of the engine would slow down the runs being measured
+    private static final Logger ENGINE_LOGGER = Logger.getLogger("org.jeasy.flows");
+
+    private LoadDriverMain() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        ENGINE_LOGGER.setLevel(Level.WARNING);
+        Map<String, String> options = new HashMap<>();
+        options.put("rate", "100");
+        options.put("warmup", "10");
+        options.put("duration", "60");
+        options.put("interval", "1");
+        options.put("threads", "64");
+        options.put("branch-threads", "64");
+        options.put("seed", "42");
+        options.put("cpu-micros", "200");
+        options.put("sleep-millis", "5");
+        options.put("mix", "sequential=1,parallel=1,repeat=1,conditional=1");
+        for (int i = 0; i < args.length; i += 2) {
+            String option = args[i].startsWith("--") ? args[i].substring(2) : args[i];
+            if (!options.containsKey(option) || i + 1 >= args.length) {
+                System.err.println("Usage: [--option value]... with options " + options.keySet());
+                System.exit(2);
+            }
+            options.put(option, args[i + 1]);
+        }
+
+        ExecutorService branchExecutor = Executors.newFixedThreadPool(Integer.parseInt(options.get("branch-threads")));
+        try {
+            FlowMix flowMix = FlowMix.standard(weights(options.get("mix")), branchExecutor,
+                    Long.parseLong(options.get("cpu-micros")), Long.parseLong(options.get("sleep-millis")));
+            WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+            System.out.printf("%10s %15s %12s %10s %10s %10s %10s %10s%n",
+                    "time", "completed", "throughput", "p50", "p90", "p99", "p99.9", "max");
+            LoadReport loadReport = LoadDriver.Builder.aNewLoadDriver(workFlowEngine, flowMix)
+                    .rate(Double.parseDouble(options.get("rate")))
+                    .warmup(Long.parseLong(options.get("warmup")), TimeUnit.SECONDS)
+                    .duration(Long.parseLong(options.get("duration")), TimeUnit.SECONDS)
+                    .reportInterval(Long.parseLong(options.get("interval")), TimeUnit.SECONDS)
+                    .threads(Integer.parseInt(options.get("threads")))
+                    .seed(Long.parseLong(options.get("seed")))
+                    .intervalListener(System.out::println)
+                    .build()
+                    .run();
+            System.out.println();
+            System.out.print(loadReport);
+        } finally {
+            branchExecutor.shutdownNow();
+        }
+    }
+
+    private static Map<String, Integer> weights(String mix) {
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] nameAndWeight = entry.split("=");
+            weights.put(nameAndWeight[0].trim(), nameAndWeight.length > 1 ? Integer.parseInt(nameAndWeight[1].trim()) : 1);
+        }
+        return weights;
+    }
+}
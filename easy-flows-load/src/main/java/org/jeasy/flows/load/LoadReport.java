@@ -0,0 +1,124 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.jeasy.flows.load.IntervalReport.millis;
+
+/**
+ * Result of a load test: throughput and latency percentiles over the whole measurement
+ * and per reporting interval.
+ *
+ * Latencies are corrected for coordinated omission: they are measured from the time a run
+ * was due to start according to the arrival rate. Service times, measured from the time a
+ * run actually started, are reported as well to show how much of the latency is queueing.
+ */
+public class LoadReport {
+
+    private final double targetRate;
+    private final long scheduledRuns;
+    private final long durationNanos;
+    private final Histogram latencies;
+    private final Histogram serviceTimes;
+    private final long failedRuns;
+    private final List<IntervalReport> intervals;
+
+    LoadReport(double targetRate, long scheduledRuns, long durationNanos, Histogram latencies, Histogram serviceTimes,
+               long failedRuns, List<IntervalReport> intervals) {
+        this.targetRate = targetRate;
+        this.scheduledRuns = scheduledRuns;
+        this.durationNanos = durationNanos;
+        this.latencies = latencies;
+        this.serviceTimes = serviceTimes;
+        this.failedRuns = failedRuns;
+        this.intervals = Collections.unmodifiableList(intervals);
+    }
+
+    public double getTargetRate() {
+        return targetRate;
+    }
+
+    /**
+     * @return number of runs due during the measurement
+     */
+    public long getScheduledRuns() {
+        return scheduledRuns;
+    }
+
+    public long getCompletedRuns() {
+        return latencies.getCount();
+    }
+
+    public long getFailedRuns() {
+        return failedRuns;
+    }
+
+    /**
+     * @return completed runs per second, from the end of the warmup to the completion of the last run
+     */
+    public double getThroughput() {
+        return durationNanos <= 0 ? 0 : getCompletedRuns() * 1e9 / durationNanos;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return latency corrected for coordinated omission at the given percentile, in nanoseconds
+     */
+    public long getLatency(double percentile) {
+        return latencies.getValueAtPercentile(percentile);
+    }
+
+    public long getMaxLatency() {
+        return latencies.getMax();
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return service time (uncorrected latency) at the given percentile, in nanoseconds
+     */
+    public long getServiceTime(double percentile) {
+        return serviceTimes.getValueAtPercentile(percentile);
+    }
+
+    public List<IntervalReport> getIntervals() {
+        return intervals;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report.append(String.format("target rate %.1f/s, %d runs scheduled, %d completed, %d failed, throughput %.1f/s%n",
+                targetRate, scheduledRuns, getCompletedRuns(), failedRuns, getThroughput()));
+        report.append(String.format("%-13s %10s %10s %10s %10s %10s%n", "", "p50", "p90", "p99", "p99.9", "max"));
+        report.append(String.format("%-13s %10.2f %10.2f %10.2f %10.2f %10.2f ms%n", "latency",
+                millis(getLatency(50)), millis(getLatency(90)), millis(getLatency(99)), millis(getLatency(99.9)),
+                millis(getMaxLatency())));
+        report.append(String.format("%-13s %10.2f %10.2f %10.2f %10.2f %10.2f ms%n", "service time",
+                millis(getServiceTime(50)), millis(getServiceTime(90)), millis(getServiceTime(99)),
+                millis(getServiceTime(99.9)), millis(serviceTimes.getMax())));
+        return report.toString();
+    }
+}
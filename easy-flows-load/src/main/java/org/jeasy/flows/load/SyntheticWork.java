@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A unit of work simulating either I/O (the thread sleeps) or computation
+ * (the thread spins on arithmetic) for a fixed duration.
+ */
+public class SyntheticWork implements Work {
+
+    private final String name;
+    private final long durationNanos;
+    private final boolean cpuBound;
+
+    private SyntheticWork(String name, long durationNanos, boolean cpuBound) {
+        this.name = name;
+        this.durationNanos = durationNanos;
+        this.cpuBound = cpuBound;
+    }
+
+    /**
+     * Create a work unit parking its thread for the given duration.
+     *
+     * @param name of the work unit
+     * @param duration of the work unit
+     * @param unit of the duration
+     * @return a new work unit
+     */
+    public static SyntheticWork sleeping(String name, long duration, TimeUnit unit) {
+        return new SyntheticWork(name, unit.toNanos(duration), false);
+    }
+
+    /**
+     * Create a work unit keeping its thread busy for the given duration.
+     *
+     * @param name of the work unit
+     * @param duration of the work unit
+     * @param unit of the duration
+     * @return a new work unit
+     */
+    public static SyntheticWork cpuBound(String name, long duration, TimeUnit unit) {
+        return new SyntheticWork(name, unit.toNanos(duration), true);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public WorkReport call(WorkContext workContext) {
+        long deadline = System.nanoTime() + durationNanos;
+        if (cpuBound) {
+            long accumulator = 0;
+            while (System.nanoTime() < deadline) {
+                for (int i = 0; i < 1000; i++) {
+                    accumulator = accumulator * 31 + i;
+                }
+            }
+            workContext.put(name, accumulator);
+        } else {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+        }
+        return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+    }
+}
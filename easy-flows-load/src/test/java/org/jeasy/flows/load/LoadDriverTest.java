@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.load;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.WorkFlow;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+public class LoadDriverTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(16);
+    private final WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void standardMixIsRunAtTargetRate() throws Exception {
+        // given
+        Map<String, Integer> weights = new LinkedHashMap<>();
+        weights.put("sequential", 1);
+        weights.put("parallel", 1);
+        weights.put("repeat", 1);
+        weights.put("conditional", 1);
+        FlowMix flowMix = FlowMix.standard(weights, executorService, 50, 1);
+        List<IntervalReport> intervals = new ArrayList<>();
+
+        // when
+        LoadReport loadReport = LoadDriver.Builder.aNewLoadDriver(workFlowEngine, flowMix)
+                .rate(200)
+                .warmup(200, TimeUnit.MILLISECONDS)
+                .duration(1, TimeUnit.SECONDS)
+                .reportInterval(250, TimeUnit.MILLISECONDS)
+                .threads(16)
+                .intervalListener(intervals::add)
+                .build()
+                .run();
+
+        // then
+        assertThat(loadReport.getScheduledRuns()).isEqualTo(200);
+        assertThat(loadReport.getCompletedRuns()).isEqualTo(200);
+        assertThat(loadReport.getFailedRuns()).isZero();
+        assertThat(loadReport.getThroughput()).isCloseTo(200, within(60.0));
+        assertThat(loadReport.getLatency(50)).isGreaterThanOrEqualTo(TimeUnit.MICROSECONDS.toNanos(50));
+        assertThat(loadReport.getLatency(99)).isGreaterThanOrEqualTo(loadReport.getLatency(50));
+        assertThat(intervals).isNotEmpty();
+        assertThat(intervals.stream().mapToLong(IntervalReport::getCompletedRuns).sum()).isEqualTo(200);
+        assertThat(loadReport.toString()).contains("latency", "service time");
+    }
+
+    @Test
+    public void latencyIncludesTimeRunsWaitedBehindAStall() throws Exception {
+        // given
+        AtomicBoolean stalled = new AtomicBoolean();
+        WorkFlow workFlow = workContext -> {
+            if (stalled.compareAndSet(false, true)) {
+                sleep(500);
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        FlowMix flowMix = FlowMix.Builder.aNewFlowMix().add(workFlow, 1).build();
+
+        // when
+        LoadReport loadReport = LoadDriver.Builder.aNewLoadDriver(workFlowEngine, flowMix)
+                .rate(100)
+                .warmup(0, TimeUnit.SECONDS)
+                .duration(1, TimeUnit.SECONDS)
+                .threads(1)
+                .build()
+                .run();
+
+        // then runs due during the stall are late although their service time is short
+        assertThat(loadReport.getCompletedRuns()).isEqualTo(100);
+        assertThat(loadReport.getServiceTime(90)).isLessThan(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(loadReport.getLatency(75)).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(loadReport.getMaxLatency()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void flowMixIsRepeatable() {
+        // given
+        WorkFlow first = workContext -> null;
+        WorkFlow second = workContext -> null;
+        FlowMix flowMix = FlowMix.Builder.aNewFlowMix().add(first, 3).add(second, 1).build();
+
+        // when
+        List<WorkFlow> picks = picks(flowMix, new Random(7));
+
+        // then
+        assertThat(picks).isEqualTo(picks(flowMix, new Random(7)));
+        assertThat(picks.stream().filter(workFlow -> workFlow == first).count()).isBetween(650L, 850L);
+    }
+
+    @Test
+    public void histogramPercentilesArePrecise() {
+        // given
+        Histogram histogram = new Histogram();
+
+        // when
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        // then
+        assertThat((double) histogram.getValueAtPercentile(50)).isCloseTo(50_000_000, within(50_000_000 * 0.02));
+        assertThat((double) histogram.getValueAtPercentile(99.9)).isCloseTo(99_900_000, within(99_900_000 * 0.02));
+        assertThat(histogram.getValueAtPercentile(100)).isEqualTo(100_000_000);
+        assertThat(Histogram.highestEquivalentValue(Histogram.indexOf(Long.MAX_VALUE))).isEqualTo(Long.MAX_VALUE);
+    }
+
+    private static List<WorkFlow> picks(FlowMix flowMix, Random random) {
+        List<WorkFlow> picks = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            picks.add(flowMix.pick(random));
+        }
+        return picks;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.reactive;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+/**
+ * A {@link Flow.Processor} running a {@link WorkFlow} on an engine for each
+ * {@link WorkContext} received from upstream and publishing the reports downstream.
+ *
+ * Contexts are requested from upstream only when the downstream subscriber has demand,
+ * and at most {@code maxInFlightRuns} contexts are running or waiting to be delivered
+ * at any time, so nothing is buffered without bound. Reports are published in the order
+ * of their contexts (ordered mode, the default) or as soon as their run completes
+ * (unordered mode), in which case a slow run does not hold back the following ones.
+ *
+ * A run failing with an exception is published as a {@link WorkStatus#FAILED} report.
+ * An upstream error is published after the reports of the runs in flight.
+ * The processor supports a single subscriber.
+ *
+ * @see WorkFlowProcessor.Builder
+ */
+public class WorkFlowProcessor implements Flow.Processor<WorkContext, WorkReport> {
+
+    private final WorkFlowEngine workFlowEngine;
+    private final WorkFlow workFlow;
+    private final ExecutorService executorService;
+    private final int maxInFlightRuns;
+    private final boolean ordered;
+
+    // runs in arrival order (ordered mode) or in completion order (unordered mode)
+    private final Queue<Run> runs = new ConcurrentLinkedQueue<>();
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super WorkReport> downstream;
+    private volatile boolean upstreamDone;
+    private volatile Throwable error;
+    private volatile boolean cancelled;
+
+    // accessed in the drain loop only
+    private long requestedUpstream;
+    private long delivered;
+    private boolean terminated;
+
+    WorkFlowProcessor(WorkFlowEngine workFlowEngine, WorkFlow workFlow, ExecutorService executorService,
+                      int maxInFlightRuns, boolean ordered) {
+        this.workFlowEngine = workFlowEngine;
+        this.workFlow = workFlow;
+        this.executorService = executorService;
+        this.maxInFlightRuns = maxInFlightRuns;
+        this.ordered = ordered;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super WorkReport> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("WorkFlowProcessor supports a single subscriber"));
+            return;
+        }
+        subscriber.onSubscribe(new Flow.Subscription() {
+            @Override
+            public void request(long n) {
+                if (n <= 0) {
+                    error = new IllegalArgumentException("Requested " + n + " items, the request must be positive");
+                    cancelUpstream();
+                    upstreamDone = true;
+                } else {
+                    requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+                }
+                drain();
+            }
+
+            @Override
+            public void cancel() {
+                cancelled = true;
+                cancelUpstream();
+                drain();
+            }
+        });
+        downstream = subscriber;
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        Objects.requireNonNull(subscription, "subscription");
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        drain();
+    }
+
+    @Override
+    public void onNext(WorkContext workContext) {
+        Objects.requireNonNull(workContext, "workContext");
+        received.incrementAndGet();
+        Run run = new Run(workContext);
+        if (ordered) {
+            runs.offer(run);
+        }
+        try {
+            executorService.execute(run);
+        } catch (RuntimeException e) {
+            run.complete(new DefaultWorkReport(WorkStatus.FAILED, workContext, e));
+        }
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        error = Objects.requireNonNull(throwable, "throwable");
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    private void cancelUpstream() {
+        Flow.Subscription subscription = upstream;
+        if (subscription != null) {
+            subscription.cancel();
+        }
+    }
+
+    private void drain() {
+        if (wip.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            Flow.Subscriber<? super WorkReport> subscriber = downstream;
+            if (cancelled) {
+                runs.clear();
+            } else if (subscriber != null && !terminated) {
+                emit(subscriber);
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void emit(Flow.Subscriber<? super WorkReport> subscriber) {
+        long demand = requested.get();
+        long emitted = 0;
+        while (emitted != demand && !cancelled) {
+            Run run = runs.peek();
+            if (run == null || run.report == null) {
+                break;
+            }
+            runs.poll();
+            subscriber.onNext(run.report);
+            emitted++;
+            delivered++;
+        }
+        if (emitted != 0 && demand != Long.MAX_VALUE) {
+            demand = requested.addAndGet(-emitted);
+        }
+        if (upstreamDone && delivered == received.get()) {
+            terminated = true;
+            Throwable throwable = error;
+            if (throwable != null) {
+                subscriber.onError(throwable);
+            } else {
+                subscriber.onComplete();
+            }
+            return;
+        }
+        Flow.Subscription subscription = upstream;
+        if (subscription != null && !upstreamDone && !cancelled) {
+            long outstanding = requestedUpstream - delivered;
+            long wanted = Math.min(maxInFlightRuns, demand) - outstanding;
+            if (wanted > 0) {
+                requestedUpstream += wanted;
+                subscription.request(wanted);
+            }
+        }
+    }
+
+    private class Run implements Runnable {
+
+        private final WorkContext workContext;
+        private volatile WorkReport report;
+
+        Run(WorkContext workContext) {
+            this.workContext = workContext;
+        }
+
+        @Override
+        public void run() {
+            WorkReport workReport;
+            try {
+                workReport = workFlowEngine.run(workFlow, workContext);
+            } catch (Throwable e) {
+                workReport = new DefaultWorkReport(WorkStatus.FAILED, workContext, e);
+            }
+            complete(workReport);
+        }
+
+        void complete(WorkReport workReport) {
+            report = workReport;
+            if (!ordered) {
+                runs.offer(this);
+            }
+            drain();
+        }
+    }
+
+    public static class Builder {
+
+        private final WorkFlow workFlow;
+        private WorkFlowEngine workFlowEngine;
+        private ExecutorService executorService;
+        private int maxInFlightRuns;
+        private boolean ordered;
+
+        private Builder(WorkFlow workFlow) {
+            this.workFlow = workFlow;
+            this.workFlowEngine = aNewWorkFlowEngine().build();
+            this.executorService = ForkJoinPool.commonPool();
+            this.maxInFlightRuns = 16;
+            this.ordered = true;
+        }
+
+        /**
+         * Create a new {@link WorkFlowProcessor} builder.
+         *
+         * @param workFlow to run for each context
+         * @return a new {@link WorkFlowProcessor} builder
+         */
+        public static WorkFlowProcessor.Builder aNewWorkFlowProcessor(WorkFlow workFlow) {
+            return new WorkFlowProcessor.Builder(workFlow);
+        }
+
+        public WorkFlowProcessor.Builder engine(WorkFlowEngine workFlowEngine) {
+            this.workFlowEngine = workFlowEngine;
+            return this;
+        }
+
+        /**
+         * Executor service running the workflow, defaults to the common fork/join pool.
+         * <strong>It is the responsibility of the caller to manage the lifecycle of the
+         * executor service.</strong>
+         *
+         * @param executorService to run the workflow
+         * @return this builder
+         */
+        public WorkFlowProcessor.Builder executorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Maximum number of contexts requested from upstream and not yet delivered
+         * downstream, defaults to 16.
+         *
+         * @param maxInFlightRuns maximum number of runs in flight
+         * @return this builder
+         */
+        public WorkFlowProcessor.Builder maxInFlightRuns(int maxInFlightRuns) {
+            if (maxInFlightRuns < 1) {
+                throw new IllegalArgumentException("The maximum number of runs in flight must be positive");
+            }
+            this.maxInFlightRuns = maxInFlightRuns;
+            return this;
+        }
+
+        /**
+         * Publish reports in the order of their contexts (the default).
+         *
+         * @return this builder
+         */
+        public WorkFlowProcessor.Builder ordered() {
+            this.ordered = true;
+            return this;
+        }
+
+        /**
+         * Publish reports as soon as their run completes.
+         *
+         * @return this builder
+         */
+        public WorkFlowProcessor.Builder unordered() {
+            this.ordered = false;
+            return this;
+        }
+
+        public WorkFlowProcessor build() {
+            return new WorkFlowProcessor(workFlowEngine, workFlow, executorService, maxInFlightRuns, ordered);
+        }
+    }
+}
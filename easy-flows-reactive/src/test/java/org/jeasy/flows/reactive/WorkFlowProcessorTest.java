@@ -0,0 +1,299 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.reactive;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.reactive.WorkFlowProcessor.Builder.aNewWorkFlowProcessor;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class WorkFlowProcessorTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void reportsArePublishedInOrderWithBoundedRunsInFlight() throws Exception {
+        // given
+        WorkFlowProcessor processor = aNewWorkFlowProcessor(flow()).executorService(executorService).maxInFlightRuns(4).build();
+        TestPublisher publisher = new TestPublisher(20);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+
+        // when
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        // then
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.error).isNull();
+        assertThat(indexes(subscriber.reports)).containsExactlyElementsOf(IntStream.range(0, 20).boxed().collect(Collectors.toList()));
+        assertThat(maxRunning.get()).isLessThanOrEqualTo(4);
+    }
+
+    @Test
+    public void contextsAreRequestedOnlyForDownstreamDemand() throws Exception {
+        // given
+        WorkFlowProcessor processor = aNewWorkFlowProcessor(flow()).executorService(executorService).maxInFlightRuns(8).build();
+        TestPublisher publisher = new TestPublisher(100);
+        TestSubscriber subscriber = new TestSubscriber(3);
+
+        // when
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        awaitReports(subscriber, 3);
+        Thread.sleep(50);
+
+        // then
+        assertThat(subscriber.reports).hasSize(3);
+        assertThat(publisher.requested.get()).isEqualTo(3);
+
+        // when
+        subscriber.subscription.request(97);
+
+        // then
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.reports).hasSize(100);
+        assertThat(publisher.requested.get()).isEqualTo(100);
+    }
+
+    @Test
+    public void unorderedModeDoesNotWaitForSlowRuns() throws Exception {
+        // given
+        CountDownLatch slowRun = new CountDownLatch(1);
+        Work work = work(workContext -> {
+            if ((int) workContext.get("index") == 0) {
+                slowRun.await();
+            }
+        });
+        WorkFlowProcessor processor = aNewWorkFlowProcessor(aNewSequentialFlow().execute(work).build())
+                .executorService(executorService).maxInFlightRuns(4).unordered().build();
+        TestPublisher publisher = new TestPublisher(10);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+
+        // when
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+        awaitReports(subscriber, 3);
+        slowRun.countDown();
+
+        // then
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(indexes(subscriber.reports.subList(0, 3))).doesNotContain(0);
+        assertThat(indexes(subscriber.reports)).containsExactlyInAnyOrderElementsOf(IntStream.range(0, 10).boxed().collect(Collectors.toList()));
+    }
+
+    @Test
+    public void failuresArePublishedAsReportsAndUpstreamErrorsLast() throws Exception {
+        // given
+        IllegalStateException boom = new IllegalStateException("boom");
+        Work work = work(workContext -> {
+            if ((int) workContext.get("index") == 1) {
+                throw boom;
+            }
+        });
+        WorkFlowProcessor processor = aNewWorkFlowProcessor(aNewSequentialFlow().execute(work).build())
+                .executorService(executorService).build();
+        TestPublisher publisher = new TestPublisher(3);
+        publisher.failure = new RuntimeException("upstream");
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+
+        // when
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        // then
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.reports).extracting(WorkReport::getStatus)
+                .containsExactly(WorkStatus.COMPLETED, WorkStatus.FAILED, WorkStatus.COMPLETED);
+        assertThat(subscriber.reports.get(1).getError()).isSameAs(boom);
+        assertThat(subscriber.error).isSameAs(publisher.failure);
+    }
+
+    @Test
+    public void errorsThrownByRunsDoNotStallOrderedReports() throws Exception {
+        // given
+        AssertionError boom = new AssertionError("boom");
+        Work work = work(workContext -> {
+            if ((int) workContext.get("index") == 1) {
+                throw boom;
+            }
+        });
+        WorkFlowProcessor processor = aNewWorkFlowProcessor(aNewSequentialFlow().execute(work).build())
+                .executorService(executorService).build();
+        TestPublisher publisher = new TestPublisher(3);
+        TestSubscriber subscriber = new TestSubscriber(Long.MAX_VALUE);
+
+        // when
+        publisher.subscribe(processor);
+        processor.subscribe(subscriber);
+
+        // then
+        assertThat(subscriber.done.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(subscriber.reports).extracting(WorkReport::getStatus)
+                .containsExactly(WorkStatus.COMPLETED, WorkStatus.FAILED, WorkStatus.COMPLETED);
+        assertThat(subscriber.reports.get(1).getError()).isSameAs(boom);
+    }
+
+    private SequentialFlow flow() {
+        return aNewSequentialFlow().execute(work(workContext -> Thread.sleep((20 - (int) workContext.get("index")) % 5))).build();
+    }
+
+    private Work work(Body body) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return "work";
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                try {
+                    body.run(workContext);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+    }
+
+    private static List<Integer> indexes(List<WorkReport> reports) {
+        return reports.stream().map(report -> (Integer) report.getWorkContext().get("index")).collect(Collectors.toList());
+    }
+
+    private static void awaitReports(TestSubscriber subscriber, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (subscriber.reports.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    interface Body {
+        void run(WorkContext workContext) throws InterruptedException;
+    }
+
+    /** Publishes contexts numbered from 0 synchronously on request. */
+    static class TestPublisher implements Flow.Publisher<WorkContext> {
+
+        private final int count;
+        private final AtomicLong requested = new AtomicLong();
+        private RuntimeException failure;
+        private int next;
+
+        TestPublisher(int count) {
+            this.count = count;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super WorkContext> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public synchronized void request(long n) {
+                    requested.addAndGet(n);
+                    for (long i = 0; i < n && next < count; i++) {
+                        WorkContext workContext = new WorkContext();
+                        workContext.put("index", next++);
+                        subscriber.onNext(workContext);
+                    }
+                    if (next == count) {
+                        next++;
+                        if (failure != null) {
+                            subscriber.onError(failure);
+                        } else {
+                            subscriber.onComplete();
+                        }
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+        }
+    }
+
+    static class TestSubscriber implements Flow.Subscriber<WorkReport> {
+
+        private final long initialRequest;
+        private final List<WorkReport> reports = new CopyOnWriteArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        TestSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(initialRequest);
+        }
+
+        @Override
+        public void onNext(WorkReport workReport) {
+            reports.add(workReport);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.analysis;
+
+import org.jeasy.flows.work.WorkExecution;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of a {@link CriticalPathAnalyzer}.
+ */
+public class CriticalPath {
+
+    private final WorkExecution root;
+    private final List<WorkExecution> path;
+    private final Map<WorkExecution, Long> branchSlacks;
+    private final long queuedNanos;
+
+    CriticalPath(WorkExecution root, List<WorkExecution> path, Map<WorkExecution, Long> branchSlacks, long queuedNanos) {
+        this.root = root;
+        this.path = Collections.unmodifiableList(path);
+        this.branchSlacks = Collections.unmodifiableMap(branchSlacks);
+        this.queuedNanos = queuedNanos;
+    }
+
+    /**
+     * Get the executions on the critical path, in depth-first order: each flow
+     * is followed by the executions of its critical chain.
+     *
+     * @return executions on the critical path, starting with the root execution
+     */
+    public List<WorkExecution> getPath() {
+        return path;
+    }
+
+    /**
+     * Get the slack of each parallel branch of the run: how much later the branch
+     * could have ended without delaying the last branch of its parallel flow.
+     * Branches on the critical path of their parallel flow have a slack of 0.
+     *
+     * @return slack in nanoseconds by parallel branch execution
+     */
+    public Map<WorkExecution, Long> getBranchSlacks() {
+        return branchSlacks;
+    }
+
+    /**
+     * @return wall-clock time of the run, in nanoseconds
+     */
+    public long getWallTimeNanos() {
+        return root.getDurationNanos();
+    }
+
+    /**
+     * @return time spent on the critical path waiting for executor threads, in nanoseconds
+     */
+    public long getQueuedNanos() {
+        return queuedNanos;
+    }
+
+    /**
+     * @return time spent on the critical path executing, in nanoseconds
+     */
+    public long getExecutingNanos() {
+        return getWallTimeNanos() - queuedNanos;
+    }
+
+    /**
+     * @return share of the wall-clock time spent waiting for executor threads, between 0 and 1
+     */
+    public double getQueuedShare() {
+        long wallTimeNanos = getWallTimeNanos();
+        return wallTimeNanos <= 0 ? 0 : (double) queuedNanos / wallTimeNanos;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("Critical path (wall=%.3fms, queued=%.1f%%, executing=%.1f%%):%n",
+                getWallTimeNanos() / 1e6, getQueuedShare() * 100, (1 - getQueuedShare()) * 100));
+        for (WorkExecution workExecution : path) {
+            int depth = 0;
+            for (WorkExecution current = workExecution; current != root && current.getParent() != null; current = current.getParent()) {
+                depth++;
+            }
+            for (int i = 0; i < depth; i++) {
+                builder.append("  ");
+            }
+            builder.append(String.format("%s %.3fms", workExecution.getWork().getName(), workExecution.getDurationNanos() / 1e6));
+            if (workExecution.isForked()) {
+                builder.append(String.format(" (queued %.3fms)", workExecution.getQueueWaitNanos() / 1e6));
+            }
+            builder.append(System.lineSeparator());
+        }
+        return builder.toString();
+    }
+}
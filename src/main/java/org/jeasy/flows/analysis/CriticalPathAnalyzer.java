@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.analysis;
+
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkReport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Computes the critical path of a recorded workflow run: the chain of work
+ * executions that determined its wall-clock time.
+ *
+ * Within each execution, the critical chain is found by walking back from its end:
+ * the child that ended last is on the path, then the child that ended last before
+ * that one was started (or submitted, for parallel branches), and so on. The
+ * analysis then recurses into each child on the chain. This works the same for
+ * sequential, conditional, repeat and parallel flows since it only relies on
+ * recorded timestamps.
+ *
+ * Runs must be executed by an engine built with
+ * {@link org.jeasy.flows.engine.WorkFlowEngineBuilder#recordExecutions(boolean)}.
+ */
+public final class CriticalPathAnalyzer {
+
+    private CriticalPathAnalyzer() {
+    }
+
+    /**
+     * Analyze the run that produced the given report.
+     *
+     * @param workReport returned by the engine
+     * @return the critical path of the run
+     * @throws IllegalArgumentException if the execution of the run was not recorded
+     */
+    public static CriticalPath analyze(WorkReport workReport) {
+        WorkExecution workExecution = workReport.getWorkExecution();
+        if (workExecution == null) {
+            throw new IllegalArgumentException("No execution recorded for this report, " +
+                    "make sure the engine records executions");
+        }
+        return analyze(workExecution);
+    }
+
+    /**
+     * Analyze the given recorded execution.
+     *
+     * @param root execution to analyze
+     * @return the critical path of the execution
+     */
+    public static CriticalPath analyze(WorkExecution root) {
+        List<WorkExecution> path = new ArrayList<>();
+        collectCriticalPath(root, path);
+
+        Map<WorkExecution, Long> branchSlacks = new LinkedHashMap<>();
+        collectBranchSlacks(root, branchSlacks);
+
+        long queuedNanos = 0;
+        for (WorkExecution workExecution : path) {
+            if (workExecution.isForked()) {
+                queuedNanos += workExecution.getQueueWaitNanos();
+            }
+        }
+        return new CriticalPath(root, path, branchSlacks, queuedNanos);
+    }
+
+    private static void collectCriticalPath(WorkExecution workExecution, List<WorkExecution> path) {
+        path.add(workExecution);
+        List<WorkExecution> children = workExecution.getChildren();
+        if (children.isEmpty()) {
+            return;
+        }
+        // latest end first; the sort is stable so ties keep the order of the children
+        List<WorkExecution> byEnd = new ArrayList<>(children);
+        byEnd.sort((first, second) -> Long.compare(second.getEndNanos(), first.getEndNanos()));
+        Deque<WorkExecution> chain = new ArrayDeque<>();
+        long before = workExecution.getEndNanos();
+        // before never increases, so each child is looked at once
+        for (WorkExecution child : byEnd) {
+            if (child.getEndNanos() <= before) {
+                chain.push(child);
+                before = child.getSubmittedNanos();
+            }
+        }
+        for (WorkExecution child : chain) {
+            collectCriticalPath(child, path);
+        }
+    }
+
+    private static void collectBranchSlacks(WorkExecution workExecution, Map<WorkExecution, Long> branchSlacks) {
+        List<WorkExecution> children = workExecution.getChildren();
+        long lastBranchEnd = Long.MIN_VALUE;
+        for (WorkExecution child : children) {
+            if (child.isForked() && child.getEndNanos() > lastBranchEnd) {
+                lastBranchEnd = child.getEndNanos();
+            }
+        }
+        for (WorkExecution child : children) {
+            if (child.isForked()) {
+                branchSlacks.put(child, lastBranchEnd - child.getEndNanos());
+            }
+            collectBranchSlacks(child, branchSlacks);
+        }
+    }
+}
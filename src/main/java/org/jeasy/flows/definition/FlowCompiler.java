@@ -0,0 +1,307 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.definition;
+
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.workflow.ConditionalFlow;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.jeasy.flows.workflow.RepeatFlow;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.jeasy.flows.workflow.SwitchFlow;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Compiles validated flow definitions into workflows using the flow builders.
+ * Each named flow is compiled once, references to it share the same instance.
+ */
+final class FlowCompiler {
+
+    static final class Definition {
+
+        final String location;
+        final Map<?, ?> body;
+
+        Definition(String location, Map<?, ?> body) {
+            this.location = location;
+            this.body = body;
+        }
+    }
+
+    private static final Set<String> SEQUENTIAL = attributes("name", "type", "works");
+    private static final Set<String> PARALLEL = attributes("name", "type", "executor", "works");
+    private static final Set<String> CONDITIONAL = attributes("name", "type", "execute", "when", "then", "otherwise");
+    private static final Set<String> REPEAT = attributes("name", "type", "work", "times", "until");
+    private static final Set<String> SWITCH = attributes("name", "type", "execute", "on", "cases", "default");
+
+    private final Map<String, Work> works;
+    private final Map<String, ExecutorService> executorServices;
+    private final Map<String, WorkReportPredicate> predicates;
+    private final Map<String, Definition> definitions;
+    private final Map<String, WorkFlow> compiled = new HashMap<>();
+    private final Set<String> compiling = new LinkedHashSet<>();
+
+    FlowCompiler(Map<String, Work> works, Map<String, ExecutorService> executorServices,
+                 Map<String, WorkReportPredicate> predicates, Map<String, Definition> definitions) {
+        this.works = works;
+        this.executorServices = executorServices;
+        this.predicates = predicates;
+        this.definitions = definitions;
+    }
+
+    Map<String, WorkFlow> compile() {
+        for (Map.Entry<String, Definition> definition : definitions.entrySet()) {
+            if (works.containsKey(definition.getKey())) {
+                throw new FlowDefinitionException(definition.getValue().location
+                        + ": flow name '" + definition.getKey() + "' is already used by a work");
+            }
+            flow(definition.getKey());
+        }
+        return compiled;
+    }
+
+    private WorkFlow flow(String name) {
+        WorkFlow workFlow = compiled.get(name);
+        if (workFlow != null) {
+            return workFlow;
+        }
+        Definition definition = definitions.get(name);
+        if (!compiling.add(name)) {
+            throw new FlowDefinitionException(definition.location + ": cyclic flow reference " + compiling + " -> " + name);
+        }
+        workFlow = flow(definition.body, definition.location);
+        compiling.remove(name);
+        compiled.put(name, workFlow);
+        return workFlow;
+    }
+
+    private WorkFlow flow(Map<?, ?> body, String location) {
+        String type = string(body, "type", location);
+        if (type == null) {
+            throw new FlowDefinitionException(location + ": missing attribute 'type'");
+        }
+        String name = string(body, "name", location);
+        switch (type) {
+            case "sequential":
+                return sequential(body, location, name);
+            case "parallel":
+                return parallel(body, location, name);
+            case "conditional":
+                return conditional(body, location, name);
+            case "repeat":
+                return repeat(body, location, name);
+            case "switch":
+                return switchFlow(body, location, name);
+            default:
+                throw new FlowDefinitionException(location + ": unknown flow type '" + type
+                        + "', expected one of sequential, parallel, conditional, repeat or switch");
+        }
+    }
+
+    private WorkFlow sequential(Map<?, ?> body, String location, String name) {
+        checkAttributes(body, SEQUENTIAL, location);
+        SequentialFlow.Builder builder = SequentialFlow.Builder.aNewSequentialFlow();
+        if (name != null) {
+            builder.named(name);
+        }
+        for (Work work : workList(body, location)) {
+            builder.then(work);
+        }
+        return builder.build();
+    }
+
+    private WorkFlow parallel(Map<?, ?> body, String location, String name) {
+        checkAttributes(body, PARALLEL, location);
+        String executor = string(body, "executor", location);
+        if (executor == null) {
+            throw new FlowDefinitionException(location + ": missing attribute 'executor'");
+        }
+        ExecutorService executorService = executorServices.get(executor);
+        if (executorService == null) {
+            throw new FlowDefinitionException(location + ".executor: unknown executor service '" + executor + "'");
+        }
+        ParallelFlow.Builder builder = ParallelFlow.Builder.aNewParallelFlow(executorService);
+        if (name != null) {
+            builder.named(name);
+        }
+        return builder.execute(workList(body, location)).build();
+    }
+
+    private WorkFlow conditional(Map<?, ?> body, String location, String name) {
+        checkAttributes(body, CONDITIONAL, location);
+        ConditionalFlow.Builder builder = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(work(required(body, "execute", location), location + ".execute"))
+                .when(predicate(body, "when", location));
+        if (name != null) {
+            builder.named(name);
+        }
+        if (body.containsKey("then")) {
+            builder.then(work(body.get("then"), location + ".then"));
+        }
+        if (body.containsKey("otherwise")) {
+            builder.otherwise(work(body.get("otherwise"), location + ".otherwise"));
+        }
+        return builder.build();
+    }
+
+    private WorkFlow repeat(Map<?, ?> body, String location, String name) {
+        checkAttributes(body, REPEAT, location);
+        RepeatFlow.Builder builder = RepeatFlow.Builder.aNewRepeatFlow()
+                .repeat(work(required(body, "work", location), location + ".work"));
+        if (name != null) {
+            builder.named(name);
+        }
+        if (body.containsKey("times") == body.containsKey("until")) {
+            throw new FlowDefinitionException(location + ": exactly one of 'times' or 'until' is required");
+        }
+        if (body.containsKey("times")) {
+            Object times = body.get("times");
+            if (!(times instanceof Long || times instanceof Integer) || ((Number) times).longValue() < 1
+                    || ((Number) times).longValue() > Integer.MAX_VALUE) {
+                throw new FlowDefinitionException(location + ".times: expected a positive integer");
+            }
+            builder.times(((Number) times).intValue());
+        } else {
+            builder.until(predicate(body, "until", location));
+        }
+        return builder.build();
+    }
+
+    private WorkFlow switchFlow(Map<?, ?> body, String location, String name) {
+        checkAttributes(body, SWITCH, location);
+        String key = string(body, "on", location);
+        if (key == null) {
+            throw new FlowDefinitionException(location + ": missing attribute 'on'");
+        }
+        Object cases = required(body, "cases", location);
+        if (!(cases instanceof Map) || ((Map<?, ?>) cases).isEmpty()) {
+            throw new FlowDefinitionException(location + ".cases: expected a non empty map of works");
+        }
+        // context values are matched by their string representation, as keys of definitions are strings
+        SwitchFlow.Builder builder = SwitchFlow.Builder.aNewSwitchFlow().on(workReport -> {
+            Object value = workReport.getWorkContext().get(key);
+            return value == null ? null : value.toString();
+        });
+        if (name != null) {
+            builder.named(name);
+        }
+        if (body.containsKey("execute")) {
+            builder.execute(work(body.get("execute"), location + ".execute"));
+        }
+        for (Map.Entry<?, ?> entry : ((Map<?, ?>) cases).entrySet()) {
+            builder.when(String.valueOf(entry.getKey()), work(entry.getValue(), location + ".cases." + entry.getKey()));
+        }
+        if (body.containsKey("default")) {
+            builder.otherwise(work(body.get("default"), location + ".default"));
+        }
+        return builder.build();
+    }
+
+    private Work[] workList(Map<?, ?> body, String location) {
+        Object works = required(body, "works", location);
+        if (!(works instanceof List) || ((List<?>) works).isEmpty()) {
+            throw new FlowDefinitionException(location + ".works: expected a non empty list of works");
+        }
+        List<?> list = (List<?>) works;
+        Work[] result = new Work[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = work(list.get(i), location + ".works[" + i + "]");
+        }
+        return result;
+    }
+
+    private Work work(Object node, String location) {
+        if (node instanceof String) {
+            String name = (String) node;
+            Work work = works.get(name);
+            if (work != null) {
+                return work;
+            }
+            if (definitions.containsKey(name)) {
+                return flow(name);
+            }
+            throw new FlowDefinitionException(location + ": unknown work or flow '" + name + "'");
+        }
+        if (node instanceof Map) {
+            return flow((Map<?, ?>) node, location);
+        }
+        throw new FlowDefinitionException(location + ": expected a work name or a flow definition");
+    }
+
+    private WorkReportPredicate predicate(Map<?, ?> body, String attribute, String location) {
+        String name = string(body, attribute, location);
+        if (name == null) {
+            throw new FlowDefinitionException(location + ": missing attribute '" + attribute + "'");
+        }
+        switch (name) {
+            case "COMPLETED":
+                return WorkReportPredicate.COMPLETED;
+            case "FAILED":
+                return WorkReportPredicate.FAILED;
+            default:
+                WorkReportPredicate predicate = predicates.get(name);
+                if (predicate == null) {
+                    throw new FlowDefinitionException(location + "." + attribute + ": unknown predicate '" + name + "'");
+                }
+                return predicate;
+        }
+    }
+
+    private static Object required(Map<?, ?> body, String attribute, String location) {
+        Object value = body.get(attribute);
+        if (value == null) {
+            throw new FlowDefinitionException(location + ": missing attribute '" + attribute + "'");
+        }
+        return value;
+    }
+
+    static String string(Map<?, ?> body, String attribute, String location) {
+        Object value = body.get(attribute);
+        if (value != null && !(value instanceof String)) {
+            throw new FlowDefinitionException(location + "." + attribute + ": expected a string");
+        }
+        return (String) value;
+    }
+
+    private static void checkAttributes(Map<?, ?> body, Set<String> allowed, String location) {
+        for (Object attribute : body.keySet()) {
+            if (!allowed.contains(attribute)) {
+                throw new FlowDefinitionException(location + ": unknown attribute '" + attribute + "'");
+            }
+        }
+    }
+
+    private static Set<String> attributes(String... names) {
+        return new HashSet<>(Arrays.asList(names));
+    }
+}
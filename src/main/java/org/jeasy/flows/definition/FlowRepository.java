@@ -0,0 +1,407 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.definition;
+
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.workflow.FlowOptimizer;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A repository of workflows defined in JSON documents and compiled with the flow builders.
+ *
+ * A document holds a single flow definition or a list of definitions under {@code flows}:
+ *
+ * <pre>
+ * {"flows": [
+ *   {"name": "order", "type": "sequential", "works": ["validate", "payments", "ship"]},
+ *   {"name": "payments", "type": "parallel", "executor": "io", "works": ["charge", "invoice"]},
+ *   {"name": "ship", "type": "conditional", "execute": "reserve", "when": "COMPLETED",
+ *    "then": {"type": "repeat", "work": "dispatch", "until": "FAILED"}, "otherwise": "cancel"},
+ *   {"name": "route", "type": "switch", "on": "channel", "cases": {"web": "order", "mail": "scan"}, "default": "reject"}
+ * ]}
+ * </pre>
+ *
+ * Works, executor services and custom predicates are referenced by the name they were registered
+ * with in the builder. A work reference may also name another flow of the repository.
+ * Documents parsed by other means (a YAML parser for instance) can be loaded as well,
+ * as long as they are made of maps, lists, strings and numbers.
+ *
+ * Every load validates and compiles all definitions of the repository before publishing them
+ * at once: if a definition is invalid, a {@link FlowDefinitionException} is thrown and the
+ * previously loaded flows stay in place. Compiled flows are immutable and looked up without
+ * locking, and runs in flight keep using the flow they started with when definitions are reloaded.
+ */
+public class FlowRepository {
+
+    private static final Logger LOGGER = Logger.getLogger(FlowRepository.class.getName());
+
+    private final Map<String, Work> works;
+    private final Map<String, ExecutorService> executorServices;
+    private final Map<String, WorkReportPredicate> predicates;
+    private final FlowOptimizer flowOptimizer;
+
+    // source -> flow name -> definition, guarded by this
+    private final Map<String, Map<String, FlowCompiler.Definition>> sources = new HashMap<>();
+    private volatile Map<String, WorkFlow> workFlows = Collections.emptyMap();
+
+    FlowRepository(Map<String, Work> works, Map<String, ExecutorService> executorServices,
+                   Map<String, WorkReportPredicate> predicates, FlowOptimizer flowOptimizer) {
+        this.works = works;
+        this.executorServices = executorServices;
+        this.predicates = predicates;
+        this.flowOptimizer = flowOptimizer;
+    }
+
+    /**
+     * Get a flow by name.
+     *
+     * @param name of the flow
+     * @return the flow
+     * @throws IllegalArgumentException if no flow with this name is defined
+     */
+    public WorkFlow getWorkFlow(String name) {
+        WorkFlow workFlow = workFlows.get(name);
+        if (workFlow == null) {
+            throw new IllegalArgumentException("No flow named '" + name + "'");
+        }
+        return workFlow;
+    }
+
+    /**
+     * @return names of the defined flows
+     */
+    public Set<String> getWorkFlowNames() {
+        return workFlows.keySet();
+    }
+
+    /**
+     * Load (or reload) the flow definitions of a JSON document.
+     *
+     * @param source name of the document, flows previously loaded from the same source are replaced
+     * @param reader of the document
+     * @throws IOException if the document can not be read
+     */
+    public void load(String source, Reader reader) throws IOException {
+        load(source, JsonReader.read(source, reader));
+    }
+
+    /**
+     * Load (or reload) the flow definitions of a parsed document.
+     *
+     * @param source name of the document, flows previously loaded from the same source are replaced
+     * @param document made of maps, lists, strings and numbers
+     */
+    public void load(String source, Object document) {
+        update(Collections.singletonMap(source, document), Collections.emptySet());
+    }
+
+    /**
+     * Load (or reload) the flow definitions of a JSON file, or of all
+     * {@code .json} files of a directory. Each file is a source named after its path.
+     *
+     * @param path of a file or a directory
+     * @throws IOException if a file can not be read
+     */
+    public void load(Path path) throws IOException {
+        Map<String, Object> documents = new HashMap<>();
+        for (Path file : files(path)) {
+            documents.put(file.toString(), read(file));
+        }
+        update(documents, Collections.emptySet());
+    }
+
+    /**
+     * Remove the flows loaded from the given source.
+     *
+     * @param source name of the document
+     */
+    public void unload(String source) {
+        update(Collections.emptyMap(), Collections.singleton(source));
+    }
+
+    /**
+     * Watch a JSON file, or the {@code .json} files of a directory, and reload definitions
+     * when files are added, modified or removed. An invalid change (like a file being written)
+     * is logged and retried at the next check; the flows previously loaded stay in place.
+     *
+     * @param path of a file or a directory, loaded before this method returns
+     * @param interval between two checks
+     * @param unit of the interval
+     * @return a handle to stop watching
+     * @throws IOException if a file can not be read
+     */
+    public Closeable watch(Path path, long interval, TimeUnit unit) throws IOException {
+        Watcher watcher = new Watcher(path);
+        watcher.check();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "easy-flows-definition-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                watcher.check();
+            } catch (IOException | RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to reload flow definitions from " + path, e);
+            }
+        }, interval, interval, unit);
+        return scheduler::shutdownNow;
+    }
+
+    private synchronized void update(Map<String, Object> documents, Set<String> removed) {
+        Map<String, Map<String, FlowCompiler.Definition>> candidate = new HashMap<>(sources);
+        candidate.keySet().removeAll(removed);
+        for (Map.Entry<String, Object> document : documents.entrySet()) {
+            candidate.put(document.getKey(), definitions(document.getKey(), document.getValue()));
+        }
+        Map<String, FlowCompiler.Definition> definitions = new HashMap<>();
+        for (Map<String, FlowCompiler.Definition> source : candidate.values()) {
+            for (Map.Entry<String, FlowCompiler.Definition> definition : source.entrySet()) {
+                FlowCompiler.Definition duplicate = definitions.put(definition.getKey(), definition.getValue());
+                if (duplicate != null) {
+                    throw new FlowDefinitionException(definition.getValue().location + ": flow '"
+                            + definition.getKey() + "' is already defined in " + duplicate.location);
+                }
+            }
+        }
+        Map<String, WorkFlow> compiled = new FlowCompiler(works, executorServices, predicates, definitions).compile();
+        if (flowOptimizer != null) {
+            for (Map.Entry<String, WorkFlow> workFlow : compiled.entrySet()) {
+                FlowOptimizer.Result result = flowOptimizer.optimize(workFlow.getValue());
+                LOGGER.log(Level.FINE, "Optimized flow ''{0}'': {1}", new Object[]{workFlow.getKey(), result});
+                workFlow.setValue(result.getWorkFlow());
+            }
+        }
+        sources.clear();
+        sources.putAll(candidate);
+        workFlows = Collections.unmodifiableMap(new TreeMap<>(compiled));
+        LOGGER.log(Level.FINE, "Loaded {0} flow definitions", compiled.size());
+    }
+
+    private static Map<String, FlowCompiler.Definition> definitions(String source, Object document) {
+        List<?> flows;
+        String prefix;
+        if (document instanceof Map && ((Map<?, ?>) document).containsKey("flows")) {
+            Map<?, ?> root = (Map<?, ?>) document;
+            if (root.size() != 1 || !(root.get("flows") instanceof List)) {
+                throw new FlowDefinitionException(source + ": expected a list of flows under 'flows'");
+            }
+            flows = (List<?>) root.get("flows");
+            prefix = source + ": flows";
+        } else if (document instanceof Map) {
+            flows = Collections.singletonList(document);
+            prefix = null;
+        } else {
+            throw new FlowDefinitionException(source + ": expected a flow definition or a list of flows under 'flows'");
+        }
+        Map<String, FlowCompiler.Definition> definitions = new LinkedHashMap<>();
+        for (int i = 0; i < flows.size(); i++) {
+            String location = prefix == null ? source + ": $" : prefix + "[" + i + "]";
+            if (!(flows.get(i) instanceof Map)) {
+                throw new FlowDefinitionException(location + ": expected a flow definition");
+            }
+            Map<?, ?> body = (Map<?, ?>) flows.get(i);
+            String name = FlowCompiler.string(body, "name", location);
+            if (name == null) {
+                throw new FlowDefinitionException(location + ": missing attribute 'name'");
+            }
+            if (definitions.put(name, new FlowCompiler.Definition(location, body)) != null) {
+                throw new FlowDefinitionException(location + ": flow '" + name + "' is defined twice");
+            }
+        }
+        return definitions;
+    }
+
+    private static List<Path> files(Path path) throws IOException {
+        if (!Files.isDirectory(path)) {
+            return Collections.singletonList(path);
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, "*.json")) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        return files;
+    }
+
+    private static Object read(Path file) throws IOException {
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return JsonReader.read(file.toString(), reader);
+        }
+    }
+
+    private class Watcher {
+
+        private final Path path;
+        private final Map<Path, FileTime> lastModified = new HashMap<>();
+
+        Watcher(Path path) {
+            this.path = path;
+        }
+
+        void check() throws IOException {
+            Map<Path, FileTime> current = new HashMap<>();
+            for (Path file : files(path)) {
+                try {
+                    current.put(file, Files.getLastModifiedTime(file));
+                } catch (IOException e) {
+                    // removed while listing, or not created yet
+                }
+            }
+            Set<String> removed = new HashSet<>();
+            for (Path file : lastModified.keySet()) {
+                if (!current.containsKey(file)) {
+                    removed.add(file.toString());
+                }
+            }
+            Map<Path, FileTime> changed = new HashMap<>(current);
+            changed.entrySet().removeIf(entry -> entry.getValue().equals(lastModified.get(entry.getKey())));
+            if (changed.isEmpty() && removed.isEmpty()) {
+                return;
+            }
+            Map<String, Object> documents = new HashMap<>();
+            for (Path file : changed.keySet()) {
+                documents.put(file.toString(), read(file));
+            }
+            update(documents, removed);
+            // only once loaded, so that a failed reload is retried at the next check
+            lastModified.clear();
+            lastModified.putAll(current);
+        }
+    }
+
+    /**
+     * Builder of {@link FlowRepository}.
+     */
+    public static class Builder {
+
+        private final Map<String, Work> works = new HashMap<>();
+        private final Map<String, ExecutorService> executorServices = new HashMap<>();
+        private final Map<String, WorkReportPredicate> predicates = new HashMap<>();
+        private FlowOptimizer flowOptimizer;
+
+        private Builder() {
+        }
+
+        public static FlowRepository.Builder aNewFlowRepository() {
+            return new FlowRepository.Builder();
+        }
+
+        /**
+         * Register a work that definitions can reference by name.
+         *
+         * @param name of the work in definitions
+         * @param work to register
+         * @return this builder
+         */
+        public FlowRepository.Builder work(String name, Work work) {
+            this.works.put(name, work);
+            return this;
+        }
+
+        /**
+         * Register works that definitions can reference by their {@link Work#getName() name}.
+         *
+         * @param works to register
+         * @return this builder
+         */
+        public FlowRepository.Builder works(Work... works) {
+            for (Work work : works) {
+                this.works.put(work.getName(), work);
+            }
+            return this;
+        }
+
+        /**
+         * Register an executor service that parallel flow definitions can reference by name.
+         *
+         * @param name of the executor service in definitions
+         * @param executorService to register
+         * @return this builder
+         */
+        public FlowRepository.Builder executorService(String name, ExecutorService executorService) {
+            this.executorServices.put(name, executorService);
+            return this;
+        }
+
+        /**
+         * Register a predicate that conditional and repeat flow definitions can reference by name,
+         * in addition to the built-in {@code COMPLETED} and {@code FAILED} predicates.
+         * Predicates are shared by all runs of a flow and must be stateless.
+         *
+         * @param name of the predicate in definitions
+         * @param predicate to register
+         * @return this builder
+         */
+        public FlowRepository.Builder predicate(String name, WorkReportPredicate predicate) {
+            this.predicates.put(name, predicate);
+            return this;
+        }
+
+        /**
+         * Optimize compiled flows with the given optimizer, for example to remove the
+         * nesting of generated definitions. Flows are not optimized by default.
+         *
+         * @param flowOptimizer to apply to each compiled flow
+         * @return this builder
+         */
+        public FlowRepository.Builder optimizer(FlowOptimizer flowOptimizer) {
+            this.flowOptimizer = flowOptimizer;
+            return this;
+        }
+
+        public FlowRepository build() {
+            return new FlowRepository(new HashMap<>(works), new HashMap<>(executorServices), new HashMap<>(predicates),
+                    flowOptimizer);
+        }
+    }
+}
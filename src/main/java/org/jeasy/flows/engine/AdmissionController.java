@@ -0,0 +1,325 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Limits the number of workflow runs executed concurrently by a {@link WorkFlowEngine}.
+ *
+ * A run is admitted right away if less than {@code maxInFlightFlows} runs are in flight
+ * and no other run is queued. Otherwise, the {@link RejectionPolicy} decides if the
+ * run is rejected or how long it may wait in a bounded FIFO admission queue. Queued runs
+ * are admitted in order as in-flight runs complete.
+ *
+ * Admission without queueing is lock-free. The admission queue and its count are only
+ * updated together under a lock, so a queued run can always be found (to be admitted or shed).
+ *
+ * Counters of admitted and rejected runs and of the time spent in the admission
+ * queue are maintained to help tuning the limits.
+ *
+ * <strong>Admission controller instances are thread-safe and can be shared between engines.</strong>
+ *
+ * @see AdmissionController.Builder
+ */
+public class AdmissionController {
+
+    private static final int WAITING = 0, ADMITTED = 1, CANCELLED = 2;
+
+    private final int maxInFlightFlows;
+    private final int queueCapacity;
+    private final RejectionPolicy rejectionPolicy;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger(); // size of waiters, readable without lock
+    private final Deque<Waiter> waiters = new ArrayDeque<>(); // guarded by itself
+
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder shed = new LongAdder();
+    private final LongAdder queuedTimeNanos = new LongAdder();
+
+    AdmissionController(int maxInFlightFlows, int queueCapacity, RejectionPolicy rejectionPolicy) {
+        this.maxInFlightFlows = maxInFlightFlows;
+        this.queueCapacity = queueCapacity;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    /**
+     * Try to admit a run, queueing it if the rejection policy allows it. Every
+     * successful call must be followed by a call to {@link #release()} once the run is done.
+     *
+     * @return true if the run has been admitted, false if it has been rejected
+     */
+    public boolean acquire() {
+        if (queued.get() == 0 && tryIncrementInFlight()) {
+            admitted.increment();
+            return true;
+        }
+        long timeoutNanos = rejectionPolicy.onSaturation(this);
+        Waiter waiter = timeoutNanos > 0 ? new Waiter(Thread.currentThread()) : null;
+        if (waiter == null || !enqueue(waiter)) {
+            rejected.increment();
+            return false;
+        }
+        dispatch();
+        long deadline = waiter.enqueuedAt + timeoutNanos;
+        boolean interrupted = false;
+        while (waiter.state.get() == WAITING) {
+            long remaining = deadline - System.nanoTime();
+            interrupted |= Thread.interrupted();
+            if (remaining <= 0 || interrupted) {
+                if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+                    dequeue(waiter);
+                }
+                break;
+            }
+            LockSupport.parkNanos(this, remaining);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        queuedTimeNanos.add(System.nanoTime() - waiter.enqueuedAt);
+        if (waiter.state.get() == ADMITTED) {
+            admitted.increment();
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Release the slot of a run admitted with {@link #acquire()} and admit the
+     * next queued run if any.
+     */
+    public void release() {
+        inFlight.decrementAndGet();
+        dispatch();
+    }
+
+    /**
+     * Reject the oldest queued run.
+     *
+     * @return true if a queued run has been rejected, false if the queue was empty
+     */
+    public boolean shedOldest() {
+        Waiter waiter;
+        while ((waiter = poll()) != null) {
+            if (waiter.state.compareAndSet(WAITING, CANCELLED)) {
+                shed.increment();
+                LockSupport.unpark(waiter.thread);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isQueueFull() {
+        return queued.get() >= queueCapacity;
+    }
+
+    public int getMaxInFlightFlows() {
+        return maxInFlightFlows;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * @return number of runs currently in flight
+     */
+    public int getInFlightFlows() {
+        return inFlight.get();
+    }
+
+    /**
+     * @return number of runs currently waiting in the admission queue
+     */
+    public int getQueuedFlows() {
+        return queued.get();
+    }
+
+    /**
+     * @return total number of admitted runs
+     */
+    public long getAdmittedCount() {
+        return admitted.sum();
+    }
+
+    /**
+     * @return total number of rejected runs, including shed runs
+     */
+    public long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * @return total number of queued runs rejected to make room for newer ones
+     */
+    public long getShedCount() {
+        return shed.sum();
+    }
+
+    /**
+     * @return total time spent by runs in the admission queue, in nanoseconds
+     */
+    public long getTotalQueuedTimeNanos() {
+        return queuedTimeNanos.sum();
+    }
+
+    private boolean tryIncrementInFlight() {
+        for (;;) {
+            int current = inFlight.get();
+            if (current >= maxInFlightFlows) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    private boolean enqueue(Waiter waiter) {
+        synchronized (waiters) {
+            if (waiters.size() >= queueCapacity) {
+                return false;
+            }
+            waiters.offer(waiter);
+            queued.incrementAndGet();
+            return true;
+        }
+    }
+
+    private Waiter poll() {
+        synchronized (waiters) {
+            Waiter waiter = waiters.poll();
+            if (waiter != null) {
+                queued.decrementAndGet();
+            }
+            return waiter;
+        }
+    }
+
+    private void dequeue(Waiter waiter) {
+        synchronized (waiters) {
+            if (waiters.remove(waiter)) {
+                queued.decrementAndGet();
+            }
+        }
+    }
+
+    /*
+     * Hand free slots to queued runs. Called both after a slot is released and after
+     * a run is queued, so that a slot released concurrently with queueing is never missed.
+     */
+    private void dispatch() {
+        while (queued.get() > 0 && tryIncrementInFlight()) {
+            Waiter waiter = poll();
+            if (waiter != null && waiter.state.compareAndSet(WAITING, ADMITTED)) {
+                LockSupport.unpark(waiter.thread);
+            } else {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AdmissionController {" +
+                "maxInFlightFlows=" + maxInFlightFlows +
+                ", queueCapacity=" + queueCapacity +
+                ", inFlight=" + inFlight.get() +
+                ", queued=" + queued.get() +
+                ", admitted=" + admitted.sum() +
+                ", rejected=" + rejected.sum() +
+                '}';
+    }
+
+    private static class Waiter {
+
+        private final Thread thread;
+        private final long enqueuedAt = System.nanoTime();
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+
+        Waiter(Thread thread) {
+            this.thread = thread;
+        }
+    }
+
+    public static class Builder {
+
+        private int maxInFlightFlows;
+        private int queueCapacity;
+        private RejectionPolicy rejectionPolicy;
+
+        private Builder() {
+            this.maxInFlightFlows = Runtime.getRuntime().availableProcessors();
+            this.queueCapacity = 0;
+            this.rejectionPolicy = RejectionPolicy.REJECT;
+        }
+
+        public static AdmissionController.Builder aNewAdmissionController() {
+            return new AdmissionController.Builder();
+        }
+
+        /**
+         * Maximum number of runs executed concurrently. Defaults to the number of available processors.
+         */
+        public AdmissionController.Builder maxInFlightFlows(int maxInFlightFlows) {
+            if (maxInFlightFlows <= 0) {
+                throw new IllegalArgumentException("maxInFlightFlows must be strictly positive");
+            }
+            this.maxInFlightFlows = maxInFlightFlows;
+            return this;
+        }
+
+        /**
+         * Maximum number of runs waiting for admission. Defaults to 0 (no queue).
+         */
+        public AdmissionController.Builder queueCapacity(int queueCapacity) {
+            if (queueCapacity < 0) {
+                throw new IllegalArgumentException("queueCapacity must be positive");
+            }
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * Policy applied when a run can not be admitted right away. Defaults to {@link RejectionPolicy#REJECT}.
+         */
+        public AdmissionController.Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+            return this;
+        }
+
+        public AdmissionController build() {
+            return new AdmissionController(maxInFlightFlows, queueCapacity, rejectionPolicy);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import org.jeasy.flows.work.WorkContext;
+
+import java.util.Map;
+
+/**
+ * Strategy giving each caller of a coalesced run its view of the resulting context.
+ *
+ * @see WorkFlowEngineBuilder#coalesceRuns(java.util.function.BiFunction, ContextCopy)
+ */
+@FunctionalInterface
+public interface ContextCopy {
+
+    /**
+     * All callers get the context of the executed run.
+     */
+    ContextCopy SHARED = (resultContext, callerContext) -> resultContext;
+
+    /**
+     * Entries of the executed run's context are put in the context of each caller.
+     * Values are copied by reference.
+     */
+    ContextCopy INTO_CALLER_CONTEXT = (resultContext, callerContext) -> {
+        if (resultContext != callerContext) {
+            for (Map.Entry<String, Object> entry : resultContext.getEntrySet()) {
+                callerContext.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return callerContext;
+    };
+
+    /**
+     * Get the context to report to a caller whose run has been coalesced with another one.
+     *
+     * @param resultContext context of the executed run
+     * @param callerContext context passed by the caller
+     * @return context of the report given to the caller
+     */
+    WorkContext copy(WorkContext resultContext, WorkContext callerContext);
+}
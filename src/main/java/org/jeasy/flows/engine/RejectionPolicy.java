@@ -0,0 +1,82 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy applied by an {@link AdmissionController} to a workflow run that can
+ * not be admitted right away because the maximum number of in-flight runs is reached.
+ *
+ * @see AdmissionController
+ */
+@FunctionalInterface
+public interface RejectionPolicy {
+
+    /**
+     * Decide what to do with a run that can not be admitted right away. Implementations
+     * may make room in the admission queue, for example with {@link AdmissionController#shedOldest()}.
+     *
+     * @param admissionController on which the run is waiting for admission
+     * @return the maximum time in nanoseconds the run may wait in the admission queue,
+     * or 0 to reject it immediately
+     */
+    long onSaturation(AdmissionController admissionController);
+
+    /**
+     * Reject the run immediately.
+     */
+    RejectionPolicy REJECT = admissionController -> 0;
+
+    /**
+     * Queue the run and block the caller until it is admitted or the timeout expires.
+     * The run is rejected immediately if the admission queue is full.
+     *
+     * @param timeout to wait for admission
+     * @param unit of the timeout
+     * @return a blocking policy
+     */
+    static RejectionPolicy block(long timeout, TimeUnit unit) {
+        long timeoutNanos = unit.toNanos(timeout);
+        return admissionController -> admissionController.isQueueFull() ? 0 : timeoutNanos;
+    }
+
+    /**
+     * Like {@link #block(long, TimeUnit)}, but when the admission queue is full, the
+     * oldest queued run is rejected to make room for the new one.
+     *
+     * @param timeout to wait for admission
+     * @param unit of the timeout
+     * @return a shed oldest policy
+     */
+    static RejectionPolicy shedOldest(long timeout, TimeUnit unit) {
+        long timeoutNanos = unit.toNanos(timeout);
+        return admissionController -> {
+            if (admissionController.isQueueFull()) {
+                admissionController.shedOldest();
+            }
+            return timeoutNanos;
+        };
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Single-flight execution of runs: while a run of a workflow is in progress, runs of
+ * the same workflow with the same key wait for it and share its report instead of
+ * being executed. A caller given another context than the one of the executed run
+ * gets a {@link DefaultWorkReport} with the status, error and execution of the run,
+ * not the report of the run itself.
+ */
+class RunCoalescer {
+
+    private final BiFunction<WorkFlow, WorkContext, ?> keyFunction;
+    private final ContextCopy contextCopy;
+    private final ConcurrentMap<Object, CompletableFuture<WorkReport>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong coalescedRuns = new AtomicLong();
+
+    RunCoalescer(BiFunction<WorkFlow, WorkContext, ?> keyFunction, ContextCopy contextCopy) {
+        this.keyFunction = keyFunction;
+        this.contextCopy = contextCopy;
+    }
+
+    WorkReport run(WorkFlow workFlow, WorkContext workContext, Supplier<WorkReport> execution) {
+        Object runKey = keyFunction.apply(workFlow, workContext);
+        if (runKey == null) {
+            return execution.get();
+        }
+        Object key = Arrays.asList(workFlow, runKey);
+        CompletableFuture<WorkReport> run = new CompletableFuture<>();
+        CompletableFuture<WorkReport> leader = inFlight.putIfAbsent(key, run);
+        if (leader != null) {
+            coalescedRuns.incrementAndGet();
+            return follow(leader, workContext);
+        }
+        try {
+            WorkReport workReport = execution.get();
+            inFlight.remove(key, run);
+            run.complete(workReport);
+            return workReport;
+        } catch (RuntimeException | Error e) {
+            inFlight.remove(key, run);
+            run.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    long getCoalescedRuns() {
+        return coalescedRuns.get();
+    }
+
+    private WorkReport follow(CompletableFuture<WorkReport> leader, WorkContext workContext) {
+        WorkReport workReport;
+        try {
+            workReport = leader.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw e;
+        }
+        WorkContext resultContext = workReport.getWorkContext();
+        if (resultContext == null) {
+            return workReport;
+        }
+        WorkContext callerContext = contextCopy.copy(resultContext, workContext);
+        if (callerContext == resultContext) {
+            return workReport;
+        }
+        return new CoalescedWorkReport(workReport, callerContext);
+    }
+
+    /*
+     * Report of a coalesced caller, keeping the execution of the run it was coalesced with.
+     */
+    private static class CoalescedWorkReport extends DefaultWorkReport {
+
+        private final WorkExecution workExecution;
+
+        CoalescedWorkReport(WorkReport workReport, WorkContext workContext) {
+            super(workReport.getStatus(), workContext, workReport.getError());
+            this.workExecution = workReport.getWorkExecution();
+        }
+
+        @Override
+        public WorkExecution getWorkExecution() {
+            return workExecution;
+        }
+    }
+}
@@ -23,10 +23,14 @@
  */
 package org.jeasy.flows.engine;
 
+import org.jeasy.flows.executor.SchedulingKey;
 import org.jeasy.flows.work.WorkContext;
 import org.jeasy.flows.work.WorkReport;
 import org.jeasy.flows.workflow.WorkFlow;
 
+import java.util.Collections;
+import java.util.Set;
+
 /**
  * Interface for a workflow engine.
  *
@@ -43,4 +47,41 @@ public interface WorkFlowEngine {
      */
     WorkReport run(WorkFlow workFlow, WorkContext workContext);
 
+    /**
+     * Run the given workflow with the given scheduling key and return its report.
+     * Work units submitted during the run to a {@link org.jeasy.flows.executor.FairShareExecutorService}
+     * are scheduled according to this key.
+     *
+     * @param workFlow to run
+     * @param workContext context in which the workflow will be run
+     * @param schedulingKey priority and group of the run
+     * @return workflow report
+     */
+    default WorkReport run(WorkFlow workFlow, WorkContext workContext, SchedulingKey schedulingKey) {
+        return schedulingKey.callWith(() -> run(workFlow, workContext));
+    }
+
+    /**
+     * Deliver a signal to the run suspended with the given correlation key, and resume
+     * this run on the calling thread until it completes, fails or is suspended again.
+     *
+     * Engines which do not support suspended runs never have a run suspended with the key,
+     * so they return null.
+     *
+     * @param correlationKey of the suspended run
+     * @param payload of the signal, put in the context if the suspended work unit asked for it
+     * @return the report of the resumed run, or null if no run is suspended with this key
+     * @see org.jeasy.flows.work.SuspendedWorkReport
+     */
+    default WorkReport signal(String correlationKey, Object payload) {
+        return null;
+    }
+
+    /**
+     * @return correlation keys of the suspended runs
+     */
+    default Set<String> getSuspendedRuns() {
+        return Collections.emptySet();
+    }
+
 }
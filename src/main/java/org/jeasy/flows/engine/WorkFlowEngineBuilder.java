@@ -23,10 +23,16 @@
  */
 package org.jeasy.flows.engine;
 
-import java.io.IOException;
-import java.util.logging.Level;
-import java.util.logging.LogManager;
-import java.util.logging.Logger;
+import org.jeasy.flows.history.ExecutionHistory;
+import org.jeasy.flows.metrics.MetricsRegistry;
+import org.jeasy.flows.metrics.WorkFlowMetrics;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecutionListener;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiFunction;
 
 /**
  * Main entry point to create {@link WorkFlowEngine} instances.
@@ -35,19 +41,6 @@ import java.util.logging.Logger;
  */
 public class WorkFlowEngineBuilder {
 
-    private static final Logger LOGGER = Logger.getLogger(WorkFlowEngineBuilder.class.getName());
-
-    static {
-        try {
-            if (System.getProperty("java.util.logging.config.file") == null &&
-                    System.getProperty("java.util.logging.config.class") == null) {
-                LogManager.getLogManager().readConfiguration(WorkFlowEngineBuilder.class.getResourceAsStream("/logging.properties"));
-            }
-        } catch (IOException e) {
-            LOGGER.log(Level.WARNING, "Unable to load log configuration file", e);
-        }
-    }
-
     /**
      * Create a new {@link WorkFlowEngineBuilder}.
      * 
@@ -57,15 +50,143 @@ public class WorkFlowEngineBuilder {
         return new WorkFlowEngineBuilder();
     }
 
+    private AdmissionController admissionController;
+    private List<WorkExecutionListener> workExecutionListeners = new ArrayList<>();
+    private boolean recordExecutions;
+    private MetricsRegistry metricsRegistry;
+    private RunCoalescer runCoalescer;
+    private ExecutionHistory executionHistory;
+
     private WorkFlowEngineBuilder() {
     }
 
+    /**
+     * Limit the number of workflow runs executed concurrently by the engine.
+     * Runs that are not admitted are not executed and get a report with a
+     * {@link org.jeasy.flows.work.WorkStatus#FAILED} status and a {@link FlowRejectedException}.
+     *
+     * @param admissionController to use, can be shared between engines
+     * @return this builder
+     * @see AdmissionController.Builder
+     */
+    public WorkFlowEngineBuilder admissionController(AdmissionController admissionController) {
+        this.admissionController = admissionController;
+        return this;
+    }
+
+    /**
+     * Register a listener notified of the execution of workflows and of their
+     * work units, for example a {@link org.jeasy.flows.tracing.Tracer}.
+     *
+     * @param workExecutionListener to register
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder workExecutionListener(WorkExecutionListener workExecutionListener) {
+        this.workExecutionListeners.add(workExecutionListener);
+        return this;
+    }
+
+    /**
+     * Record the execution tree of each run: start and end time, queue wait and
+     * thread of every work unit. The execution of each run is available with
+     * {@link org.jeasy.flows.work.WorkReport#getWorkExecution()} on the report
+     * returned by the engine, and can be analyzed with a
+     * {@link org.jeasy.flows.analysis.CriticalPathAnalyzer}. Disabled by default.
+     *
+     * @param recordExecutions true to record executions
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder recordExecutions(boolean recordExecutions) {
+        this.recordExecutions = recordExecutions;
+        return this;
+    }
+
+    /**
+     * Record metrics of workflow runs and work executions in the given registry
+     * (see {@link WorkFlowMetrics}), as well as gauges of the admission controller if any.
+     *
+     * @param metricsRegistry to record metrics in
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder metricsRegistry(MetricsRegistry metricsRegistry) {
+        this.metricsRegistry = metricsRegistry;
+        return this;
+    }
+
+    /**
+     * Keep a bounded history of the last runs of each workflow, which can be queried
+     * for recent runs, failure rates and slowest runs.
+     *
+     * @param executionHistory to record runs in, can be shared between engines
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder executionHistory(ExecutionHistory executionHistory) {
+        this.executionHistory = executionHistory;
+        return this;
+    }
+
+    /**
+     * Coalesce concurrent runs of the same workflow having the same key: only the first
+     * run is executed, and callers arriving while it is in progress get its status, error and
+     * execution, with the entries of its context put in their own context. They get a
+     * {@link org.jeasy.flows.work.DefaultWorkReport}: the type of the report of the run (like a
+     * {@link org.jeasy.flows.workflow.ParallelFlowReport} or a
+     * {@link org.jeasy.flows.work.SuspendedWorkReport}) is not preserved.
+     *
+     * @param keyFunction giving the key of a run from the workflow and its context, or null
+     *                    if the run must not be coalesced
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder coalesceRuns(BiFunction<WorkFlow, WorkContext, ?> keyFunction) {
+        return coalesceRuns(keyFunction, ContextCopy.INTO_CALLER_CONTEXT);
+    }
+
+    /**
+     * Coalesce concurrent runs of the same workflow having the same key: only the first
+     * run is executed, and callers arriving while it is in progress get its report, with
+     * a context given by the context copy strategy. When this context is not the one of the
+     * run, callers get a {@link org.jeasy.flows.work.DefaultWorkReport} with the status, error
+     * and execution of the run: use {@link ContextCopy#SHARED} to get the report of the run itself.
+     *
+     * @param keyFunction giving the key of a run from the workflow and its context, or null
+     *                    if the run must not be coalesced
+     * @param contextCopy strategy giving the context reported to each coalesced caller
+     * @return this builder
+     */
+    public WorkFlowEngineBuilder coalesceRuns(BiFunction<WorkFlow, WorkContext, ?> keyFunction, ContextCopy contextCopy) {
+        this.runCoalescer = new RunCoalescer(keyFunction, contextCopy);
+        return this;
+    }
+
     /**
      * Create a new {@link WorkFlowEngine}.
      * 
      * @return a new {@link WorkFlowEngine}.
      */
     public WorkFlowEngine build() {
-        return new WorkFlowEngineImpl();
+        List<WorkExecutionListener> listeners = new ArrayList<>(workExecutionListeners);
+        if (executionHistory != null) {
+            listeners.add(executionHistory);
+        }
+        if (metricsRegistry != null) {
+            listeners.add(new WorkFlowMetrics(metricsRegistry));
+            if (admissionController != null) {
+                registerAdmissionMetrics(metricsRegistry, admissionController);
+            }
+            if (runCoalescer != null) {
+                metricsRegistry.counter("easyflows_coalesced_runs_total", "Workflow runs coalesced with a run in progress",
+                        runCoalescer::getCoalescedRuns);
+            }
+        }
+        return new WorkFlowEngineImpl(admissionController, listeners, recordExecutions, runCoalescer);
+    }
+
+    private static void registerAdmissionMetrics(MetricsRegistry metricsRegistry, AdmissionController admissionController) {
+        metricsRegistry.gauge("easyflows_admission_in_flight", "Workflow runs in flight", admissionController::getInFlightFlows);
+        metricsRegistry.gauge("easyflows_admission_queued", "Workflow runs waiting for admission", admissionController::getQueuedFlows);
+        metricsRegistry.counter("easyflows_admission_admitted_total", "Admitted workflow runs", admissionController::getAdmittedCount);
+        metricsRegistry.counter("easyflows_admission_rejected_total", "Rejected workflow runs", admissionController::getRejectedCount);
+        metricsRegistry.counter("easyflows_admission_queued_seconds_total", "Total time spent by workflow runs waiting for admission",
+                () -> admissionController.getTotalQueuedTimeNanos() / 1e9);
     }
 }
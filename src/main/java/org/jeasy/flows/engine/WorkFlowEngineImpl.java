@@ -23,10 +23,23 @@
  */
 package org.jeasy.flows.engine;
 
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.SuspendedWorkReport;
+import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkExecutionListener;
 import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ResumableWorkFlow;
 import org.jeasy.flows.workflow.WorkFlow;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -34,9 +47,131 @@ class WorkFlowEngineImpl implements WorkFlowEngine {
 
     private static final Logger LOGGER = Logger.getLogger(WorkFlowEngineImpl.class.getName());
 
+    private final AdmissionController admissionController;
+    private final List<WorkExecutionListener> workExecutionListeners;
+    private final boolean recordExecutions;
+    private final RunCoalescer runCoalescer;
+    private final Map<String, SuspendedRun> suspendedRuns = new ConcurrentHashMap<>();
+
+    WorkFlowEngineImpl() {
+        this(null, Collections.emptyList(), false, null);
+    }
+
+    WorkFlowEngineImpl(AdmissionController admissionController, List<WorkExecutionListener> workExecutionListeners,
+                       boolean recordExecutions, RunCoalescer runCoalescer) {
+        this.admissionController = admissionController;
+        this.workExecutionListeners = workExecutionListeners;
+        this.recordExecutions = recordExecutions;
+        this.runCoalescer = runCoalescer;
+    }
+
     public WorkReport run(WorkFlow workFlow, WorkContext workContext) {
-        LOGGER.log(Level.INFO, "Running workflow ''{0}''", workFlow.getName());
-        return workFlow.call(workContext);
+        if (runCoalescer == null) {
+            return admitAndRun(workFlow, workContext);
+        }
+        return runCoalescer.run(workFlow, workContext, () -> admitAndRun(workFlow, workContext));
+    }
+
+    private WorkReport admitAndRun(WorkFlow workFlow, WorkContext workContext) {
+        return admit(workFlow, workContext, () -> {
+            LOGGER.log(Level.INFO, "Running workflow ''{0}''", workFlow.getName());
+            return execute(workFlow, workFlow, workContext);
+        });
+    }
+
+    @Override
+    public WorkReport signal(String correlationKey, Object payload) {
+        SuspendedRun suspendedRun = suspendedRuns.remove(correlationKey);
+        if (suspendedRun == null) {
+            LOGGER.log(Level.FINE, "No run suspended with correlation key ''{0}''", correlationKey);
+            return null;
+        }
+        WorkFlow workFlow = suspendedRun.workFlow;
+        SuspendedWorkReport suspension = suspendedRun.suspension;
+        WorkContext workContext = suspension.getWorkContext();
+        if (suspension.getSignalKey() != null) {
+            workContext.put(suspension.getSignalKey(), payload);
+        }
+        Work resumption = new Work() {
+            @Override
+            public String getName() {
+                return workFlow.getName();
+            }
+
+            @Override
+            public WorkReport call(WorkContext context) {
+                return ResumableWorkFlow.resume(workFlow, context, suspension, 0);
+            }
+        };
+        return admit(workFlow, workContext, () -> {
+            LOGGER.log(Level.INFO, "Resuming workflow ''{0}''", workFlow.getName());
+            return execute(workFlow, resumption, workContext);
+        });
+    }
+
+    @Override
+    public Set<String> getSuspendedRuns() {
+        return Collections.unmodifiableSet(suspendedRuns.keySet());
+    }
+
+    private WorkReport admit(WorkFlow workFlow, WorkContext workContext, Supplier<WorkReport> execution) {
+        if (admissionController == null) {
+            return execution.get();
+        }
+        if (!admissionController.acquire()) {
+            LOGGER.log(Level.FINE, "Workflow ''{0}'' has been rejected", workFlow.getName());
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                    new FlowRejectedException("Workflow '" + workFlow.getName() + "' has been rejected by admission control"));
+        }
+        try {
+            return execution.get();
+        } finally {
+            admissionController.release();
+        }
+    }
+
+    private WorkReport execute(WorkFlow workFlow, Work work, WorkContext workContext) {
+        WorkReport workReport;
+        if (workExecutionListeners.isEmpty() && !recordExecutions) {
+            workReport = work.call(workContext);
+        } else {
+            workReport = WorkExecution.call(work, workContext, workExecutionListeners, recordExecutions);
+        }
+        if (workReport instanceof SuspendedWorkReport) {
+            return suspend(workFlow, (SuspendedWorkReport) workReport);
+        }
+        return workReport;
+    }
+
+    private WorkReport suspend(WorkFlow workFlow, SuspendedWorkReport suspension) {
+        String correlationKey = suspension.getCorrelationKey();
+        SuspendedRun suspendedRun = new SuspendedRun(workFlow, suspension);
+        if (suspendedRuns.putIfAbsent(correlationKey, suspendedRun) != null) {
+            return new DefaultWorkReport(WorkStatus.FAILED, suspension.getWorkContext(),
+                    new IllegalStateException("A run is already suspended with correlation key '" + correlationKey + "'"));
+        }
+        LOGGER.log(Level.INFO, "Workflow ''{0}'' suspended until signal ''{1}''", new Object[]{workFlow.getName(), correlationKey});
+        Runnable onSuspended = suspension.getOnSuspended();
+        if (onSuspended != null) {
+            try {
+                onSuspended.run();
+            } catch (RuntimeException e) {
+                suspendedRuns.remove(correlationKey, suspendedRun);
+                return new DefaultWorkReport(WorkStatus.FAILED, suspension.getWorkContext(), e);
+            }
+        }
+        return suspension;
+    }
+
+    private static class SuspendedRun {
+
+        private final WorkFlow workFlow;
+        private final SuspendedWorkReport suspension;
+
+        SuspendedRun(WorkFlow workFlow, SuspendedWorkReport suspension) {
+            this.workFlow = workFlow;
+            this.suspension = suspension;
+        }
     }
 
 }
@@ -0,0 +1,386 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.executor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * An executor service with a fixed number of worker threads that schedules tasks
+ * according to the {@link SchedulingKey} of the thread that submitted them:
+ *
+ * <ul>
+ *     <li>across priorities, scheduling is strict: a task is only picked when no task
+ *     of a higher priority is waiting</li>
+ *     <li>within a priority, workers are shared between groups in proportion to their
+ *     weight (stride scheduling), so a group submitting many tasks can not starve
+ *     the other groups of the same priority</li>
+ * </ul>
+ *
+ * This executor service can be given to {@link org.jeasy.flows.workflow.ParallelFlow.Builder#aNewParallelFlow}
+ * in place of a FIFO executor service.
+ *
+ * <strong>It is the responsibility of the caller to manage the lifecycle of the
+ * executor service.</strong>
+ *
+ * @see FairShareExecutorService.Builder
+ */
+public class FairShareExecutorService extends AbstractExecutorService {
+
+    private static final Logger LOGGER = Logger.getLogger(FairShareExecutorService.class.getName());
+
+    private static final long STRIDE = 1L << 20;
+    private static final int RUNNING = 0, SHUTDOWN = 1, STOP = 2;
+
+    private final Map<String, Integer> weights;
+    private final TreeMap<Integer, PriorityClass> priorityClasses = new TreeMap<>(Comparator.reverseOrder());
+    private final List<Thread> workers = new ArrayList<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition terminated = lock.newCondition();
+    private int queuedTasks;
+    private int liveWorkers;
+    private int state = RUNNING;
+
+    FairShareExecutorService(int parallelism, Map<String, Integer> weights, ThreadFactory threadFactory) {
+        this.weights = weights;
+        for (int i = 0; i < parallelism; i++) {
+            Thread worker = threadFactory.newThread(this::work);
+            workers.add(worker);
+        }
+        liveWorkers = parallelism;
+        for (Thread worker : workers) {
+            worker.start();
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        SchedulingKey key = SchedulingKey.current();
+        ScheduledTask task = new ScheduledTask(command, key);
+        lock.lock();
+        try {
+            if (state != RUNNING) {
+                throw new RejectedExecutionException("Executor service has been shut down");
+            }
+            priorityClasses.computeIfAbsent(key.getPriority(), priority -> new PriorityClass()).offer(task);
+            queuedTasks++;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of tasks waiting to be picked by a worker.
+     *
+     * @return number of queued tasks
+     */
+    public int getQueuedTasks() {
+        lock.lock();
+        try {
+            return queuedTasks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        lock.lock();
+        try {
+            if (state == RUNNING) {
+                state = SHUTDOWN;
+            }
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        lock.lock();
+        try {
+            state = STOP;
+            for (PriorityClass priorityClass : priorityClasses.values()) {
+                ScheduledTask task;
+                while ((task = priorityClass.poll()) != null) {
+                    pending.add(task.command);
+                }
+            }
+            priorityClasses.clear();
+            queuedTasks = 0;
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        for (Thread worker : workers) {
+            worker.interrupt();
+        }
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        lock.lock();
+        try {
+            return state != RUNNING;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isTerminated() {
+        lock.lock();
+        try {
+            return state != RUNNING && liveWorkers == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lock();
+        try {
+            while (!(state != RUNNING && liveWorkers == 0)) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = terminated.awaitNanos(nanos);
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void work() {
+        try {
+            ScheduledTask task;
+            while ((task = take()) != null) {
+                ScheduledTask toRun = task;
+                try {
+                    toRun.key.callWith(() -> {
+                        toRun.command.run();
+                        return null;
+                    });
+                } catch (Throwable e) {
+                    LOGGER.log(Level.WARNING, "Unexpected error in task of group '" + toRun.key.getGroup() + "'", e);
+                }
+            }
+        } finally {
+            lock.lock();
+            try {
+                liveWorkers--;
+                terminated.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private ScheduledTask take() {
+        lock.lock();
+        try {
+            while (queuedTasks == 0) {
+                if (state != RUNNING) {
+                    return null;
+                }
+                notEmpty.awaitUninterruptibly();
+            }
+            if (state == STOP) {
+                return null;
+            }
+            Map.Entry<Integer, PriorityClass> highest = priorityClasses.firstEntry();
+            ScheduledTask task = highest.getValue().poll();
+            if (highest.getValue().isEmpty()) {
+                priorityClasses.remove(highest.getKey());
+            }
+            queuedTasks--;
+            return task;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int weightOf(String group) {
+        Integer weight = weights.get(group);
+        return weight == null ? 1 : weight;
+    }
+
+    private static class ScheduledTask {
+
+        private final Runnable command;
+        private final SchedulingKey key;
+
+        ScheduledTask(Runnable command, SchedulingKey key) {
+            this.command = command;
+            this.key = key;
+        }
+    }
+
+    /*
+     * Tasks of a given priority, queued per group. The next group to serve is the
+     * active group with the smallest pass; serving a group advances its pass by
+     * STRIDE / weight. A group becoming active starts at the current virtual time
+     * so that idle groups do not accumulate credit.
+     */
+    private class PriorityClass {
+
+        private final Map<String, Group> groups = new HashMap<>();
+        private final PriorityQueue<Group> activeGroups = new PriorityQueue<>(
+                Comparator.comparingLong((Group group) -> group.pass).thenComparingLong(group -> group.sequence));
+        private long virtualTime;
+        private long sequence;
+
+        void offer(ScheduledTask task) {
+            Group group = groups.get(task.key.getGroup());
+            if (group == null) {
+                group = new Group(weightOf(task.key.getGroup()));
+                group.pass = virtualTime;
+                group.sequence = sequence++;
+                groups.put(task.key.getGroup(), group);
+                activeGroups.add(group);
+            }
+            group.tasks.add(task);
+        }
+
+        ScheduledTask poll() {
+            Group group = activeGroups.poll();
+            if (group == null) {
+                return null;
+            }
+            ScheduledTask task = group.tasks.poll();
+            virtualTime = group.pass;
+            if (group.tasks.isEmpty()) {
+                groups.remove(task.key.getGroup());
+            } else {
+                group.pass += STRIDE / group.weight;
+                group.sequence = sequence++;
+                activeGroups.add(group);
+            }
+            return task;
+        }
+
+        boolean isEmpty() {
+            return activeGroups.isEmpty();
+        }
+    }
+
+    private static class Group {
+
+        private final Queue<ScheduledTask> tasks = new ArrayDeque<>();
+        private final int weight;
+        private long pass;
+        private long sequence;
+
+        Group(int weight) {
+            this.weight = weight;
+        }
+    }
+
+    public static class Builder {
+
+        private int parallelism;
+        private Map<String, Integer> weights;
+        private ThreadFactory threadFactory;
+
+        private Builder() {
+            this.parallelism = Runtime.getRuntime().availableProcessors();
+            this.weights = new HashMap<>();
+            this.threadFactory = new DefaultThreadFactory();
+        }
+
+        public static FairShareExecutorService.Builder aNewFairShareExecutorService() {
+            return new FairShareExecutorService.Builder();
+        }
+
+        /**
+         * Number of worker threads. Defaults to the number of available processors.
+         */
+        public FairShareExecutorService.Builder parallelism(int parallelism) {
+            if (parallelism <= 0) {
+                throw new IllegalArgumentException("parallelism must be strictly positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Weight of a group within its priority. Groups without an explicit weight have a weight of 1.
+         */
+        public FairShareExecutorService.Builder weight(String group, int weight) {
+            if (weight <= 0) {
+                throw new IllegalArgumentException("weight must be strictly positive");
+            }
+            this.weights.put(group, weight);
+            return this;
+        }
+
+        public FairShareExecutorService.Builder threadFactory(ThreadFactory threadFactory) {
+            this.threadFactory = threadFactory;
+            return this;
+        }
+
+        public FairShareExecutorService build() {
+            return new FairShareExecutorService(parallelism, new HashMap<>(weights), threadFactory);
+        }
+    }
+
+    private static class DefaultThreadFactory implements ThreadFactory {
+
+        private static final AtomicInteger POOL_NUMBER = new AtomicInteger();
+
+        private final String prefix = "fair-share-" + POOL_NUMBER.incrementAndGet() + "-worker-";
+        private final AtomicInteger threadNumber = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
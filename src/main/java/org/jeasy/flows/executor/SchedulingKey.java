@@ -0,0 +1,129 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.executor;
+
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Scheduling attributes of a workflow run: a priority and a group (typically a tenant).
+ *
+ * The key of the current run is held in a thread local. A {@link FairShareExecutorService}
+ * captures the key of the submitting thread with each task and restores it on the
+ * worker thread while the task runs, so work units submitted by nested parallel
+ * flows inherit the key of the run that started them.
+ *
+ * @see FairShareExecutorService
+ */
+public final class SchedulingKey {
+
+    public static final int DEFAULT_PRIORITY = 0;
+    public static final String DEFAULT_GROUP = "default";
+    public static final SchedulingKey DEFAULT = new SchedulingKey(DEFAULT_PRIORITY, DEFAULT_GROUP);
+
+    private static final ThreadLocal<SchedulingKey> CURRENT = new ThreadLocal<>();
+
+    private final int priority;
+    private final String group;
+
+    private SchedulingKey(int priority, String group) {
+        this.priority = priority;
+        this.group = group;
+    }
+
+    /**
+     * Create a new {@link SchedulingKey}.
+     *
+     * @param priority of the run, runs with a higher priority are always scheduled first
+     * @param group of the run, runs of the same priority share workers fairly between groups
+     * @return a new scheduling key
+     */
+    public static SchedulingKey of(int priority, String group) {
+        return new SchedulingKey(priority, Objects.requireNonNull(group, "group must not be null"));
+    }
+
+    /**
+     * Get the key of the run executed by the current thread.
+     *
+     * @return the current key, or {@link #DEFAULT} if none is set
+     */
+    public static SchedulingKey current() {
+        SchedulingKey key = CURRENT.get();
+        return key == null ? DEFAULT : key;
+    }
+
+    /**
+     * Call the given supplier with this key set as the current key.
+     *
+     * @param supplier to call
+     * @param <T> type of the result
+     * @return the result of the supplier
+     */
+    public <T> T callWith(Supplier<T> supplier) {
+        SchedulingKey previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return supplier.get();
+        } finally {
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    public int getPriority() {
+        return priority;
+    }
+
+    public String getGroup() {
+        return group;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SchedulingKey)) {
+            return false;
+        }
+        SchedulingKey that = (SchedulingKey) o;
+        return priority == that.priority && group.equals(that.group);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * priority + group.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "SchedulingKey {" +
+                "priority=" + priority +
+                ", group='" + group + '\'' +
+                '}';
+    }
+}
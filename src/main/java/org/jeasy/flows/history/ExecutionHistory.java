@@ -0,0 +1,260 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.history;
+
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkExecutionListener;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A {@link WorkExecutionListener} keeping a summary of the last runs of each workflow
+ * (see {@link RunSummary}), to answer questions like "what were the last runs of this
+ * flow, how long did they take and why did they fail" without shipping logs.
+ *
+ * Runs of a workflow are kept in a fixed-size ring, the oldest run being overwritten
+ * by the newest one without locking, so memory is bounded whatever the throughput.
+ * To keep it bounded, at most {@code maxFlows} distinct flow names get their own ring, runs of
+ * further flows share a single overflow ring. Queries are made on a snapshot of the ring,
+ * which may miss runs being recorded concurrently.
+ *
+ * The failing work unit of a failed run is the one at the end of the chain of failed
+ * executions leading to the run failure: failures recovered from, like a failed check
+ * followed by the {@code otherwise} branch of a conditional flow, are not reported.
+ *
+ * @see org.jeasy.flows.engine.WorkFlowEngineBuilder#executionHistory(ExecutionHistory)
+ */
+public class ExecutionHistory implements WorkExecutionListener {
+
+    private static final Comparator<RunSummary> MOST_RECENT_FIRST =
+            Comparator.comparingLong(RunSummary::getEndTimeMillis).reversed();
+    private static final Comparator<RunSummary> SLOWEST_FIRST =
+            Comparator.comparingLong(RunSummary::getDurationNanos).reversed();
+
+    private final int runsPerFlow;
+    private final int maxFlows;
+    private final ConcurrentMap<String, Ring> rings = new ConcurrentHashMap<>();
+    private final AtomicInteger trackedFlows = new AtomicInteger();
+    private final Ring overflow;
+
+    /**
+     * Create a new {@link ExecutionHistory} tracking at most 1000 flow names.
+     *
+     * @param runsPerFlow number of runs kept for each workflow
+     */
+    public ExecutionHistory(int runsPerFlow) {
+        this(runsPerFlow, 1000);
+    }
+
+    /**
+     * Create a new {@link ExecutionHistory}.
+     *
+     * @param runsPerFlow number of runs kept for each workflow
+     * @param maxFlows maximum number of distinct flow names to track
+     */
+    public ExecutionHistory(int runsPerFlow, int maxFlows) {
+        if (runsPerFlow < 1) {
+            throw new IllegalArgumentException("runsPerFlow must be positive");
+        }
+        this.runsPerFlow = runsPerFlow;
+        this.maxFlows = maxFlows;
+        this.overflow = new Ring(runsPerFlow);
+    }
+
+    @Override
+    public void onStart(WorkExecution workExecution) {
+        if (workExecution.getRoot() == workExecution) {
+            workExecution.setAttachment(this, new ConcurrentHashMap<WorkExecution, Failure>());
+        }
+    }
+
+    /*
+     * Each failed execution reports its failure to its parent, as the one of its latest failed
+     * child if any, or its own. Executions which do not fail discard the failures of their children.
+     */
+    @Override
+    public void onEnd(WorkExecution workExecution) {
+        WorkExecution root = workExecution.getRoot();
+        @SuppressWarnings("unchecked")
+        Map<WorkExecution, Failure> failures = (Map<WorkExecution, Failure>) root.getAttachment(this);
+        if (failures == null) {
+            return;
+        }
+        WorkStatus status = workExecution.getStatus();
+        Failure failure = failures.remove(workExecution);
+        if (status == WorkStatus.FAILED) {
+            if (failure == null) {
+                Throwable error = workExecution.getError();
+                failure = new Failure(workExecution.getWork().getName(), error == null ? null : error.getClass().getName());
+            }
+            if (root != workExecution) {
+                failures.put(workExecution.getParent(), failure);
+            }
+        } else {
+            failure = null;
+        }
+        if (root == workExecution) {
+            String flowName = workExecution.getWork().getName();
+            ring(flowName).add(new RunSummary(flowName, status, System.currentTimeMillis(), workExecution.getDurationNanos(),
+                    failure == null ? null : failure.workName, failure == null ? null : failure.errorType));
+        }
+    }
+
+    /**
+     * Get the most recent runs of a workflow.
+     *
+     * @param flowName name of the workflow
+     * @param limit maximum number of runs to return
+     * @return the most recent runs, most recent first
+     */
+    public List<RunSummary> getRecentRuns(String flowName, int limit) {
+        return top(flowName, MOST_RECENT_FIRST, limit);
+    }
+
+    /**
+     * Get the slowest runs of a workflow among the runs kept in history.
+     *
+     * @param flowName name of the workflow
+     * @param limit maximum number of runs to return
+     * @return the slowest runs, slowest first
+     */
+    public List<RunSummary> getSlowestRuns(String flowName, int limit) {
+        return top(flowName, SLOWEST_FIRST, limit);
+    }
+
+    /**
+     * Get the ratio of failed runs of a workflow among its runs ended within the given window.
+     *
+     * @param flowName name of the workflow
+     * @param window ending now
+     * @return the failure rate between 0 and 1, 0 if no run ended within the window
+     */
+    public double getFailureRate(String flowName, Duration window) {
+        long since = System.currentTimeMillis() - window.toMillis();
+        int runs = 0;
+        int failures = 0;
+        for (RunSummary run : snapshot(flowName)) {
+            if (run.getEndTimeMillis() >= since) {
+                runs++;
+                if (run.getStatus() == WorkStatus.FAILED) {
+                    failures++;
+                }
+            }
+        }
+        return runs == 0 ? 0 : (double) failures / runs;
+    }
+
+    /**
+     * @return names of the workflows having runs in history
+     */
+    public Set<String> getFlowNames() {
+        Set<String> flowNames = new TreeSet<>(rings.keySet());
+        for (RunSummary run : overflow.snapshot()) {
+            flowNames.add(run.getFlowName());
+        }
+        return Collections.unmodifiableSet(flowNames);
+    }
+
+    private List<RunSummary> top(String flowName, Comparator<RunSummary> order, int limit) {
+        List<RunSummary> runs = snapshot(flowName);
+        runs.sort(order);
+        return runs.size() > limit ? new ArrayList<>(runs.subList(0, limit)) : runs;
+    }
+
+    private List<RunSummary> snapshot(String flowName) {
+        Ring ring = rings.get(flowName);
+        if (ring != null) {
+            return ring.snapshot();
+        }
+        List<RunSummary> runs = overflow.snapshot();
+        runs.removeIf(run -> !run.getFlowName().equals(flowName));
+        return runs;
+    }
+
+    private Ring ring(String flowName) {
+        Ring ring = rings.get(flowName);
+        if (ring != null) {
+            return ring;
+        }
+        if (trackedFlows.incrementAndGet() > maxFlows) {
+            trackedFlows.decrementAndGet();
+            return overflow;
+        }
+        Ring existing = rings.putIfAbsent(flowName, ring = new Ring(runsPerFlow));
+        if (existing != null) {
+            trackedFlows.decrementAndGet();
+            return existing;
+        }
+        return ring;
+    }
+
+    private static class Failure {
+
+        private final String workName;
+        private final String errorType;
+
+        Failure(String workName, String errorType) {
+            this.workName = workName;
+            this.errorType = errorType;
+        }
+    }
+
+    private static class Ring {
+
+        private final AtomicReferenceArray<RunSummary> runs;
+        private final AtomicLong sequence = new AtomicLong();
+
+        Ring(int capacity) {
+            this.runs = new AtomicReferenceArray<>(capacity);
+        }
+
+        void add(RunSummary run) {
+            runs.set((int) (sequence.getAndIncrement() % runs.length()), run);
+        }
+
+        List<RunSummary> snapshot() {
+            List<RunSummary> snapshot = new ArrayList<>(runs.length());
+            for (int i = 0; i < runs.length(); i++) {
+                RunSummary run = runs.get(i);
+                if (run != null) {
+                    snapshot.add(run);
+                }
+            }
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.history;
+
+import org.jeasy.flows.work.WorkStatus;
+
+import java.time.Instant;
+
+/**
+ * Summary of a workflow run kept in an {@link ExecutionHistory}.
+ */
+public class RunSummary {
+
+    private final String flowName;
+    private final WorkStatus status;
+    private final long endTimeMillis;
+    private final long durationNanos;
+    private final String failingWorkName;
+    private final String errorType;
+
+    RunSummary(String flowName, WorkStatus status, long endTimeMillis, long durationNanos,
+               String failingWorkName, String errorType) {
+        this.flowName = flowName;
+        this.status = status;
+        this.endTimeMillis = endTimeMillis;
+        this.durationNanos = durationNanos;
+        this.failingWorkName = failingWorkName;
+        this.errorType = errorType;
+    }
+
+    /**
+     * @return name of the workflow
+     */
+    public String getFlowName() {
+        return flowName;
+    }
+
+    /**
+     * @return status of the run
+     */
+    public WorkStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * @return time at which the run ended
+     */
+    public Instant getEndTime() {
+        return Instant.ofEpochMilli(endTimeMillis);
+    }
+
+    long getEndTimeMillis() {
+        return endTimeMillis;
+    }
+
+    /**
+     * @return duration of the run, in nanoseconds
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return name of the first work unit that failed, or null if the run has not failed
+     */
+    public String getFailingWorkName() {
+        return failingWorkName;
+    }
+
+    /**
+     * @return class name of the error of the failing work unit, or null if it failed without error
+     */
+    public String getErrorType() {
+        return errorType;
+    }
+
+    @Override
+    public String toString() {
+        return "RunSummary {" +
+                "flowName='" + flowName + '\'' +
+                ", status=" + status +
+                ", endTime=" + getEndTime() +
+                ", durationNanos=" + durationNanos +
+                ", failingWorkName='" + failingWorkName + '\'' +
+                ", errorType='" + errorType + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of latencies with logarithmic buckets: the upper bound
+ * of bucket {@code i} is {@code 2^i} microseconds, from 1 microsecond up to about
+ * 34 seconds, plus an overflow bucket. Recording a value is a few arithmetic
+ * operations and an atomic increment.
+ */
+public class LatencyHistogram {
+
+    static final int BUCKETS = 26;
+    private static final long FIRST_BOUND_NANOS = 1000;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS + 1);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * Record a latency.
+     *
+     * @param nanos latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        count.increment();
+        sumNanos.add(value);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.sum();
+    }
+
+    /**
+     * Get an upper bound of the latency at the given percentile, with the
+     * precision of the buckets.
+     *
+     * @param percentile between 0 and 100
+     * @return the upper bound of the bucket holding the percentile in nanoseconds,
+     * {@link Long#MAX_VALUE} if it is in the overflow bucket, 0 if no value was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = snapshot();
+        long total = 0;
+        for (long bucketCount : snapshot) {
+            total += bucketCount;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long cumulative = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            cumulative += snapshot[i];
+            if (cumulative >= rank) {
+                return upperBoundNanos(i);
+            }
+        }
+        return Long.MAX_VALUE;
+    }
+
+    long[] snapshot() {
+        long[] snapshot = new long[BUCKETS + 1];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = counts.get(i);
+        }
+        return snapshot;
+    }
+
+    static long upperBoundNanos(int bucket) {
+        return bucket >= BUCKETS ? Long.MAX_VALUE : FIRST_BOUND_NANOS << bucket;
+    }
+
+    static int bucketOf(long nanos) {
+        if (nanos <= FIRST_BOUND_NANOS) {
+            return 0;
+        }
+        int bucket = 64 - Long.numberOfLeadingZeros((nanos - 1) / FIRST_BOUND_NANOS);
+        return Math.min(bucket, BUCKETS);
+    }
+}
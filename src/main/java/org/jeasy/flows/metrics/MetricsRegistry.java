@@ -0,0 +1,248 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.metrics;
+
+import org.jeasy.flows.executor.FairShareExecutorService;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+/**
+ * A dependency-free registry of counters, gauges and latency histograms that
+ * can be written in the Prometheus text exposition format.
+ *
+ * Metrics are identified by a name and optional labels given as alternating
+ * names and values. Getting a metric returns the same instance for the same
+ * name and labels, so hot paths should keep references to the metrics they
+ * update rather than looking them up for each update.
+ *
+ * <strong>Metrics registry instances are thread-safe.</strong>
+ */
+public class MetricsRegistry {
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get or create a counter.
+     *
+     * @param name of the counter
+     * @param help description of the counter
+     * @param labels alternating label names and values
+     * @return the counter
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return family(name, help, Type.COUNTER).get(labels, key -> new Counter(), Counter.class);
+    }
+
+    /**
+     * Register a counter whose value is maintained elsewhere, for example by a component
+     * exposing its own totals. The supplier is called each time metrics are written and
+     * must never decrease. Registering a counter with the same name and labels replaces
+     * the previous one.
+     *
+     * @param name of the counter, ending with {@code _total}
+     * @param help description of the counter
+     * @param supplier of the counter value
+     * @param labels alternating label names and values
+     */
+    public void counter(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, Type.COUNTER).series.put(labelsText(labels), supplier);
+    }
+
+    /**
+     * Get or create a latency histogram.
+     *
+     * @param name of the histogram, values are exposed in seconds
+     * @param help description of the histogram
+     * @param labels alternating label names and values
+     * @return the histogram
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return family(name, help, Type.HISTOGRAM).get(labels, key -> new LatencyHistogram(), LatencyHistogram.class);
+    }
+
+    /**
+     * Register a gauge. The supplier is called each time metrics are written.
+     * Registering a gauge with the same name and labels replaces the previous one.
+     *
+     * @param name of the gauge
+     * @param help description of the gauge
+     * @param supplier of the gauge value
+     * @param labels alternating label names and values
+     */
+    public void gauge(String name, String help, DoubleSupplier supplier, String... labels) {
+        family(name, help, Type.GAUGE).series.put(labelsText(labels), supplier);
+    }
+
+    /**
+     * Register gauges for the given executor service, typically the one of a
+     * {@link org.jeasy.flows.workflow.ParallelFlow}: queued tasks and, when available,
+     * active threads, pool size and completed tasks.
+     *
+     * @param name of the executor service, used as the {@code executor} label
+     * @param executorService to monitor
+     */
+    public void monitor(String name, ExecutorService executorService) {
+        if (executorService instanceof ThreadPoolExecutor) {
+            ThreadPoolExecutor executor = (ThreadPoolExecutor) executorService;
+            gauge("easyflows_executor_queued_tasks", "Tasks waiting for an executor thread", () -> executor.getQueue().size(), "executor", name);
+            gauge("easyflows_executor_active_threads", "Executor threads running a task", executor::getActiveCount, "executor", name);
+            gauge("easyflows_executor_pool_size", "Executor threads", executor::getPoolSize, "executor", name);
+            counter("easyflows_executor_completed_tasks_total", "Tasks completed by the executor", executor::getCompletedTaskCount, "executor", name);
+        } else if (executorService instanceof ForkJoinPool) {
+            ForkJoinPool executor = (ForkJoinPool) executorService;
+            gauge("easyflows_executor_queued_tasks", "Tasks waiting for an executor thread", executor::getQueuedSubmissionCount, "executor", name);
+            gauge("easyflows_executor_active_threads", "Executor threads running a task", executor::getActiveThreadCount, "executor", name);
+            gauge("easyflows_executor_pool_size", "Executor threads", executor::getPoolSize, "executor", name);
+        } else if (executorService instanceof FairShareExecutorService) {
+            FairShareExecutorService executor = (FairShareExecutorService) executorService;
+            gauge("easyflows_executor_queued_tasks", "Tasks waiting for an executor thread", executor::getQueuedTasks, "executor", name);
+        } else {
+            throw new IllegalArgumentException("Unsupported executor service type: " + executorService.getClass().getName());
+        }
+    }
+
+    /**
+     * Write all metrics in the Prometheus text exposition format (version 0.0.4).
+     *
+     * @param out to write to
+     * @throws IOException if an error occurs while writing
+     */
+    public void writePrometheus(Appendable out) throws IOException {
+        for (Family family : families.values()) {
+            out.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            out.append("# TYPE ").append(family.name).append(' ').append(family.type.name().toLowerCase()).append('\n');
+            for (Map.Entry<String, Object> series : new ConcurrentSkipListMap<>(family.series).entrySet()) {
+                String labels = series.getKey();
+                Object metric = series.getValue();
+                switch (family.type) {
+                    case COUNTER:
+                        sample(out, family.name, labels, metric instanceof Counter
+                                ? Long.toString(((Counter) metric).get()) : format(((DoubleSupplier) metric).getAsDouble()));
+                        break;
+                    case GAUGE:
+                        sample(out, family.name, labels, format(((DoubleSupplier) metric).getAsDouble()));
+                        break;
+                    default:
+                        writeHistogram(out, family.name, labels, (LatencyHistogram) metric);
+                }
+            }
+        }
+    }
+
+    private static void writeHistogram(Appendable out, String name, String labels, LatencyHistogram histogram) throws IOException {
+        long[] counts = histogram.snapshot();
+        long cumulative = 0;
+        String separator = labels.isEmpty() ? "" : ",";
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i == LatencyHistogram.BUCKETS ? "+Inf" : format(LatencyHistogram.upperBoundNanos(i) / 1e9);
+            sample(out, name + "_bucket", labels + separator + "le=\"" + le + "\"", Long.toString(cumulative));
+        }
+        sample(out, name + "_sum", labels, format(histogram.getSumNanos() / 1e9));
+        sample(out, name + "_count", labels, Long.toString(cumulative));
+    }
+
+    private static void sample(Appendable out, String name, String labels, String value) throws IOException {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        out.append(' ').append(value).append('\n');
+    }
+
+    private static String format(double value) {
+        if (Double.isNaN(value)) {
+            return "NaN";
+        }
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private Family family(String name, String help, Type type) {
+        Family family = families.computeIfAbsent(name, key -> new Family(name, help, type));
+        if (family.type != type) {
+            throw new IllegalArgumentException("Metric '" + name + "' is already registered as a " + family.type.name().toLowerCase());
+        }
+        return family;
+    }
+
+    private static String labelsText(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("labels must be given as alternating names and values");
+        }
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\\' || c == '"') {
+                    builder.append('\\').append(c);
+                } else if (c == '\n') {
+                    builder.append("\\n");
+                } else {
+                    builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    private enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    private static class Family {
+
+        private final String name;
+        private final String help;
+        private final Type type;
+        private final ConcurrentMap<String, Object> series = new ConcurrentHashMap<>();
+
+        Family(String name, String help, Type type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        <T> T get(String[] labels, Function<String, T> factory, Class<T> metricType) {
+            return metricType.cast(series.computeIfAbsent(labelsText(labels), factory));
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.metrics;
+
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkExecutionListener;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * A {@link WorkExecutionListener} recording throughput, errors and latencies of
+ * workflow runs and work executions in a {@link MetricsRegistry}:
+ *
+ * <ul>
+ *     <li>{@code easyflows_flow_runs_total{flow, status}} and {@code easyflows_flow_duration_seconds{flow}}</li>
+ *     <li>{@code easyflows_work_executions_total{work, status}} and {@code easyflows_work_duration_seconds{work}}</li>
+ *     <li>{@code easyflows_work_queue_wait_seconds{work}} for work units executed by parallel flows</li>
+ * </ul>
+ *
+ * Metrics are keyed by work name, so works should have a stable name: the default
+ * name of a work is a random UUID. To protect the registry, at most {@code maxNames}
+ * distinct names are tracked, further names are recorded under the name {@code other}.
+ */
+public class WorkFlowMetrics implements WorkExecutionListener {
+
+    static final String OTHER = "other";
+
+    private final MetricsRegistry metricsRegistry;
+    private final int maxNames;
+    private final ConcurrentMap<String, Series> flows = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Series> works = new ConcurrentHashMap<>();
+
+    /**
+     * Create a new {@link WorkFlowMetrics} tracking at most 1000 flow names and 1000 work names.
+     *
+     * @param metricsRegistry to record metrics in
+     */
+    public WorkFlowMetrics(MetricsRegistry metricsRegistry) {
+        this(metricsRegistry, 1000);
+    }
+
+    /**
+     * Create a new {@link WorkFlowMetrics}.
+     *
+     * @param metricsRegistry to record metrics in
+     * @param maxNames maximum number of distinct flow names and work names to track
+     */
+    public WorkFlowMetrics(MetricsRegistry metricsRegistry, int maxNames) {
+        this.metricsRegistry = metricsRegistry;
+        this.maxNames = maxNames;
+    }
+
+    @Override
+    public void onEnd(WorkExecution workExecution) {
+        String name = workExecution.getWork().getName();
+        Series series = workExecution.getRoot() == workExecution ? flowSeries(name) : workSeries(name);
+        if (workExecution.getStatus() == WorkStatus.COMPLETED) {
+            series.completed.increment();
+        } else if (workExecution.getStatus() == WorkStatus.FAILED) {
+            series.failed.increment();
+        }
+        series.duration.record(workExecution.getDurationNanos());
+        if (series.queueWait != null && workExecution.isForked()) {
+            series.queueWait.record(workExecution.getQueueWaitNanos());
+        }
+    }
+
+    private Series flowSeries(String name) {
+        Series series = flows.get(name);
+        if (series == null) {
+            String key = flows.size() < maxNames ? name : OTHER;
+            series = flows.computeIfAbsent(key, flow -> new Series(
+                    metricsRegistry.counter("easyflows_flow_runs_total", "Workflow runs", "flow", flow, "status", "COMPLETED"),
+                    metricsRegistry.counter("easyflows_flow_runs_total", "Workflow runs", "flow", flow, "status", "FAILED"),
+                    metricsRegistry.histogram("easyflows_flow_duration_seconds", "Workflow run duration", "flow", flow),
+                    null));
+        }
+        return series;
+    }
+
+    private Series workSeries(String name) {
+        Series series = works.get(name);
+        if (series == null) {
+            String key = works.size() < maxNames ? name : OTHER;
+            series = works.computeIfAbsent(key, work -> new Series(
+                    metricsRegistry.counter("easyflows_work_executions_total", "Work executions", "work", work, "status", "COMPLETED"),
+                    metricsRegistry.counter("easyflows_work_executions_total", "Work executions", "work", work, "status", "FAILED"),
+                    metricsRegistry.histogram("easyflows_work_duration_seconds", "Work execution duration", "work", work),
+                    metricsRegistry.histogram("easyflows_work_queue_wait_seconds", "Time parallel work units waited for an executor thread", "work", work)));
+        }
+        return series;
+    }
+
+    private static class Series {
+
+        private final Counter completed;
+        private final Counter failed;
+        private final LatencyHistogram duration;
+        private final LatencyHistogram queueWait;
+
+        Series(Counter completed, Counter failed, LatencyHistogram duration, LatencyHistogram queueWait) {
+            this.completed = completed;
+            this.failed = failed;
+            this.duration = duration;
+            this.queueWait = queueWait;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Policy applied by {@link RateLimitedWork} and {@link BulkheadWork} when no
+ * permit is immediately available:
+ *
+ * <ul>
+ *     <li>{@link #failFast()}: return a {@link org.jeasy.flows.work.WorkStatus#FAILED} report right away</li>
+ *     <li>{@link #waitAtMost(long, TimeUnit)}: wait up to the given timeout for a permit,
+ *     then return a {@link org.jeasy.flows.work.WorkStatus#FAILED} report if none was obtained</li>
+ * </ul>
+ */
+public final class AcquirePolicy {
+
+    private static final AcquirePolicy FAIL_FAST = new AcquirePolicy(0);
+
+    private final long timeoutNanos;
+
+    private AcquirePolicy(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    /**
+     * Do not wait for a permit.
+     *
+     * @return a fail fast policy
+     */
+    public static AcquirePolicy failFast() {
+        return FAIL_FAST;
+    }
+
+    /**
+     * Wait at most the given amount of time for a permit.
+     *
+     * @param timeout to wait for a permit
+     * @param unit of the timeout
+     * @return a policy waiting at most the given timeout
+     */
+    public static AcquirePolicy waitAtMost(long timeout, TimeUnit unit) {
+        if (timeout < 0) {
+            throw new IllegalArgumentException("timeout must be positive");
+        }
+        return timeout == 0 ? FAIL_FAST : new AcquirePolicy(unit.toNanos(timeout));
+    }
+
+    /**
+     * Get the maximum time to wait for a permit.
+     *
+     * @return the timeout in nanoseconds, 0 if the policy is fail fast
+     */
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public boolean isFailFast() {
+        return timeoutNanos == 0;
+    }
+
+    @Override
+    public String toString() {
+        return isFailFast() ? "AcquirePolicy {failFast}" : "AcquirePolicy {waitAtMost=" + timeoutNanos + "ns}";
+    }
+}
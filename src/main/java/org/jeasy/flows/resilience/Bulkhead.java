@@ -0,0 +1,100 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bulkhead limits the number of concurrent executions of the works it guards.
+ *
+ * Permits are handed out by a non-fair {@link Semaphore}: acquiring and releasing
+ * an available permit is a compare-and-set, threads are only parked when they
+ * choose to wait for a permit.
+ *
+ * <strong>Bulkhead instances are thread-safe and can be shared between works,
+ * workflows and workflow runs.</strong>
+ */
+public class Bulkhead {
+
+    private final int maxConcurrentCalls;
+    private final Semaphore permits;
+
+    /**
+     * Create a new {@link Bulkhead}.
+     *
+     * @param maxConcurrentCalls maximum number of concurrent executions
+     */
+    public Bulkhead(int maxConcurrentCalls) {
+        if (maxConcurrentCalls <= 0) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be strictly positive");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.permits = new Semaphore(maxConcurrentCalls, false);
+    }
+
+    /**
+     * Acquire a permit, waiting at most the given timeout for it.
+     *
+     * @param timeoutNanos maximum time to wait for a permit
+     * @return true if a permit has been acquired, false otherwise
+     */
+    public boolean tryAcquire(long timeoutNanos) {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (timeoutNanos <= 0) {
+            return false;
+        }
+        try {
+            return permits.tryAcquire(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Release a permit previously acquired with {@link #tryAcquire(long)}.
+     */
+    public void release() {
+        permits.release();
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return "Bulkhead {" +
+                "maxConcurrentCalls=" + maxConcurrentCalls +
+                ", availablePermits=" + permits.availablePermits() +
+                '}';
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+/**
+ * A work decorator that holds a permit of a {@link Bulkhead} while calling the
+ * decorated work. If no permit can be acquired according to the
+ * {@link AcquirePolicy}, the decorated work is not called and a
+ * {@link WorkStatus#FAILED} report with a {@link PermitUnavailableException} is returned.
+ */
+public class BulkheadWork implements Work {
+
+    private final Work work;
+    private final Bulkhead bulkhead;
+    private final AcquirePolicy acquirePolicy;
+
+    /**
+     * Create a new {@link BulkheadWork}.
+     *
+     * @param work to decorate
+     * @param bulkhead to acquire permits from, can be shared with other works
+     * @param acquirePolicy to apply when no permit is available
+     */
+    public BulkheadWork(Work work, Bulkhead bulkhead, AcquirePolicy acquirePolicy) {
+        this.work = work;
+        this.bulkhead = bulkhead;
+        this.acquirePolicy = acquirePolicy;
+    }
+
+    @Override
+    public String getName() {
+        return work.getName();
+    }
+
+    @Override
+    public WorkReport call(WorkContext workContext) {
+        if (!bulkhead.tryAcquire(acquirePolicy.getTimeoutNanos())) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                    new PermitUnavailableException("Bulkhead is full for work unit '" + work.getName() + "'"));
+        }
+        try {
+            return work.call(workContext);
+        } finally {
+            bulkhead.release();
+        }
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A circuit breaker tracks the outcomes of the last calls of the works it guards
+ * in a count based sliding window and moves between three states:
+ *
+ * <ul>
+ *     <li>{@link State#CLOSED}: calls are permitted and their outcomes recorded. When the
+ *     failure rate of the window reaches the threshold, the circuit breaker opens</li>
+ *     <li>{@link State#OPEN}: calls are not permitted until the wait duration has elapsed</li>
+ *     <li>{@link State#HALF_OPEN}: a limited number of trial calls is permitted. A single
+ *     failure opens the circuit breaker again, otherwise it closes once all trial calls succeeded</li>
+ * </ul>
+ *
+ * A call is recorded as failed when its report has a {@link WorkStatus#FAILED} status,
+ * unless its error is an instance of one of the ignored error types.
+ *
+ * The state and the sliding window are only updated with atomic operations, the
+ * circuit breaker never takes a lock. Each state transition swaps the state together
+ * with the data of the new period (opening time, trial permits and successes), so a
+ * thread losing a transition race can not alter the period started by the winner.
+ *
+ * <strong>Circuit breaker instances are thread-safe and can be shared between works,
+ * workflows and workflow runs.</strong>
+ *
+ * @see CircuitBreaker.Builder
+ */
+public class CircuitBreaker {
+
+    private static final Logger LOGGER = Logger.getLogger(CircuitBreaker.class.getName());
+
+    /**
+     * Circuit breaker state.
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureRateThreshold;
+    private final int minimumNumberOfCalls;
+    private final long waitDurationInOpenStateNanos;
+    private final int permittedCallsInHalfOpenState;
+    private final List<Class<? extends Throwable>> ignoredErrors;
+
+    private final AtomicReference<Period> period = new AtomicReference<>(new Period(State.CLOSED, 0, 0));
+    private final SlidingWindow slidingWindow;
+
+    CircuitBreaker(String name, int failureRateThreshold, int slidingWindowSize, int minimumNumberOfCalls,
+                   long waitDurationInOpenStateNanos, int permittedCallsInHalfOpenState,
+                   List<Class<? extends Throwable>> ignoredErrors) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.minimumNumberOfCalls = minimumNumberOfCalls;
+        this.waitDurationInOpenStateNanos = waitDurationInOpenStateNanos;
+        this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+        this.ignoredErrors = ignoredErrors;
+        this.slidingWindow = new SlidingWindow(slidingWindowSize);
+    }
+
+    /**
+     * Check if a call is permitted in the current state. Every permitted call
+     * must be followed by a call to {@link #onResult(WorkReport)} or {@link #onError(Throwable)}.
+     *
+     * @return true if the call is permitted, false otherwise
+     */
+    public boolean tryAcquirePermission() {
+        Period current = period.get();
+        switch (current.state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - current.startedAt < waitDurationInOpenStateNanos) {
+                    return false;
+                }
+                transitionToHalfOpen(current);
+                return tryAcquireHalfOpenPermission();
+            default:
+                return tryAcquireHalfOpenPermission();
+        }
+    }
+
+    /**
+     * Record the report of a permitted call.
+     *
+     * @param workReport of the call
+     */
+    public void onResult(WorkReport workReport) {
+        record(isFailure(workReport));
+    }
+
+    /**
+     * Record an unexpected error thrown by a permitted call.
+     *
+     * @param error thrown by the call
+     */
+    public void onError(Throwable error) {
+        record(!isIgnored(error));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return period.get().state;
+    }
+
+    /**
+     * Get the failure rate of the sliding window.
+     *
+     * @return the failure rate in percent, or -1 if less than the minimum number of calls were recorded
+     */
+    public float getFailureRate() {
+        int calls = slidingWindow.getNumberOfCalls();
+        if (calls < minimumNumberOfCalls || calls == 0) {
+            return -1;
+        }
+        return slidingWindow.getNumberOfFailedCalls() * 100f / calls;
+    }
+
+    private void record(boolean failure) {
+        Period current = period.get();
+        if (current.state == State.HALF_OPEN) {
+            if (failure) {
+                transitionToOpen(current);
+            } else if (current.successes.incrementAndGet() >= permittedCallsInHalfOpenState
+                    && period.compareAndSet(current, new Period(State.CLOSED, System.nanoTime(), 0))) {
+                slidingWindow.reset();
+                LOGGER.log(Level.INFO, "Circuit breaker ''{0}'' is now CLOSED", name);
+            }
+        } else if (current.state == State.CLOSED) {
+            slidingWindow.record(failure);
+            if (failure && getFailureRate() >= failureRateThreshold) {
+                transitionToOpen(current);
+            }
+        }
+    }
+
+    private boolean isFailure(WorkReport workReport) {
+        return workReport == null
+                || (WorkStatus.FAILED.equals(workReport.getStatus()) && !isIgnored(workReport.getError()));
+    }
+
+    private boolean isIgnored(Throwable error) {
+        if (error != null) {
+            for (Class<? extends Throwable> ignoredError : ignoredErrors) {
+                if (ignoredError.isInstance(error)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private void transitionToOpen(Period from) {
+        if (period.compareAndSet(from, new Period(State.OPEN, System.nanoTime(), 0))) {
+            LOGGER.log(Level.WARNING, "Circuit breaker ''{0}'' is now OPEN", name);
+        }
+    }
+
+    private void transitionToHalfOpen(Period from) {
+        if (period.compareAndSet(from, new Period(State.HALF_OPEN, System.nanoTime(), permittedCallsInHalfOpenState))) {
+            LOGGER.log(Level.INFO, "Circuit breaker ''{0}'' is now HALF_OPEN", name);
+        }
+    }
+
+    private boolean tryAcquireHalfOpenPermission() {
+        Period current = period.get();
+        if (current.state != State.HALF_OPEN) {
+            return current.state == State.CLOSED;
+        }
+        for (;;) {
+            int permits = current.permits.get();
+            if (permits <= 0) {
+                return period.get().state == State.CLOSED;
+            }
+            if (current.permits.compareAndSet(permits, permits - 1)) {
+                return true;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "CircuitBreaker {" +
+                "name='" + name + '\'' +
+                ", state=" + getState() +
+                ", failureRate=" + getFailureRate() +
+                '}';
+    }
+
+    /*
+     * A state with the data of the period it was entered for. A new instance is created on
+     * each transition, so that a transition only succeeds from the period it was decided in.
+     */
+    private static final class Period {
+
+        private final State state;
+        private final long startedAt;
+        private final AtomicInteger permits;
+        private final AtomicInteger successes = new AtomicInteger();
+
+        Period(State state, long startedAt, int permits) {
+            this.state = state;
+            this.startedAt = startedAt;
+            this.permits = new AtomicInteger(permits);
+        }
+    }
+
+    /**
+     * Count based sliding window of call outcomes. Each slot holds 0 (empty),
+     * 1 (success) or 2 (failure); the number of calls and failures are maintained
+     * incrementally from the value replaced in the slot.
+     */
+    static class SlidingWindow {
+
+        private static final int EMPTY = 0, SUCCESS = 1, FAILURE = 2;
+
+        private final AtomicIntegerArray outcomes;
+        private final AtomicLong index = new AtomicLong();
+        private final AtomicInteger numberOfCalls = new AtomicInteger();
+        private final AtomicInteger numberOfFailedCalls = new AtomicInteger();
+
+        SlidingWindow(int size) {
+            this.outcomes = new AtomicIntegerArray(size);
+        }
+
+        void record(boolean failure) {
+            int slot = (int) (index.getAndIncrement() % outcomes.length());
+            int previous = outcomes.getAndSet(slot, failure ? FAILURE : SUCCESS);
+            if (previous == EMPTY) {
+                numberOfCalls.incrementAndGet();
+            }
+            int delta = (failure ? 1 : 0) - (previous == FAILURE ? 1 : 0);
+            if (delta != 0) {
+                numberOfFailedCalls.addAndGet(delta);
+            }
+        }
+
+        void reset() {
+            for (int i = 0; i < outcomes.length(); i++) {
+                int previous = outcomes.getAndSet(i, EMPTY);
+                if (previous != EMPTY) {
+                    numberOfCalls.decrementAndGet();
+                    if (previous == FAILURE) {
+                        numberOfFailedCalls.decrementAndGet();
+                    }
+                }
+            }
+        }
+
+        int getNumberOfCalls() {
+            return numberOfCalls.get();
+        }
+
+        int getNumberOfFailedCalls() {
+            return numberOfFailedCalls.get();
+        }
+    }
+
+    public static class Builder {
+
+        private String name;
+        private int failureRateThreshold;
+        private int slidingWindowSize;
+        private int minimumNumberOfCalls;
+        private long waitDurationInOpenStateNanos;
+        private int permittedCallsInHalfOpenState;
+        private List<Class<? extends Throwable>> ignoredErrors;
+
+        private Builder() {
+            this.name = UUID.randomUUID().toString();
+            this.failureRateThreshold = 50;
+            this.slidingWindowSize = 100;
+            this.minimumNumberOfCalls = 10;
+            this.waitDurationInOpenStateNanos = TimeUnit.SECONDS.toNanos(60);
+            this.permittedCallsInHalfOpenState = 1;
+            this.ignoredErrors = new ArrayList<>();
+        }
+
+        public static CircuitBreaker.Builder aNewCircuitBreaker() {
+            return new CircuitBreaker.Builder();
+        }
+
+        public CircuitBreaker.Builder named(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Failure rate, in percent, from which the circuit breaker opens. Defaults to 50.
+         */
+        public CircuitBreaker.Builder failureRateThreshold(int failureRateThreshold) {
+            if (failureRateThreshold <= 0 || failureRateThreshold > 100) {
+                throw new IllegalArgumentException("failureRateThreshold must be between 1 and 100");
+            }
+            this.failureRateThreshold = failureRateThreshold;
+            return this;
+        }
+
+        /**
+         * Number of last calls to compute the failure rate on. Defaults to 100.
+         */
+        public CircuitBreaker.Builder slidingWindowSize(int slidingWindowSize) {
+            if (slidingWindowSize <= 0) {
+                throw new IllegalArgumentException("slidingWindowSize must be strictly positive");
+            }
+            this.slidingWindowSize = slidingWindowSize;
+            return this;
+        }
+
+        /**
+         * Number of calls to record before the failure rate is computed. Defaults to 10.
+         */
+        public CircuitBreaker.Builder minimumNumberOfCalls(int minimumNumberOfCalls) {
+            if (minimumNumberOfCalls <= 0) {
+                throw new IllegalArgumentException("minimumNumberOfCalls must be strictly positive");
+            }
+            this.minimumNumberOfCalls = minimumNumberOfCalls;
+            return this;
+        }
+
+        /**
+         * Time to stay open before permitting trial calls. Defaults to 60 seconds.
+         */
+        public CircuitBreaker.Builder waitDurationInOpenState(long duration, TimeUnit unit) {
+            this.waitDurationInOpenStateNanos = unit.toNanos(duration);
+            return this;
+        }
+
+        /**
+         * Number of trial calls permitted in the half-open state. Defaults to 1.
+         */
+        public CircuitBreaker.Builder permittedCallsInHalfOpenState(int permittedCallsInHalfOpenState) {
+            if (permittedCallsInHalfOpenState <= 0) {
+                throw new IllegalArgumentException("permittedCallsInHalfOpenState must be strictly positive");
+            }
+            this.permittedCallsInHalfOpenState = permittedCallsInHalfOpenState;
+            return this;
+        }
+
+        /**
+         * Error types that are not recorded as failures, even if the report status is {@link WorkStatus#FAILED}.
+         */
+        @SafeVarargs
+        public final CircuitBreaker.Builder ignoreErrors(Class<? extends Throwable>... errors) {
+            this.ignoredErrors.addAll(Arrays.asList(errors));
+            return this;
+        }
+
+        public CircuitBreaker build() {
+            return new CircuitBreaker(name, failureRateThreshold, slidingWindowSize,
+                    Math.min(minimumNumberOfCalls, slidingWindowSize), waitDurationInOpenStateNanos,
+                    permittedCallsInHalfOpenState, new ArrayList<>(ignoredErrors));
+        }
+    }
+}
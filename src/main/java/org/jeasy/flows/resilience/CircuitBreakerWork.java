@@ -0,0 +1,75 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+/**
+ * A work decorator guarded by a {@link CircuitBreaker}. While the circuit breaker
+ * does not permit calls, the decorated work is not called and a
+ * {@link WorkStatus#FAILED} report with a {@link CircuitBreakerOpenException} is returned.
+ */
+public class CircuitBreakerWork implements Work {
+
+    private final Work work;
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * Create a new {@link CircuitBreakerWork}.
+     *
+     * @param work to decorate
+     * @param circuitBreaker guarding the work, can be shared with other works
+     */
+    public CircuitBreakerWork(Work work, CircuitBreaker circuitBreaker) {
+        this.work = work;
+        this.circuitBreaker = circuitBreaker;
+    }
+
+    @Override
+    public String getName() {
+        return work.getName();
+    }
+
+    @Override
+    public WorkReport call(WorkContext workContext) {
+        if (!circuitBreaker.tryAcquirePermission()) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                    new CircuitBreakerOpenException("Circuit breaker '" + circuitBreaker.getName()
+                            + "' does not permit calls to work unit '" + work.getName() + "'"));
+        }
+        WorkReport workReport;
+        try {
+            workReport = work.call(workContext);
+        } catch (RuntimeException | Error e) {
+            circuitBreaker.onError(e);
+            throw e;
+        }
+        circuitBreaker.onResult(workReport);
+        return workReport;
+    }
+}
@@ -0,0 +1,131 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A token bucket rate limiter. The bucket is refilled at a constant rate and
+ * can hold at most {@code burst} permits.
+ *
+ * The bucket state is kept in a single {@link AtomicLong} holding the theoretical
+ * time at which the bucket will be full again (generic cell rate algorithm), so
+ * acquiring a permit is a single compare-and-set and never takes a lock.
+ *
+ * <strong>Rate limiter instances are thread-safe and can be shared between works,
+ * workflows and workflow runs.</strong>
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalTime;
+
+    /**
+     * Create a new {@link RateLimiter}.
+     *
+     * @param permits number of permits granted per period
+     * @param period length of the period
+     * @param unit of the period
+     * @param burst maximum number of permits that can be acquired at once after an idle period
+     */
+    public RateLimiter(long permits, long period, TimeUnit unit, int burst) {
+        if (permits <= 0 || period <= 0) {
+            throw new IllegalArgumentException("permits and period must be strictly positive");
+        }
+        if (burst <= 0) {
+            throw new IllegalArgumentException("burst must be strictly positive");
+        }
+        this.intervalNanos = Math.max(1, unit.toNanos(period) / permits);
+        this.burstToleranceNanos = intervalNanos * (burst - 1);
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Create a new {@link RateLimiter} granting the given number of permits per
+     * second, with a burst equal to that number.
+     *
+     * @param permitsPerSecond number of permits granted per second
+     * @return a new rate limiter
+     */
+    public static RateLimiter perSecond(int permitsPerSecond) {
+        return new RateLimiter(permitsPerSecond, 1, TimeUnit.SECONDS, permitsPerSecond);
+    }
+
+    /**
+     * Acquire a permit if one is available right now.
+     *
+     * @return true if a permit has been acquired, false otherwise
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(0);
+    }
+
+    /**
+     * Acquire a permit, waiting at most the given timeout for it. The permit is
+     * reserved up front only if it will be available before the timeout expires,
+     * in which case the calling thread is parked until then.
+     *
+     * @param timeoutNanos maximum time to wait for a permit
+     * @return true if a permit has been acquired, false otherwise
+     */
+    public boolean tryAcquire(long timeoutNanos) {
+        long waitNanos;
+        for (;;) {
+            long now = System.nanoTime();
+            long current = theoreticalArrivalTime.get();
+            long tat = current - now > 0 ? current : now;
+            long next = tat + intervalNanos;
+            waitNanos = next - now - burstToleranceNanos - intervalNanos;
+            if (waitNanos > timeoutNanos) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(current, next)) {
+                break;
+            }
+        }
+        if (waitNanos > 0) {
+            long deadline = System.nanoTime() + waitNanos;
+            long remaining = waitNanos;
+            while (remaining > 0) {
+                LockSupport.parkNanos(this, remaining);
+                if (Thread.currentThread().isInterrupted()) {
+                    return false;
+                }
+                remaining = deadline - System.nanoTime();
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimiter {" +
+                "intervalNanos=" + intervalNanos +
+                ", burst=" + (burstToleranceNanos / intervalNanos + 1) +
+                '}';
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.scheduler;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.BitSet;
+
+/**
+ * A cron expression with the five classic fields: minute (0-59), hour (0-23),
+ * day of month (1-31), month (1-12) and day of week (0-7, 0 and 7 being Sunday).
+ * Each field is {@code *}, a value, a range {@code a-b}, a step {@code *}{@code /n} or
+ * {@code a-b/n}, or a comma separated list of those. As in cron, when both day fields
+ * are restricted, a day matches if either of them matches.
+ */
+public final class CronExpression {
+
+    private final String expression;
+    private final ZoneId zone;
+    private final BitSet minutes;
+    private final BitSet hours;
+    private final BitSet daysOfMonth;
+    private final BitSet months;
+    private final BitSet daysOfWeek;
+    private final boolean anyDayOfMonth;
+    private final boolean anyDayOfWeek;
+
+    private CronExpression(String expression, ZoneId zone) {
+        String[] fields = expression.trim().split("\\s+");
+        if (fields.length != 5) {
+            throw new IllegalArgumentException("Cron expression '" + expression + "' must have 5 fields");
+        }
+        this.expression = expression;
+        this.zone = zone;
+        this.minutes = parse(fields[0], 0, 59, expression);
+        this.hours = parse(fields[1], 0, 23, expression);
+        this.daysOfMonth = parse(fields[2], 1, 31, expression);
+        this.months = parse(fields[3], 1, 12, expression);
+        this.daysOfWeek = parse(fields[4], 0, 7, expression);
+        if (daysOfWeek.get(7)) {
+            daysOfWeek.set(0);
+        }
+        this.anyDayOfMonth = fields[2].startsWith("*");
+        this.anyDayOfWeek = fields[4].startsWith("*");
+    }
+
+    /**
+     * Parse a cron expression evaluated in the system time zone.
+     *
+     * @param expression to parse
+     * @return the cron expression
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static CronExpression parse(String expression) {
+        return parse(expression, ZoneId.systemDefault());
+    }
+
+    /**
+     * Parse a cron expression evaluated in the given time zone.
+     *
+     * @param expression to parse
+     * @param zone of the expression
+     * @return the cron expression
+     * @throws IllegalArgumentException if the expression is invalid
+     */
+    public static CronExpression parse(String expression, ZoneId zone) {
+        return new CronExpression(expression, zone);
+    }
+
+    /**
+     * Get the first time matching this expression strictly after the given time.
+     *
+     * @param after time to start from
+     * @return the next matching time, in the zone of this expression
+     * @throws IllegalArgumentException if no time matches within the next four years
+     */
+    public ZonedDateTime next(ZonedDateTime after) {
+        ZonedDateTime time = after.withZoneSameInstant(zone).truncatedTo(ChronoUnit.MINUTES).plusMinutes(1);
+        ZonedDateTime limit = time.plusYears(4);
+        while (time.isBefore(limit)) {
+            if (!months.get(time.getMonthValue())) {
+                time = time.withDayOfMonth(1).truncatedTo(ChronoUnit.DAYS).plusMonths(1);
+            } else if (!dayMatches(time)) {
+                time = time.truncatedTo(ChronoUnit.DAYS).plusDays(1);
+            } else if (!hours.get(time.getHour())) {
+                time = time.truncatedTo(ChronoUnit.HOURS).plusHours(1);
+            } else if (!minutes.get(time.getMinute())) {
+                time = time.plusMinutes(1);
+            } else {
+                return time;
+            }
+        }
+        throw new IllegalArgumentException("Cron expression '" + expression + "' does not match any time");
+    }
+
+    private boolean dayMatches(ZonedDateTime time) {
+        boolean dayOfMonth = daysOfMonth.get(time.getDayOfMonth());
+        boolean dayOfWeek = daysOfWeek.get(time.getDayOfWeek().getValue() % 7);
+        if (anyDayOfMonth || anyDayOfWeek) {
+            return dayOfMonth && dayOfWeek;
+        }
+        return dayOfMonth || dayOfWeek;
+    }
+
+    private static BitSet parse(String field, int min, int max, String expression) {
+        BitSet values = new BitSet(max + 1);
+        for (String part : field.split(",")) {
+            try {
+                int step = 1;
+                int slash = part.indexOf('/');
+                if (slash >= 0) {
+                    step = Integer.parseInt(part.substring(slash + 1));
+                    part = part.substring(0, slash);
+                }
+                int from;
+                int to;
+                if (part.equals("*")) {
+                    from = min;
+                    to = max;
+                } else if (part.indexOf('-') > 0) {
+                    from = Integer.parseInt(part.substring(0, part.indexOf('-')));
+                    to = Integer.parseInt(part.substring(part.indexOf('-') + 1));
+                } else {
+                    from = Integer.parseInt(part);
+                    to = slash >= 0 ? max : from;
+                }
+                if (from < min || to > max || from > to || step < 1) {
+                    throw new IllegalArgumentException("Invalid field '" + field + "' in cron expression '" + expression + "'");
+                }
+                for (int value = from; value <= to; value += step) {
+                    values.set(value);
+                }
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid field '" + field + "' in cron expression '" + expression + "'", e);
+            }
+        }
+        return values;
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
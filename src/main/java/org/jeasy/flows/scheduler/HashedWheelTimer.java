@@ -0,0 +1,226 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.scheduler;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A hashed timing wheel: timeouts are hashed by deadline into a ring of buckets, one bucket
+ * being expired per tick by a single worker thread. Adding and cancelling a timeout costs
+ * O(1), and a tick only visits the timeouts of its bucket, so a large number of timeouts
+ * can be tracked with a coarse precision of one tick.
+ *
+ * Tasks run on the worker thread and must be short, typically handing work over to an executor.
+ */
+final class HashedWheelTimer {
+
+    private static final Logger LOGGER = Logger.getLogger(HashedWheelTimer.class.getName());
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread worker;
+    private final long startNanos;
+    private volatile boolean stopped;
+
+    // accessed by the worker thread only
+    private long tick;
+
+    HashedWheelTimer(long tickDuration, TimeUnit unit, int wheelSize, ThreadFactory threadFactory) {
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickNanos = Math.max(1, unit.toNanos(tickDuration));
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.startNanos = System.nanoTime();
+        this.worker = threadFactory.newThread(this::run);
+        worker.start();
+    }
+
+    /**
+     * Schedule a task.
+     *
+     * @param task to run on the worker thread
+     * @param delayNanos delay before running the task, rounded up to the next tick
+     * @return the timeout, which can be cancelled
+     */
+    Timeout newTimeout(Runnable task, long delayNanos) {
+        if (stopped) {
+            throw new IllegalStateException("Timer has been stopped");
+        }
+        Timeout timeout = new Timeout(task, System.nanoTime() - startNanos + Math.max(0, delayNanos));
+        pending.incrementAndGet();
+        added.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return number of timeouts not expired nor cancelled yet
+     */
+    int getPendingTimeouts() {
+        return pending.get();
+    }
+
+    void stop() {
+        stopped = true;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (!stopped) {
+            long deadline = (tick + 1) * tickNanos;
+            long sleepNanos = deadline - (System.nanoTime() - startNanos);
+            if (sleepNanos > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleepNanos);
+                } catch (InterruptedException e) {
+                    if (stopped) {
+                        return;
+                    }
+                }
+                continue;
+            }
+            transferAddedTimeouts();
+            expire(wheel[(int) (tick & mask)], deadline);
+            tick++;
+        }
+    }
+
+    private void transferAddedTimeouts() {
+        Timeout timeout;
+        while ((timeout = added.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            long ticks = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (ticks - tick) / wheel.length;
+            wheel[(int) (Math.max(ticks, tick) & mask)].add(timeout);
+        }
+    }
+
+    private void expire(Bucket bucket, long deadline) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled) {
+                bucket.remove(timeout);
+            } else if (timeout.remainingRounds <= 0 && timeout.deadline <= deadline) {
+                bucket.remove(timeout);
+                if (timeout.expire()) {
+                    pending.decrementAndGet();
+                    try {
+                        timeout.task.run();
+                    } catch (Throwable e) {
+                        LOGGER.log(Level.WARNING, "Timer task failed", e);
+                    }
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    /**
+     * A scheduled task.
+     */
+    final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private Timeout previous;
+        private Timeout next;
+        private volatile boolean cancelled;
+        private volatile boolean expired;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancel the task if it has not run yet. The timeout is removed from the
+         * wheel the next time its bucket is expired.
+         */
+        synchronized void cancel() {
+            if (!cancelled && !expired) {
+                cancelled = true;
+                pending.decrementAndGet();
+            }
+        }
+
+        private synchronized boolean expire() {
+            if (cancelled) {
+                return false;
+            }
+            expired = true;
+            return true;
+        }
+    }
+
+    /**
+     * Doubly linked list of timeouts, accessed by the worker thread only.
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.previous = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.scheduler;
+
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Handle on a workflow scheduled with a {@link WorkFlowScheduler}.
+ */
+public final class ScheduledRun {
+
+    private final WorkFlow workFlow;
+    private final AtomicLong runs = new AtomicLong();
+    private final AtomicLong skippedRuns = new AtomicLong();
+    private HashedWheelTimer.Timeout timeout;
+    private boolean cancelled;
+    private volatile WorkReport lastReport;
+
+    ScheduledRun(WorkFlow workFlow) {
+        this.workFlow = workFlow;
+    }
+
+    /**
+     * Cancel future runs of the workflow. A run in progress is not interrupted.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    public WorkFlow getWorkFlow() {
+        return workFlow;
+    }
+
+    /**
+     * @return number of completed runs
+     */
+    public long getRuns() {
+        return runs.get();
+    }
+
+    /**
+     * @return number of runs skipped because a previous run of the same workflow was
+     * still in progress or the limit of concurrent runs was reached
+     */
+    public long getSkippedRuns() {
+        return skippedRuns.get();
+    }
+
+    /**
+     * @return report of the last completed run, or null if no run has completed yet
+     */
+    public WorkReport getLastReport() {
+        return lastReport;
+    }
+
+    synchronized boolean setTimeout(HashedWheelTimer.Timeout timeout) {
+        if (cancelled) {
+            timeout.cancel();
+            return false;
+        }
+        this.timeout = timeout;
+        return true;
+    }
+
+    void completed(WorkReport report) {
+        lastReport = report;
+        runs.incrementAndGet();
+    }
+
+    void skipped() {
+        skippedRuns.incrementAndGet();
+    }
+}
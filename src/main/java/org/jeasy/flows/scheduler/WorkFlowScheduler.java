@@ -0,0 +1,286 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.scheduler;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.workflow.WorkFlow;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+/**
+ * Runs workflows after a delay, at a fixed rate or according to a {@link CronExpression}.
+ *
+ * Timers are kept in a hashed timing wheel so that a very large number of scheduled
+ * workflows can be tracked at a constant cost per tick. When a timer fires, the workflow
+ * is run by the engine on the given executor service with a fresh context. A run is
+ * skipped (and counted as such in its {@link ScheduledRun}) if a previous run of the same
+ * workflow is still in progress, or if the limit of concurrent runs is reached.
+ *
+ * <strong>It is the responsibility of the caller to manage the lifecycle of the
+ * executor service.</strong>
+ *
+ * @see WorkFlowScheduler.Builder
+ */
+public class WorkFlowScheduler implements Closeable {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkFlowScheduler.class.getName());
+
+    private final WorkFlowEngine workFlowEngine;
+    private final ExecutorService executorService;
+    private final HashedWheelTimer timer;
+    private final Semaphore runPermits;
+    private final Set<WorkFlow> running = ConcurrentHashMap.newKeySet();
+
+    WorkFlowScheduler(WorkFlowEngine workFlowEngine, ExecutorService executorService,
+                      long tickDuration, TimeUnit unit, int wheelSize, int maxConcurrentRuns) {
+        this.workFlowEngine = workFlowEngine;
+        this.executorService = executorService;
+        this.runPermits = new Semaphore(maxConcurrentRuns);
+        this.timer = new HashedWheelTimer(tickDuration, unit, wheelSize, runnable -> {
+            Thread thread = new Thread(runnable, "easy-flows-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Run a workflow once after a delay.
+     *
+     * @param workFlow to run
+     * @param workContextSupplier providing the context of the run
+     * @param delay before the run
+     * @param unit of the delay
+     * @return a handle on the scheduled run
+     */
+    public ScheduledRun schedule(WorkFlow workFlow, Supplier<WorkContext> workContextSupplier, long delay, TimeUnit unit) {
+        ScheduledRun scheduledRun = new ScheduledRun(workFlow);
+        scheduledRun.setTimeout(timer.newTimeout(() -> fire(scheduledRun, workContextSupplier), unit.toNanos(delay)));
+        return scheduledRun;
+    }
+
+    /**
+     * Run a workflow periodically. Runs are due at {@code initialDelay}, then
+     * {@code initialDelay + period}, {@code initialDelay + 2 * period}, and so on,
+     * regardless of how long each run takes.
+     *
+     * @param workFlow to run
+     * @param workContextSupplier providing the context of each run
+     * @param initialDelay before the first run
+     * @param period between two runs
+     * @param unit of the delay and period
+     * @return a handle on the scheduled runs
+     */
+    public ScheduledRun scheduleAtFixedRate(WorkFlow workFlow, Supplier<WorkContext> workContextSupplier,
+                                            long initialDelay, long period, TimeUnit unit) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("period must be positive");
+        }
+        ScheduledRun scheduledRun = new ScheduledRun(workFlow);
+        long firstDeadline = System.nanoTime() + unit.toNanos(initialDelay);
+        scheduleAtFixedRate(scheduledRun, workContextSupplier, firstDeadline, unit.toNanos(period));
+        return scheduledRun;
+    }
+
+    /**
+     * Run a workflow at the times matching a cron expression.
+     *
+     * @param workFlow to run
+     * @param workContextSupplier providing the context of each run
+     * @param cronExpression of the run times
+     * @return a handle on the scheduled runs
+     */
+    public ScheduledRun schedule(WorkFlow workFlow, Supplier<WorkContext> workContextSupplier, CronExpression cronExpression) {
+        ScheduledRun scheduledRun = new ScheduledRun(workFlow);
+        scheduleCron(scheduledRun, workContextSupplier, cronExpression, ZonedDateTime.now());
+        return scheduledRun;
+    }
+
+    /**
+     * @return number of scheduled timers not fired nor cancelled yet
+     */
+    public int getPendingTimers() {
+        return timer.getPendingTimeouts();
+    }
+
+    /**
+     * Stop the scheduler. Runs in progress are not interrupted.
+     */
+    @Override
+    public void close() {
+        timer.stop();
+    }
+
+    private void scheduleAtFixedRate(ScheduledRun scheduledRun, Supplier<WorkContext> workContextSupplier,
+                                     long deadline, long periodNanos) {
+        scheduledRun.setTimeout(timer.newTimeout(() -> {
+            scheduleAtFixedRate(scheduledRun, workContextSupplier, deadline + periodNanos, periodNanos);
+            fire(scheduledRun, workContextSupplier);
+        }, deadline - System.nanoTime()));
+    }
+
+    private void scheduleCron(ScheduledRun scheduledRun, Supplier<WorkContext> workContextSupplier,
+                              CronExpression cronExpression, ZonedDateTime after) {
+        ZonedDateTime next = cronExpression.next(after);
+        long delayNanos = Duration.between(ZonedDateTime.now(), next).toNanos();
+        scheduledRun.setTimeout(timer.newTimeout(() -> {
+            scheduleCron(scheduledRun, workContextSupplier, cronExpression, next);
+            fire(scheduledRun, workContextSupplier);
+        }, delayNanos));
+    }
+
+    private void fire(ScheduledRun scheduledRun, Supplier<WorkContext> workContextSupplier) {
+        WorkFlow workFlow = scheduledRun.getWorkFlow();
+        if (!running.add(workFlow)) {
+            scheduledRun.skipped();
+            return;
+        }
+        if (!runPermits.tryAcquire()) {
+            running.remove(workFlow);
+            scheduledRun.skipped();
+            return;
+        }
+        try {
+            executorService.execute(() -> {
+                try {
+                    WorkReport report = workFlowEngine.run(workFlow, workContextSupplier.get());
+                    scheduledRun.completed(report);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Scheduled run of workflow " + workFlow.getName() + " failed", e);
+                } finally {
+                    runPermits.release();
+                    running.remove(workFlow);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            runPermits.release();
+            running.remove(workFlow);
+            scheduledRun.skipped();
+        }
+    }
+
+    public static class Builder {
+
+        private final ExecutorService executorService;
+        private WorkFlowEngine workFlowEngine;
+        private long tickDuration;
+        private TimeUnit tickUnit;
+        private int wheelSize;
+        private int maxConcurrentRuns;
+
+        private Builder(ExecutorService executorService) {
+            this.executorService = executorService;
+            this.tickDuration = 10;
+            this.tickUnit = TimeUnit.MILLISECONDS;
+            this.wheelSize = 512;
+            this.maxConcurrentRuns = Integer.MAX_VALUE;
+        }
+
+        /**
+         * Create a new scheduler builder.
+         *
+         * @param executorService on which workflows are run
+         * @return a new builder
+         */
+        public static WorkFlowScheduler.Builder aNewWorkFlowScheduler(ExecutorService executorService) {
+            return new WorkFlowScheduler.Builder(executorService);
+        }
+
+        /**
+         * Set the engine running the workflows, a default engine is used otherwise.
+         *
+         * @param workFlowEngine to run workflows
+         * @return this builder
+         */
+        public WorkFlowScheduler.Builder engine(WorkFlowEngine workFlowEngine) {
+            this.workFlowEngine = workFlowEngine;
+            return this;
+        }
+
+        /**
+         * Set the precision of the scheduler, 10 milliseconds by default.
+         *
+         * @param tickDuration duration of a tick of the timing wheel
+         * @param unit of the duration
+         * @return this builder
+         */
+        public WorkFlowScheduler.Builder tickDuration(long tickDuration, TimeUnit unit) {
+            if (tickDuration <= 0) {
+                throw new IllegalArgumentException("tickDuration must be positive");
+            }
+            this.tickDuration = tickDuration;
+            this.tickUnit = unit;
+            return this;
+        }
+
+        /**
+         * Set the number of buckets of the timing wheel (rounded up to a power of two), 512 by default.
+         * Timers due further than {@code wheelSize} ticks ahead are visited once per turn of the wheel.
+         *
+         * @param wheelSize number of buckets
+         * @return this builder
+         */
+        public WorkFlowScheduler.Builder wheelSize(int wheelSize) {
+            if (wheelSize < 1) {
+                throw new IllegalArgumentException("wheelSize must be at least 1");
+            }
+            this.wheelSize = wheelSize;
+            return this;
+        }
+
+        /**
+         * Set the maximum number of workflows running at the same time, unlimited by default.
+         * A run firing while this limit is reached is skipped.
+         *
+         * @param maxConcurrentRuns maximum number of concurrent runs
+         * @return this builder
+         */
+        public WorkFlowScheduler.Builder maxConcurrentRuns(int maxConcurrentRuns) {
+            if (maxConcurrentRuns < 1) {
+                throw new IllegalArgumentException("maxConcurrentRuns must be at least 1");
+            }
+            this.maxConcurrentRuns = maxConcurrentRuns;
+            return this;
+        }
+
+        public WorkFlowScheduler build() {
+            WorkFlowEngine engine = workFlowEngine != null ? workFlowEngine : aNewWorkFlowEngine().build();
+            return new WorkFlowScheduler(engine, executorService, tickDuration, tickUnit, wheelSize, maxConcurrentRuns);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.tracing;
+
+import org.jeasy.flows.work.WorkStatus;
+
+/**
+ * A span recorded by a {@link Tracer} for a work execution.
+ */
+public class Span {
+
+    private final long id;
+    private final long parentId;
+    private final String name;
+    private final long threadId;
+    private final String threadName;
+    private final long startNanos;
+    private final long endNanos;
+    private final WorkStatus status;
+
+    Span(long id, long parentId, String name, long threadId, String threadName,
+         long startNanos, long endNanos, WorkStatus status) {
+        this.id = id;
+        this.parentId = parentId;
+        this.name = name;
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.startNanos = startNanos;
+        this.endNanos = endNanos;
+        this.status = status;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * @return id of the parent span, 0 for the root span of a run
+     */
+    public long getParentId() {
+        return parentId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    public WorkStatus getStatus() {
+        return status;
+    }
+
+    @Override
+    public String toString() {
+        return "Span {" +
+                "id=" + id +
+                ", parentId=" + parentId +
+                ", name='" + name + '\'' +
+                ", thread='" + threadName + '\'' +
+                ", durationNanos=" + getDurationNanos() +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.tracing;
+
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkExecutionListener;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A tracer records a span for each work execution of sampled workflow runs and
+ * exports them in the Chrome trace event format, which can be loaded in
+ * {@code chrome://tracing}, Perfetto or Speedscope.
+ *
+ * Spans are recorded by the thread that executed the work in its own fixed-size
+ * ring buffer, without locks nor allocation, and the oldest spans of a thread are
+ * overwritten once its buffer is full. When a thread terminates, its buffer is dropped
+ * and its spans are kept in a single ring of the same size shared by all terminated
+ * threads, so that memory stays bounded with pools recycling their threads. The sampling
+ * decision is taken once per run, so a run is either fully traced or not at all.
+ *
+ * A tracer is enabled by registering it as a listener of the engine:
+ *
+ * <pre>
+ * Tracer tracer = aNewTracer().samplingRate(0.01).build();
+ * WorkFlowEngine engine = aNewWorkFlowEngine().workExecutionListener(tracer).build();
+ * </pre>
+ *
+ * @see Tracer.Builder
+ */
+public class Tracer implements WorkExecutionListener {
+
+    private final double samplingRate;
+    private final int bufferCapacity;
+    private final long originNanos = System.nanoTime();
+    private final Queue<SpanBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private final Deque<Span> retiredSpans = new ArrayDeque<>();
+    private final ThreadLocal<SpanBuffer> buffer = ThreadLocal.withInitial(this::newBuffer);
+
+    Tracer(double samplingRate, int bufferCapacity) {
+        this.samplingRate = samplingRate;
+        this.bufferCapacity = bufferCapacity;
+    }
+
+    @Override
+    public void onStart(WorkExecution workExecution) {
+        if (workExecution.getRoot() == workExecution) {
+            boolean sampled = samplingRate >= 1 || ThreadLocalRandom.current().nextDouble() < samplingRate;
+            workExecution.setAttachment(this, sampled);
+        }
+    }
+
+    @Override
+    public void onEnd(WorkExecution workExecution) {
+        if (Boolean.TRUE.equals(workExecution.getRoot().getAttachment(this))) {
+            buffer.get().record(workExecution);
+        }
+    }
+
+    /**
+     * Get the spans currently held in the buffers of all threads.
+     *
+     * @return recorded spans, in no particular order
+     */
+    public List<Span> getSpans() {
+        retireBuffersOfTerminatedThreads();
+        List<Span> spans = new ArrayList<>();
+        for (SpanBuffer spanBuffer : buffers) {
+            spanBuffer.drainTo(spans);
+        }
+        synchronized (retiredSpans) {
+            spans.addAll(retiredSpans);
+        }
+        return spans;
+    }
+
+    /**
+     * Write the recorded spans as a Chrome trace event JSON document. Each span
+     * is written as a complete event ({@code "ph":"X"}) with the work name, status,
+     * span id and parent span id. Timestamps are relative to the creation of the tracer.
+     *
+     * @param out to write to
+     * @throws IOException if an error occurs while writing
+     */
+    public void writeChromeTrace(Appendable out) throws IOException {
+        out.append("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[");
+        boolean first = true;
+        List<Span> spans = getSpans();
+        Map<Long, String> threadNames = new LinkedHashMap<>();
+        for (Span span : spans) {
+            threadNames.putIfAbsent(span.getThreadId(), span.getThreadName());
+        }
+        for (Map.Entry<Long, String> threadName : threadNames.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(Long.toString(threadName.getKey()))
+                    .append(",\"args\":{\"name\":");
+            appendString(out, threadName.getValue());
+            out.append("}}");
+        }
+        for (Span span : spans) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            out.append("{\"name\":");
+            appendString(out, span.getName());
+            out.append(",\"cat\":\"work\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(Long.toString(span.getThreadId()))
+                    .append(",\"ts\":").append(toMicros(span.getStartNanos() - originNanos))
+                    .append(",\"dur\":").append(toMicros(span.getEndNanos() - span.getStartNanos()))
+                    .append(",\"args\":{\"status\":\"").append(String.valueOf(span.getStatus()))
+                    .append("\",\"id\":").append(Long.toString(span.getId()))
+                    .append(",\"parent\":").append(Long.toString(span.getParentId()))
+                    .append("}}");
+        }
+        out.append("]}");
+    }
+
+    /**
+     * Discard all recorded spans.
+     */
+    public void clear() {
+        retireBuffersOfTerminatedThreads();
+        for (SpanBuffer spanBuffer : buffers) {
+            spanBuffer.clear();
+        }
+        synchronized (retiredSpans) {
+            retiredSpans.clear();
+        }
+    }
+
+    private SpanBuffer newBuffer() {
+        retireBuffersOfTerminatedThreads();
+        SpanBuffer spanBuffer = new SpanBuffer(Thread.currentThread(), bufferCapacity);
+        buffers.add(spanBuffer);
+        return spanBuffer;
+    }
+
+    /*
+     * A terminated thread does not write to its buffer anymore: its spans are moved to the
+     * ring of retired spans, by the thread which managed to remove the buffer.
+     */
+    private void retireBuffersOfTerminatedThreads() {
+        for (SpanBuffer spanBuffer : buffers) {
+            if (!spanBuffer.isThreadAlive() && buffers.remove(spanBuffer)) {
+                List<Span> spans = new ArrayList<>();
+                spanBuffer.drainTo(spans);
+                synchronized (retiredSpans) {
+                    for (Span span : spans) {
+                        if (retiredSpans.size() == bufferCapacity) {
+                            retiredSpans.poll();
+                        }
+                        retiredSpans.add(span);
+                    }
+                }
+            }
+        }
+    }
+
+    private static String toMicros(long nanos) {
+        return nanos / 1000 + "." + String.format("%03d", Math.abs(nanos % 1000));
+    }
+
+    private static void appendString(Appendable out, String value) throws IOException {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        out.append('"');
+    }
+
+    /*
+     * Single writer ring buffer. Spans are stored in parallel arrays so that recording
+     * does not allocate. The writer publishes the number of recorded spans after writing
+     * a slot; readers discard slots that may have been overwritten while they were read.
+     */
+    private static class SpanBuffer {
+
+        private final WeakReference<Thread> thread;
+        private final long threadId;
+        private final String threadName;
+        private final int capacity;
+        private final int slots;
+        private final long[] ids, parentIds, startNanos, endNanos;
+        private final String[] names;
+        private final WorkStatus[] statuses;
+        private volatile long published;
+        private volatile long cleared;
+
+        SpanBuffer(Thread thread, int capacity) {
+            this.thread = new WeakReference<>(thread);
+            this.threadId = thread.getId();
+            this.threadName = thread.getName();
+            this.capacity = capacity;
+            // one spare slot for the span being written, so that capacity spans can always be read
+            this.slots = capacity + 1;
+            this.ids = new long[slots];
+            this.parentIds = new long[slots];
+            this.startNanos = new long[slots];
+            this.endNanos = new long[slots];
+            this.names = new String[slots];
+            this.statuses = new WorkStatus[slots];
+        }
+
+        void record(WorkExecution workExecution) {
+            long sequence = published;
+            int slot = (int) (sequence % slots);
+            WorkExecution parent = workExecution.getParent();
+            ids[slot] = workExecution.getId();
+            parentIds[slot] = parent == null ? 0 : parent.getId();
+            startNanos[slot] = workExecution.getStartNanos();
+            endNanos[slot] = workExecution.getEndNanos();
+            names[slot] = workExecution.getWork().getName();
+            statuses[slot] = workExecution.getStatus();
+            published = sequence + 1;
+        }
+
+        void drainTo(List<Span> spans) {
+            long end = published;
+            long start = Math.max(Math.max(0, end - capacity), cleared);
+            List<Span> read = new ArrayList<>((int) (end - start));
+            for (long sequence = start; sequence < end; sequence++) {
+                int slot = (int) (sequence % slots);
+                read.add(new Span(ids[slot], parentIds[slot], names[slot], threadId, threadName,
+                        startNanos[slot], endNanos[slot], statuses[slot]));
+            }
+            // the writer overwrites the slot of sequence published - slots before publishing
+            long overwritten = published - slots + 1;
+            for (int i = 0; i < read.size(); i++) {
+                if (start + i >= overwritten) {
+                    spans.add(read.get(i));
+                }
+            }
+        }
+
+        void clear() {
+            cleared = published;
+        }
+
+        boolean isThreadAlive() {
+            Thread owner = thread.get();
+            return owner != null && owner.isAlive();
+        }
+    }
+
+    public static class Builder {
+
+        private double samplingRate;
+        private int bufferCapacity;
+
+        private Builder() {
+            this.samplingRate = 1;
+            this.bufferCapacity = 4096;
+        }
+
+        public static Tracer.Builder aNewTracer() {
+            return new Tracer.Builder();
+        }
+
+        /**
+         * Fraction of workflow runs to trace, between 0 and 1. Defaults to 1 (all runs).
+         */
+        public Tracer.Builder samplingRate(double samplingRate) {
+            if (samplingRate < 0 || samplingRate > 1) {
+                throw new IllegalArgumentException("samplingRate must be between 0 and 1");
+            }
+            this.samplingRate = samplingRate;
+            return this;
+        }
+
+        /**
+         * Number of spans kept per thread. Defaults to 4096.
+         */
+        public Tracer.Builder bufferCapacity(int bufferCapacity) {
+            if (bufferCapacity <= 0) {
+                throw new IllegalArgumentException("bufferCapacity must be strictly positive");
+            }
+            this.bufferCapacity = bufferCapacity;
+            return this;
+        }
+
+        public Tracer build() {
+            return new Tracer(samplingRate, bufferCapacity);
+        }
+    }
+}
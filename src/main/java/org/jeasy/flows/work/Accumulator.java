@@ -0,0 +1,128 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Kinds of primitive accumulators a work context can hold, with the way to merge
+ * the updates of one accumulator into another of the same kind.
+ */
+enum Accumulator {
+
+    LONG_SUM(LongAdder.class) {
+        @Override
+        Object create() {
+            return new LongAdder();
+        }
+
+        @Override
+        void merge(Object from, Object into) {
+            ((LongAdder) into).add(((LongAdder) from).sum());
+        }
+    },
+    DOUBLE_SUM(DoubleAdder.class) {
+        @Override
+        Object create() {
+            return new DoubleAdder();
+        }
+
+        @Override
+        void merge(Object from, Object into) {
+            ((DoubleAdder) into).add(((DoubleAdder) from).sum());
+        }
+    },
+    LONG_MAX(MaxAccumulator.class) {
+        @Override
+        Object create() {
+            return new MaxAccumulator();
+        }
+
+        @Override
+        void merge(Object from, Object into) {
+            ((LongAccumulator) into).accumulate(((LongAccumulator) from).get());
+        }
+    },
+    LONG_MIN(MinAccumulator.class) {
+        @Override
+        Object create() {
+            return new MinAccumulator();
+        }
+
+        @Override
+        void merge(Object from, Object into) {
+            ((LongAccumulator) into).accumulate(((LongAccumulator) from).get());
+        }
+    },
+    DISTINCT_COUNT(DistinctCounter.class) {
+        @Override
+        Object create() {
+            return new DistinctCounter();
+        }
+
+        @Override
+        void merge(Object from, Object into) {
+            ((DistinctCounter) into).merge((DistinctCounter) from);
+        }
+    };
+
+    private final Class<?> type;
+
+    Accumulator(Class<?> type) {
+        this.type = type;
+    }
+
+    abstract Object create();
+
+    abstract void merge(Object from, Object into);
+
+    boolean isInstance(Object value) {
+        return value != null && value.getClass() == type;
+    }
+
+    static Accumulator of(Object value) {
+        for (Accumulator accumulator : values()) {
+            if (accumulator.isInstance(value)) {
+                return accumulator;
+            }
+        }
+        return null;
+    }
+
+    static final class MaxAccumulator extends LongAccumulator {
+
+        MaxAccumulator() {
+            super(Math::max, Long.MIN_VALUE);
+        }
+    }
+
+    static final class MinAccumulator extends LongAccumulator {
+
+        MinAccumulator() {
+            super(Math::min, Long.MAX_VALUE);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A context isolating the writes of a work unit from its parent context. Reads fall
+ * through to the parent, writes (and removals) are buffered until {@link #commit()},
+ * or discarded with the overlay. The parent values read through the overlay are
+ * recorded, so {@link #isConsistent()} tells if the work unit would have read the same
+ * values if it had been called on the parent context now.
+ *
+ * Accumulators of an overlay only hold the updates made through it, which are merged
+ * into the accumulators of the parent on commit. Reading them before the commit (with
+ * {@code sum()}, {@code get()} or {@code estimate()}) gives the delta of this overlay, not the
+ * value of the parent, and these reads are not checked by {@link #isConsistent()}: a work
+ * unit called on an overlay should only update accumulators, not branch on their value.
+ *
+ * Once committed, the overlay delegates to its parent.
+ *
+ * @see WorkContext#overlay()
+ */
+public class ContextOverlay extends WorkContext {
+
+    private static final Object ABSENT = new Object();
+
+    private final WorkContext parent;
+    private final Map<String, Object> writes = new ConcurrentHashMap<>();
+    private final Set<String> binaryKeys = ConcurrentHashMap.newKeySet();
+    private final Map<String, Object> reads = new ConcurrentHashMap<>();
+    private volatile boolean enumerated;
+    private volatile boolean committed;
+
+    ContextOverlay(WorkContext parent) {
+        this.parent = parent;
+    }
+
+    @Override
+    public void put(String key, Object value) {
+        if (committed) {
+            parent.put(key, value);
+            return;
+        }
+        writes.put(key, value);
+        binaryKeys.remove(key);
+    }
+
+    @Override
+    public Object get(String key) {
+        if (committed) {
+            return parent.get(key);
+        }
+        Object value = writes.get(key);
+        if (value != null) {
+            return value == ABSENT ? null : value;
+        }
+        value = parent.get(key);
+        reads.putIfAbsent(key, value == null ? ABSENT : value);
+        return value;
+    }
+
+    @Override
+    public void remove(String key) {
+        if (committed) {
+            parent.remove(key);
+            return;
+        }
+        writes.put(key, ABSENT);
+        binaryKeys.remove(key);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * The value is handed to the {@link ValueStore} of the parent context on commit.
+     */
+    @Override
+    public void putBytes(String key, ByteBuffer value) {
+        if (committed) {
+            parent.putBytes(key, value);
+            return;
+        }
+        writes.put(key, value.asReadOnlyBuffer());
+        binaryKeys.add(key);
+    }
+
+    @Override
+    <T> T accumulator(String key, Accumulator kind) {
+        if (committed) {
+            return parent.accumulator(key, kind);
+        }
+        Object value = writes.computeIfAbsent(key, k -> kind.create());
+        if (!kind.isInstance(value)) {
+            throw new IllegalStateException("Entry '" + key + "' is not a " + kind + " accumulator");
+        }
+        @SuppressWarnings("unchecked")
+        T accumulator = (T) value;
+        return accumulator;
+    }
+
+    @Override
+    public ByteBuffer getBytes(String key) {
+        ByteBuffer value = (ByteBuffer) get(key);
+        return value == null ? null : value.duplicate();
+    }
+
+    /**
+     * Get a snapshot of the entries of the parent context, overlaid with the writes of this
+     * overlay. Since any entry may have been read, an overlay enumerated before being committed
+     * is not {@link #isConsistent() consistent}.
+     *
+     * @return the entries visible through this overlay
+     */
+    @Override
+    public Set<Map.Entry<String, Object>> getEntrySet() {
+        if (committed) {
+            return parent.getEntrySet();
+        }
+        enumerated = true;
+        Map<String, Object> entries = new HashMap<>();
+        for (Map.Entry<String, Object> entry : parent.getEntrySet()) {
+            entries.put(entry.getKey(), entry.getValue());
+        }
+        for (Map.Entry<String, Object> write : writes.entrySet()) {
+            if (write.getValue() == ABSENT) {
+                entries.remove(write.getKey());
+            } else {
+                entries.put(write.getKey(), write.getValue());
+            }
+        }
+        return Collections.unmodifiableMap(entries).entrySet();
+    }
+
+    @Override
+    public void release() {
+        if (committed) {
+            parent.release();
+        }
+    }
+
+    /**
+     * Check that the parent values read through this overlay have not changed since.
+     *
+     * @return true if the parent context still holds the values read through this overlay
+     */
+    public boolean isConsistent() {
+        if (enumerated) {
+            return false;
+        }
+        for (Map.Entry<String, Object> read : reads.entrySet()) {
+            Object value = parent.get(read.getKey());
+            if ((value == null ? ABSENT : value) != read.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Apply the writes of this overlay to its parent context. The overlay then delegates to its parent.
+     */
+    public void commit() {
+        if (committed) {
+            return;
+        }
+        committed = true;
+        for (Map.Entry<String, Object> write : writes.entrySet()) {
+            String key = write.getKey();
+            Object value = write.getValue();
+            Accumulator kind = Accumulator.of(value);
+            if (kind != null) {
+                kind.merge(value, parent.accumulator(key, kind));
+            } else if (value == ABSENT) {
+                parent.remove(key);
+            } else if (binaryKeys.contains(key)) {
+                parent.putBytes(key, (ByteBuffer) value);
+            } else {
+                parent.put(key, value);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "overlay=" + writes + ", " + parent;
+    }
+}
@@ -28,7 +28,7 @@ package org.jeasy.flows.work;
  *
  * @author Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
  */
-public class DefaultWorkReport implements WorkReport {
+public class DefaultWorkReport extends AbstractWorkReport {
 
     private WorkStatus status;
     private WorkContext workContext;
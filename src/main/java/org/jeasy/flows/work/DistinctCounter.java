@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Lock-free approximate count of distinct values (a HyperLogLog sketch of 2048 registers,
+ * with a standard error of about 2%). Values are hashed, so adding a value never allocates.
+ *
+ * @see WorkContext#distinctCounter(String)
+ */
+public class DistinctCounter {
+
+    private static final int PRECISION = 11;
+    private static final int REGISTERS = 1 << PRECISION;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final AtomicIntegerArray registers = new AtomicIntegerArray(REGISTERS);
+
+    /**
+     * Add a value.
+     *
+     * @param value to count
+     */
+    public void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        int rank = Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1;
+        update(index, rank);
+    }
+
+    /**
+     * Add a value, identified by its hash code.
+     *
+     * @param value to count
+     */
+    public void add(Object value) {
+        add(value.hashCode());
+    }
+
+    /**
+     * Add the values counted by another counter.
+     *
+     * @param other counter to merge in this one
+     */
+    public void merge(DistinctCounter other) {
+        for (int index = 0; index < REGISTERS; index++) {
+            update(index, other.registers.get(index));
+        }
+    }
+
+    /**
+     * Estimate the number of distinct values added so far.
+     *
+     * @return the estimated count
+     */
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (int index = 0; index < REGISTERS; index++) {
+            int rank = registers.get(index);
+            sum += 1.0 / (1L << rank);
+            if (rank == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+        if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+            estimate = REGISTERS * Math.log((double) REGISTERS / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    private void update(int index, int rank) {
+        int current = registers.get(index);
+        while (rank > current && !registers.compareAndSet(index, current, rank)) {
+            current = registers.get(index);
+        }
+    }
+
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return String.valueOf(estimate());
+    }
+}
@@ -37,6 +37,11 @@ public class NoOpWork implements Work {
         return UUID.randomUUID().toString();
     }
 
+    @Override
+    public boolean isSideEffectFree() {
+        return true;
+    }
+
     @Override
     public WorkReport call(WorkContext workContext) {
         return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
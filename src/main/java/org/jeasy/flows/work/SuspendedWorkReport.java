@@ -0,0 +1,166 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.util.Arrays;
+
+/**
+ * Report of a unit of work suspending its run until an external signal arrives.
+ *
+ * A work unit waiting for a callback (an approval, a webhook, a file, etc) returns
+ * {@code SuspendedWorkReport.suspend("approval-42", workContext)} instead of blocking its
+ * thread. Enclosing sequential and conditional flows record their position in the report
+ * while it goes up to the engine, which parks the run under the correlation key and
+ * releases the thread. The run is resumed right after the suspended work unit when
+ * {@link org.jeasy.flows.engine.WorkFlowEngine#signal(String, Object)} is called with
+ * the same key.
+ *
+ * Only work units enclosed (directly or not) in sequential and conditional flows can
+ * suspend a run. A request triggering the signal should be sent from the
+ * {@link #onSuspended(Runnable)} callback, which runs once the run has been parked,
+ * so that the signal can not arrive before the engine is ready to receive it.
+ */
+public class SuspendedWorkReport extends AbstractWorkReport {
+
+    private static final int[] ROOT = new int[0];
+
+    private final String correlationKey;
+    private final String signalKey;
+    private final WorkContext workContext;
+    private final int[] path;
+    private Runnable onSuspended;
+
+    private SuspendedWorkReport(String correlationKey, String signalKey, WorkContext workContext, int[] path, Runnable onSuspended) {
+        this.correlationKey = correlationKey;
+        this.signalKey = signalKey;
+        this.workContext = workContext;
+        this.path = path;
+        this.onSuspended = onSuspended;
+    }
+
+    /**
+     * Suspend the run until a signal with the given correlation key is delivered.
+     *
+     * @param correlationKey of the signal resuming the run
+     * @param workContext of the run
+     * @return the report of the suspended work unit
+     */
+    public static SuspendedWorkReport suspend(String correlationKey, WorkContext workContext) {
+        return suspend(correlationKey, null, workContext);
+    }
+
+    /**
+     * Suspend the run until a signal with the given correlation key is delivered. The
+     * payload of the signal is put in the context under the given key before resuming.
+     *
+     * @param correlationKey of the signal resuming the run
+     * @param signalKey context key of the signal payload
+     * @param workContext of the run
+     * @return the report of the suspended work unit
+     */
+    public static SuspendedWorkReport suspend(String correlationKey, String signalKey, WorkContext workContext) {
+        if (correlationKey == null) {
+            throw new IllegalArgumentException("correlationKey must not be null");
+        }
+        return new SuspendedWorkReport(correlationKey, signalKey, workContext, ROOT, null);
+    }
+
+    /**
+     * Set a callback run by the engine once the run has been parked, typically
+     * sending the request whose answer will be signalled.
+     *
+     * @param onSuspended callback
+     * @return this report
+     */
+    public SuspendedWorkReport onSuspended(Runnable onSuspended) {
+        this.onSuspended = onSuspended;
+        return this;
+    }
+
+    /**
+     * Create the report of a flow enclosing the suspended work unit.
+     *
+     * @param position of the child, of the flow, whose run has been suspended
+     * @return the report of the flow
+     */
+    public SuspendedWorkReport enclosedBy(int position) {
+        int[] enclosingPath = new int[path.length + 1];
+        enclosingPath[0] = position;
+        System.arraycopy(path, 0, enclosingPath, 1, path.length);
+        return new SuspendedWorkReport(correlationKey, signalKey, workContext, enclosingPath, onSuspended);
+    }
+
+    /**
+     * Get the position at which the flow at the given depth has been suspended.
+     *
+     * @param depth of the flow, 0 being the flow run by the engine
+     * @return position of the child whose run has been suspended
+     */
+    public int getPosition(int depth) {
+        return path[depth];
+    }
+
+    /**
+     * @return number of flows enclosing the suspended work unit
+     */
+    public int getDepth() {
+        return path.length;
+    }
+
+    public String getCorrelationKey() {
+        return correlationKey;
+    }
+
+    public String getSignalKey() {
+        return signalKey;
+    }
+
+    public Runnable getOnSuspended() {
+        return onSuspended;
+    }
+
+    @Override
+    public WorkStatus getStatus() {
+        return WorkStatus.SUSPENDED;
+    }
+
+    @Override
+    public Throwable getError() {
+        return null;
+    }
+
+    @Override
+    public WorkContext getWorkContext() {
+        return workContext;
+    }
+
+    @Override
+    public String toString() {
+        return "SuspendedWorkReport {" +
+                "correlationKey=" + correlationKey +
+                ", path=" + Arrays.toString(path) +
+                ", context=" + workContext +
+                '}';
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Storage of large binary values of {@link WorkContext}s, to keep multi-megabyte payloads
+ * out of the heap. Values smaller than a threshold stay on the heap. Larger values are copied
+ * to direct buffers as long as the off-heap budget allows, then to memory-mapped files in a
+ * spill directory if one is configured, otherwise they stay on the heap.
+ *
+ * A store is meant to be shared by the contexts of many runs, the budget bounds the
+ * off-heap memory held by all of them. Memory of a value is accounted until its context
+ * entry is replaced or removed, or its context is {@link WorkContext#release() released};
+ * views handed out before stay valid, the memory being freed when they are collected.
+ * Contexts are not released by the engine, see {@link WorkContext#release()}.
+ *
+ * @see WorkContext#putBytes(String, ByteBuffer)
+ */
+public class ValueStore {
+
+    private static final Logger LOGGER = Logger.getLogger(ValueStore.class.getName());
+
+    private final int offHeapThreshold;
+    private final long offHeapBudget;
+    private final Path spillDirectory;
+    private final AtomicLong offHeapBytes = new AtomicLong();
+    private final AtomicLong mappedBytes = new AtomicLong();
+
+    ValueStore(int offHeapThreshold, long offHeapBudget, Path spillDirectory) {
+        this.offHeapThreshold = offHeapThreshold;
+        this.offHeapBudget = offHeapBudget;
+        this.spillDirectory = spillDirectory;
+    }
+
+    /**
+     * @return bytes of the values held in direct buffers
+     */
+    public long getOffHeapBytes() {
+        return offHeapBytes.get();
+    }
+
+    /**
+     * @return bytes of the values held in memory-mapped files
+     */
+    public long getMappedBytes() {
+        return mappedBytes.get();
+    }
+
+    /**
+     * Store a value, from its position to its limit.
+     *
+     * @return the allocation holding a copy of the value, or null if the value stays on the heap
+     */
+    Allocation store(ByteBuffer value) {
+        int size = value.remaining();
+        if (size < offHeapThreshold) {
+            return null;
+        }
+        if (reserve(size)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(size);
+            buffer.put(value.duplicate()).flip();
+            return new Allocation(this, buffer.asReadOnlyBuffer(), size, null);
+        }
+        if (spillDirectory != null) {
+            try {
+                return spill(value, size);
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Unable to spill a value of " + size + " bytes to " + spillDirectory, e);
+            }
+        }
+        return null;
+    }
+
+    private boolean reserve(int size) {
+        long used;
+        do {
+            used = offHeapBytes.get();
+            if (used + size > offHeapBudget) {
+                return false;
+            }
+        } while (!offHeapBytes.compareAndSet(used, used + size));
+        return true;
+    }
+
+    private Allocation spill(ByteBuffer value, int size) throws IOException {
+        Path file = Files.createTempFile(spillDirectory, "easy-flows-", ".value");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer source = value.duplicate();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            mappedBytes.addAndGet(size);
+            return new Allocation(this, buffer, size, file);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    void release(Allocation allocation) {
+        if (allocation.file == null) {
+            offHeapBytes.addAndGet(-allocation.size);
+            return;
+        }
+        mappedBytes.addAndGet(-allocation.size);
+        try {
+            // the mapping stays valid after the file is deleted
+            Files.deleteIfExists(allocation.file);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Unable to delete spill file " + allocation.file, e);
+        }
+    }
+
+    /**
+     * A value held off-heap or in a memory-mapped file.
+     */
+    static final class Allocation {
+
+        private final ValueStore valueStore;
+        private final ByteBuffer buffer;
+        private final int size;
+        private final Path file;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Allocation(ValueStore valueStore, ByteBuffer buffer, int size, Path file) {
+            this.valueStore = valueStore;
+            this.buffer = buffer;
+            this.size = size;
+            this.file = file;
+        }
+
+        ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        void release() {
+            if (released.compareAndSet(false, true)) {
+                valueStore.release(this);
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private int offHeapThreshold;
+        private long offHeapBudget;
+        private Path spillDirectory;
+
+        private Builder() {
+            this.offHeapThreshold = 64 * 1024;
+            this.offHeapBudget = 64L * 1024 * 1024;
+        }
+
+        public static ValueStore.Builder aNewValueStore() {
+            return new ValueStore.Builder();
+        }
+
+        /**
+         * Size from which values are moved out of the heap, defaults to 64 KiB.
+         *
+         * @param bytes threshold in bytes
+         * @return this builder
+         */
+        public ValueStore.Builder offHeapThreshold(int bytes) {
+            this.offHeapThreshold = bytes;
+            return this;
+        }
+
+        /**
+         * Maximum number of bytes held in direct buffers, defaults to 64 MiB.
+         *
+         * @param bytes budget in bytes
+         * @return this builder
+         */
+        public ValueStore.Builder offHeapBudget(long bytes) {
+            this.offHeapBudget = bytes;
+            return this;
+        }
+
+        /**
+         * Directory of the memory-mapped files holding values that do not fit in the
+         * off-heap budget. Without spill directory, such values stay on the heap.
+         *
+         * @param spillDirectory an existing directory
+         * @return this builder
+         */
+        public ValueStore.Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        public ValueStore build() {
+            return new ValueStore(offHeapThreshold, offHeapBudget, spillDirectory);
+        }
+    }
+}
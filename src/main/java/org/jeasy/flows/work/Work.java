@@ -49,6 +49,17 @@ public interface Work {
         return UUID.randomUUID().toString();
     }
 
+    /**
+     * Tell if this unit of work is free of side effects other than writes to its context,
+     * so it can be called speculatively on a {@link ContextOverlay} and its execution discarded.
+     *
+     * @return true if this unit of work is side-effect-free, false by default
+     * @see SideEffectFreeWork
+     */
+    default boolean isSideEffectFree() {
+        return false;
+    }
+
     /**
      * Execute the unit of work and return its report. Implementations are required
      * to catch any checked or unchecked exceptions and return a {@link WorkReport} instance
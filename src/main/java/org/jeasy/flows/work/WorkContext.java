@@ -23,14 +23,25 @@
  */
 package org.jeasy.flows.work;
 
+import java.nio.ByteBuffer;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Work execution context. This can be used to pass initial parameters to the
  * workflow and share data between work units.
  * 
+ * Large binary values can be put with {@link #putBytes(String, ByteBuffer)} in a context
+ * created with a {@link ValueStore}, to keep them out of the heap.
+ * 
+ * Counts, sums and extremes shared by parallel work units can be kept in primitive accumulators,
+ * like {@link #longAdder(String)}, updated without boxing nor contention.
+ * 
  * <strong>Work context instances are thread-safe.</strong>
  * 
  * @author Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
@@ -38,19 +49,222 @@ import java.util.concurrent.ConcurrentHashMap;
 public class WorkContext {
 	
 	private Map<String, Object> context = new ConcurrentHashMap<>();
+	private final ValueStore valueStore;
+	private final Map<String, ValueStore.Allocation> allocations;
+
+	public WorkContext() {
+		this(null);
+	}
+
+	/**
+	 * Create a context storing large binary values in the given store.
+	 *
+	 * @param valueStore to use, can be shared between contexts
+	 */
+	public WorkContext(ValueStore valueStore) {
+		this.valueStore = valueStore;
+		this.allocations = valueStore == null ? null : new ConcurrentHashMap<>();
+	}
 
 	public void put(String key, Object value) {
-		context.put(key, value);
+		if (allocations == null) {
+			context.put(key, value);
+			return;
+		}
+		Objects.requireNonNull(value);
+		context.compute(key, (k, previous) -> {
+			release(k);
+			return value;
+		});
 	}
 
 	public Object get(String key) {
 		return context.get(key);
 	}
+
+	/**
+	 * Remove an entry, releasing the memory of a binary value.
+	 *
+	 * @param key of the entry
+	 */
+	public void remove(String key) {
+		if (allocations == null) {
+			context.remove(key);
+			return;
+		}
+		context.compute(key, (k, previous) -> {
+			release(k);
+			return null;
+		});
+	}
+
+	/**
+	 * Put a binary value, from its position to its limit. Values larger than the threshold
+	 * of the {@link ValueStore} of this context are copied out of the heap, smaller values
+	 * (or all values without store) are kept as a read-only view of the given buffer,
+	 * which must not be modified afterwards.
+	 *
+	 * @param key of the entry
+	 * @param value to put
+	 */
+	public void putBytes(String key, ByteBuffer value) {
+		ValueStore.Allocation allocation = valueStore == null ? null : valueStore.store(value);
+		if (allocation == null) {
+			put(key, value.asReadOnlyBuffer());
+			return;
+		}
+		context.compute(key, (k, previous) -> {
+			release(k);
+			allocations.put(k, allocation);
+			return allocation.getBuffer();
+		});
+	}
+
+	/**
+	 * Get a binary value put with {@link #putBytes(String, ByteBuffer)}.
+	 *
+	 * @param key of the entry
+	 * @return a read-only view of the value, with its own position and limit, or null if there is no such entry
+	 * @throws IllegalStateException if the entry is not a binary value
+	 */
+	public ByteBuffer getBytes(String key) {
+		Object value = context.get(key);
+		if (value != null && !(value instanceof ByteBuffer)) {
+			throw new IllegalStateException("Entry '" + key + "' is not a binary value");
+		}
+		return value == null ? null : ((ByteBuffer) value).duplicate();
+	}
+
+	/**
+	 * Release the memory held by the binary values of this context in its {@link ValueStore}.
+	 * Entries stay readable, until they are collected.
+	 *
+	 * <strong>The engine does not release contexts:</strong> the caller must release a context
+	 * holding binary values once it is done with it, otherwise their memory stays accounted in
+	 * the budget of the store, and further values are spilled to memory-mapped files.
+	 */
+	public void release() {
+		if (allocations != null) {
+			for (String key : allocations.keySet()) {
+				context.compute(key, (k, value) -> {
+					release(k);
+					return value;
+				});
+			}
+		}
+	}
+
+	/*
+	 * Called with the entry of the key locked, so that its value and allocation are swapped together.
+	 */
+	private void release(String key) {
+		if (allocations != null) {
+			ValueStore.Allocation allocation = allocations.remove(key);
+			if (allocation != null) {
+				allocation.release();
+			}
+		}
+	}
 	
 	public Set<Map.Entry<String, Object>> getEntrySet() {
 		return context.entrySet();
 	}
 
+	/**
+	 * Get the sum accumulator of the given key, creating it if needed.
+	 *
+	 * @param key of the entry
+	 * @return the accumulator of the entry
+	 * @throws IllegalStateException if the entry holds another kind of value
+	 */
+	public LongAdder longAdder(String key) {
+		return accumulator(key, Accumulator.LONG_SUM);
+	}
+
+	/**
+	 * Get the floating point sum accumulator of the given key, creating it if needed.
+	 *
+	 * @param key of the entry
+	 * @return the accumulator of the entry
+	 * @throws IllegalStateException if the entry holds another kind of value
+	 */
+	public DoubleAdder doubleAdder(String key) {
+		return accumulator(key, Accumulator.DOUBLE_SUM);
+	}
+
+	/**
+	 * Get the maximum accumulator of the given key, creating it if needed.
+	 * Its value is {@link Long#MIN_VALUE} until a value is accumulated.
+	 *
+	 * @param key of the entry
+	 * @return the accumulator of the entry
+	 * @throws IllegalStateException if the entry holds another kind of value
+	 */
+	public LongAccumulator longMax(String key) {
+		return accumulator(key, Accumulator.LONG_MAX);
+	}
+
+	/**
+	 * Get the minimum accumulator of the given key, creating it if needed.
+	 * Its value is {@link Long#MAX_VALUE} until a value is accumulated.
+	 *
+	 * @param key of the entry
+	 * @return the accumulator of the entry
+	 * @throws IllegalStateException if the entry holds another kind of value
+	 */
+	public LongAccumulator longMin(String key) {
+		return accumulator(key, Accumulator.LONG_MIN);
+	}
+
+	/**
+	 * Get the distinct values counter of the given key, creating it if needed.
+	 *
+	 * @param key of the entry
+	 * @return the counter of the entry
+	 * @throws IllegalStateException if the entry holds another kind of value
+	 */
+	public DistinctCounter distinctCounter(String key) {
+		return accumulator(key, Accumulator.DISTINCT_COUNT);
+	}
+
+	@SuppressWarnings("unchecked")
+	<T> T accumulator(String key, Accumulator kind) {
+		Object value = context.get(key); // avoids locking the bin of an existing entry
+		if (value == null) {
+			value = context.computeIfAbsent(key, k -> kind.create());
+		}
+		if (!kind.isInstance(value)) {
+			throw new IllegalStateException("Entry '" + key + "' is not a " + kind + " accumulator");
+		}
+		return (T) value;
+	}
+
+	/**
+	 * Copy the entries of another context into this one. Accumulators are merged
+	 * into the accumulators of this context, other entries are replaced.
+	 *
+	 * @param other context to merge into this one
+	 */
+	public void merge(WorkContext other) {
+		for (Map.Entry<String, Object> entry : other.getEntrySet()) {
+			Accumulator kind = Accumulator.of(entry.getValue());
+			if (kind == null) {
+				put(entry.getKey(), entry.getValue());
+			} else {
+				kind.merge(entry.getValue(), accumulator(entry.getKey(), kind));
+			}
+		}
+	}
+
+	/**
+	 * Create an overlay of this context, buffering the writes of a work unit until they are committed.
+	 *
+	 * @return a new overlay of this context
+	 */
+	public ContextOverlay overlay() {
+		return new ContextOverlay(this);
+	}
+
 	@Override
 	public String toString() {
 		return "context=" + context + '}';
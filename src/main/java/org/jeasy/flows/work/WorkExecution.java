@@ -0,0 +1,423 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A single execution of a work unit within an observed workflow run.
+ *
+ * Built-in flows call their work units through {@link #call(Work, WorkContext)} (or
+ * {@link #fork(Work, WorkContext)} for work units executed on another thread). When
+ * the current thread is not executing an observed run, this is a plain call to
+ * {@link Work#call(WorkContext)}. Otherwise, an execution is created as a child of the
+ * current one and the {@link WorkExecutionListener}s of the run are notified of it.
+ *
+ * Custom flows should call their work units the same way to make them observable.
+ *
+ * When the engine records executions, each execution keeps its children, forming
+ * the execution tree of the run, and is attached to the report returned by its work
+ * (see {@link WorkReport#getWorkExecution()}).
+ */
+public final class WorkExecution {
+
+    private static final Logger LOGGER = Logger.getLogger(WorkExecution.class.getName());
+
+    private static final AtomicLong IDS = new AtomicLong();
+    private static final ThreadLocal<WorkExecution> CURRENT = new ThreadLocal<>();
+    private static final WorkExecutionListener[] NO_LISTENERS = new WorkExecutionListener[0];
+
+    /*
+     * Set once the first observed run is started, so that unobserved applications
+     * never pay for the thread local lookup.
+     */
+    private static volatile boolean observed;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<WorkExecution, Queue> CHILDREN =
+            AtomicReferenceFieldUpdater.newUpdater(WorkExecution.class, Queue.class, "children");
+
+    private final long id;
+    private final Work work;
+    private final WorkExecution parent;
+    private final WorkExecution root;
+    private final WorkExecutionListener[] listeners;
+    private final boolean recording;
+    private volatile Queue<WorkExecution> children; // created on first child, most executions are leaves
+    private final long submittedNanos;
+    private final boolean forked;
+    private final int iteration;
+    private Object[] attachments;
+    private Thread thread;
+    private long startNanos;
+    private long endNanos;
+    private WorkReport workReport;
+    private Throwable thrown;
+
+    private WorkExecution(Work work, WorkExecution parent, long submittedNanos, boolean forked, int iteration) {
+        this(work, parent, parent.listeners, parent.recording, submittedNanos, forked, iteration);
+    }
+
+    private WorkExecution(Work work, WorkExecution parent, WorkExecutionListener[] listeners, boolean recording,
+                          long submittedNanos, boolean forked, int iteration) {
+        this.id = IDS.incrementAndGet();
+        this.work = work;
+        this.parent = parent;
+        this.root = parent == null || parent.listeners != listeners ? this : parent.root;
+        this.listeners = listeners;
+        this.recording = recording;
+        this.submittedNanos = submittedNanos;
+        this.forked = forked;
+        this.iteration = iteration;
+    }
+
+    /**
+     * Call the given work unit as a child of the current execution, if any.
+     *
+     * @param work to call
+     * @param workContext in which the work is called
+     * @return the report of the work
+     */
+    public static WorkReport call(Work work, WorkContext workContext) {
+        if (!observed) {
+            return work.call(workContext);
+        }
+        WorkExecution parent = CURRENT.get();
+        if (parent == null) {
+            return work.call(workContext);
+        }
+        return new WorkExecution(work, parent, System.nanoTime(), false, 0).execute(workContext);
+    }
+
+    /**
+     * Call the given work unit as a child of the current execution, if any, recording
+     * the given iteration number. Used by flows executing the same work unit repeatedly.
+     *
+     * @param work to call
+     * @param workContext in which the work is called
+     * @param iteration number of the call, starting at 1
+     * @return the report of the work
+     */
+    public static WorkReport call(Work work, WorkContext workContext, int iteration) {
+        if (!observed) {
+            return work.call(workContext);
+        }
+        WorkExecution parent = CURRENT.get();
+        if (parent == null) {
+            return work.call(workContext);
+        }
+        return new WorkExecution(work, parent, System.nanoTime(), false, iteration).execute(workContext);
+    }
+
+    /**
+     * Call the given work unit as the root of an observed run, notifying the given listeners.
+     *
+     * @param work to call
+     * @param workContext in which the work is called
+     * @param listeners to notify of the executions of the run
+     * @return the report of the work
+     */
+    public static WorkReport call(Work work, WorkContext workContext, List<WorkExecutionListener> listeners) {
+        return call(work, workContext, listeners, false);
+    }
+
+    /**
+     * Call the given work unit as the root of an observed run, notifying the given listeners
+     * and optionally recording the execution tree of the run.
+     *
+     * @param work to call
+     * @param workContext in which the work is called
+     * @param listeners to notify of the executions of the run
+     * @param recording true to record the execution tree of the run
+     * @return the report of the work
+     */
+    public static WorkReport call(Work work, WorkContext workContext, List<WorkExecutionListener> listeners, boolean recording) {
+        if (listeners.isEmpty() && !recording) {
+            return call(work, workContext);
+        }
+        observed = true;
+        WorkExecution parent = CURRENT.get();
+        WorkExecutionListener[] runListeners = listeners.toArray(NO_LISTENERS);
+        return new WorkExecution(work, parent, runListeners, recording, System.nanoTime(), false, 0).execute(workContext);
+    }
+
+    /**
+     * Create a task calling the given work unit as a child of the current execution,
+     * to be submitted to an executor. The time spent between the creation of the task
+     * and its execution is recorded as queue wait.
+     *
+     * @param work to call
+     * @param workContext in which the work is called
+     * @return a task calling the work
+     */
+    public static Callable<WorkReport> fork(Work work, WorkContext workContext) {
+        WorkExecution parent = observed ? CURRENT.get() : null;
+        if (parent == null) {
+            return () -> work.call(workContext);
+        }
+        long submittedNanos = System.nanoTime();
+        return () -> new WorkExecution(work, parent, submittedNanos, true, 0).execute(workContext);
+    }
+
+    /**
+     * Get the execution running on the current thread.
+     *
+     * @return the current execution, or null if the current thread is not executing an observed run
+     */
+    public static WorkExecution current() {
+        return observed ? CURRENT.get() : null;
+    }
+
+    private WorkReport execute(WorkContext workContext) {
+        WorkExecution previous = CURRENT.get();
+        CURRENT.set(this);
+        thread = Thread.currentThread();
+        startNanos = System.nanoTime();
+        if (recording && parent != null && parent.recording) {
+            parent.addChild(this);
+        }
+        for (WorkExecutionListener listener : listeners) {
+            try {
+                listener.onStart(this);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Unable to notify listener of the start of work unit '" + work.getName() + "'", e);
+            }
+        }
+        try {
+            workReport = work.call(workContext);
+            if (recording && workReport instanceof AbstractWorkReport) {
+                ((AbstractWorkReport) workReport).setWorkExecution(this);
+            }
+            return workReport;
+        } catch (RuntimeException | Error e) {
+            thrown = e;
+            throw e;
+        } finally {
+            endNanos = System.nanoTime();
+            for (WorkExecutionListener listener : listeners) {
+                try {
+                    listener.onEnd(this);
+                } catch (RuntimeException e) {
+                    LOGGER.log(Level.WARNING, "Unable to notify listener of the end of work unit '" + work.getName() + "'", e);
+                }
+            }
+            // attachments of a child are not needed once listeners are notified, dropping
+            // them keeps recorded execution trees light
+            if (root != this) {
+                attachments = null;
+            }
+            if (previous == null) {
+                CURRENT.remove();
+            } else {
+                CURRENT.set(previous);
+            }
+        }
+    }
+
+    /**
+     * @return unique id of this execution
+     */
+    public long getId() {
+        return id;
+    }
+
+    public Work getWork() {
+        return work;
+    }
+
+    /**
+     * @return the execution of the enclosing flow, or null if this is the root of the run
+     */
+    public WorkExecution getParent() {
+        return parent;
+    }
+
+    /**
+     * @return the execution of the workflow run by the engine, shared by all executions notifying the same listeners
+     */
+    public WorkExecution getRoot() {
+        return root;
+    }
+
+    /**
+     * @return true if the work was submitted to an executor by a parallel flow
+     */
+    public boolean isForked() {
+        return forked;
+    }
+
+    /**
+     * Get the executions of the work units called by this one, in the order they started.
+     * Children are only recorded when the engine records executions.
+     *
+     * @return the children of this execution, empty if executions are not recorded
+     */
+    public List<WorkExecution> getChildren() {
+        return children == null ? Collections.emptyList() : new ArrayList<>(children);
+    }
+
+    /**
+     * @return iteration number of a repeated work, starting at 1, or 0 if the work is not repeated
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * @return the thread executing the work
+     */
+    public Thread getThread() {
+        return thread;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the work was submitted to an executor, or started if it was not forked
+     */
+    public long getSubmittedNanos() {
+        return submittedNanos;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the work started
+     */
+    public long getStartNanos() {
+        return startNanos;
+    }
+
+    /**
+     * @return {@link System#nanoTime()} when the work ended, 0 if it is still running
+     */
+    public long getEndNanos() {
+        return endNanos;
+    }
+
+    /**
+     * @return time spent waiting for an executor thread, in nanoseconds
+     */
+    public long getQueueWaitNanos() {
+        return startNanos - submittedNanos;
+    }
+
+    /**
+     * @return time spent executing the work, in nanoseconds
+     */
+    public long getDurationNanos() {
+        return endNanos - startNanos;
+    }
+
+    /**
+     * @return the report of the work, null if it is still running or if it has thrown an exception
+     */
+    public WorkReport getWorkReport() {
+        return workReport;
+    }
+
+    /**
+     * Get the status of the work. A work that has thrown an exception or returned
+     * no report is considered as failed.
+     *
+     * @return the status of the work, null if it is still running
+     */
+    public WorkStatus getStatus() {
+        if (endNanos == 0) {
+            return null;
+        }
+        return workReport == null || workReport.getStatus() == null ? WorkStatus.FAILED : workReport.getStatus();
+    }
+
+    /**
+     * @return the error of the work report, or the exception thrown by the work
+     */
+    public Throwable getError() {
+        return thrown != null ? thrown : workReport == null ? null : workReport.getError();
+    }
+
+    /**
+     * Get the object attached to this execution by the given listener.
+     *
+     * @param listener that attached the object
+     * @return the attached object, or null
+     */
+    public Object getAttachment(WorkExecutionListener listener) {
+        if (attachments == null) {
+            return null;
+        }
+        int index = indexOf(listener);
+        return index < 0 ? null : attachments[index];
+    }
+
+    /**
+     * Attach an object to this execution on behalf of the given listener.
+     *
+     * @param listener attaching the object
+     * @param attachment to attach
+     */
+    public void setAttachment(WorkExecutionListener listener, Object attachment) {
+        int index = indexOf(listener);
+        if (index < 0) {
+            throw new IllegalArgumentException("Listener is not registered for this run");
+        }
+        if (attachments == null) {
+            attachments = new Object[listeners.length];
+        }
+        attachments[index] = attachment;
+    }
+
+    private void addChild(WorkExecution child) {
+        Queue<WorkExecution> queue = children;
+        if (queue == null) {
+            CHILDREN.compareAndSet(this, null, new ConcurrentLinkedQueue<WorkExecution>());
+            queue = children;
+        }
+        queue.add(child);
+    }
+
+    private int indexOf(WorkExecutionListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        return "WorkExecution {" +
+                "id=" + id +
+                ", work='" + work.getName() + '\'' +
+                ", parent=" + (parent == null ? "''" : parent.id) +
+                ", status=" + getStatus() +
+                '}';
+    }
+}
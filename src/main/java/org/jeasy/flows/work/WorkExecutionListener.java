@@ -0,0 +1,54 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+/**
+ * Listener notified of work executions of workflow runs. Listeners are registered
+ * on the workflow engine and are notified for the workflow itself and for every
+ * work unit executed by the built-in flows, including work units executed in
+ * parallel on other threads.
+ *
+ * Listeners are called on the thread executing the work unit and must be thread-safe.
+ * Exceptions thrown by listeners are logged and ignored.
+ *
+ * @see WorkExecution
+ */
+public interface WorkExecutionListener {
+
+    /**
+     * Called before the work unit is executed.
+     *
+     * @param workExecution being started
+     */
+    default void onStart(WorkExecution workExecution) {
+    }
+
+    /**
+     * Called after the work unit has been executed, even if it has thrown an exception.
+     *
+     * @param workExecution being ended
+     */
+    default void onEnd(WorkExecution workExecution) {
+    }
+}
@@ -52,4 +52,15 @@ public interface WorkReport {
      */
     WorkContext getWorkContext();
 
+    /**
+     * Get the execution of the outermost work unit that returned this report.
+     * Executions are only attached to reports extending {@link AbstractWorkReport}
+     * when the engine records executions.
+     *
+     * @return the execution, or null if executions are not recorded
+     */
+    default WorkExecution getWorkExecution() {
+        return null;
+    }
+
 }
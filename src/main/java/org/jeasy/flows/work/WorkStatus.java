@@ -38,5 +38,10 @@ public enum WorkStatus {
     /**
      * The unit of work has completed successfully
      */
-    COMPLETED
+    COMPLETED,
+
+    /**
+     * The unit of work is waiting for an external signal, see {@link SuspendedWorkReport}
+     */
+    SUSPENDED
 }
@@ -23,6 +23,11 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.SuspendedWorkReport;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
 abstract class AbstractWorkFlow implements WorkFlow {
 
     private String name;
@@ -34,4 +39,20 @@ abstract class AbstractWorkFlow implements WorkFlow {
     public String getName() {
         return name;
     }
+
+    /**
+     * Turn the suspension of a run by a child of a flow which can not be resumed
+     * into a failure, so that it is not mistaken for a completion.
+     *
+     * @param workReport of a child
+     * @return the report itself, or a failed report if it is a suspension
+     */
+    static WorkReport failIfSuspended(WorkReport workReport) {
+        if (!(workReport instanceof SuspendedWorkReport)) {
+            return workReport;
+        }
+        return new DefaultWorkReport(WorkStatus.FAILED, workReport.getWorkContext(),
+                new IllegalStateException("Run suspended with correlation key '" + ((SuspendedWorkReport) workReport).getCorrelationKey()
+                        + "' in a flow which can not be resumed, only sequential and conditional flows can suspend runs"));
+    }
 }
@@ -23,13 +23,22 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.jeasy.flows.work.ContextOverlay;
+import org.jeasy.flows.work.DefaultWorkReport;
 import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.SuspendedWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
 import org.jeasy.flows.work.WorkReport;
 import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.work.WorkStatus;
 
 import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * A conditional flow is defined by 4 artifacts:
@@ -41,43 +50,167 @@ import java.util.UUID;
  *     <li>The work to execute if the predicate is not satisfied (optional)</li>
  * </ul>
  *
+ * If one of these works suspends the run, the flow can be resumed after it.
+ *
+ * In speculative mode, the {@link Work#isSideEffectFree() side-effect-free} branches are started
+ * on overlays of the context while the work to execute runs. The branch selected by the predicate
+ * is committed if the context values it read have not changed meanwhile (it is called again
+ * otherwise), the other one is cancelled and discarded.
+ *
  * @see ConditionalFlow.Builder
  *
  * @author Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
  */
-public class ConditionalFlow extends AbstractWorkFlow {
+public class ConditionalFlow extends AbstractWorkFlow implements ResumableWorkFlow {
 
-    private Work toExecute, nextOnPredicateSuccess, nextOnPredicateFailure;
-    private WorkReportPredicate predicate;
+    final Work toExecute, nextOnPredicateSuccess, nextOnPredicateFailure;
+    final WorkReportPredicate predicate;
+    final ExecutorService speculationExecutor;
 
     ConditionalFlow(String name, Work toExecute, Work nextOnPredicateSuccess, Work nextOnPredicateFailure, WorkReportPredicate predicate) {
+        this(name, toExecute, nextOnPredicateSuccess, nextOnPredicateFailure, predicate, null);
+    }
+
+    ConditionalFlow(String name, Work toExecute, Work nextOnPredicateSuccess, Work nextOnPredicateFailure,
+                    WorkReportPredicate predicate, ExecutorService speculationExecutor) {
         super(name);
         this.toExecute = toExecute;
         this.nextOnPredicateSuccess = nextOnPredicateSuccess;
         this.nextOnPredicateFailure = nextOnPredicateFailure;
         this.predicate = predicate;
+        this.speculationExecutor = speculationExecutor;
     }
 
     /**
      * {@inheritDoc}
      */
     public WorkReport call(WorkContext workContext) {
-        WorkReport jobReport = toExecute.call(workContext);
-        if (predicate.apply(jobReport)) {
-            jobReport = nextOnPredicateSuccess.call(workContext);
+        Speculation onSuccess = speculate(nextOnPredicateSuccess, workContext);
+        Speculation onFailure = speculate(nextOnPredicateFailure, workContext);
+        try {
+            return call(workContext, onSuccess, onFailure);
+        } catch (RuntimeException | Error e) {
+            cancel(onSuccess);
+            cancel(onFailure);
+            throw e;
+        }
+    }
+
+    private WorkReport call(WorkContext workContext, Speculation onSuccess, Speculation onFailure) {
+        WorkReport jobReport = WorkExecution.call(toExecute, workContext);
+        if (jobReport instanceof SuspendedWorkReport) {
+            cancel(onSuccess);
+            cancel(onFailure);
+            return ((SuspendedWorkReport) jobReport).enclosedBy(0);
+        }
+        if (onSuccess == null && onFailure == null) {
+            return next(jobReport, workContext);
+        }
+        boolean success = predicate.apply(jobReport);
+        cancel(success ? onFailure : onSuccess);
+        Speculation selected = success ? onSuccess : onFailure;
+        WorkReport report = selected == null ? null : selected.commit(workContext);
+        return report != null ? report : next(success, jobReport, workContext);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public WorkReport resume(WorkContext workContext, SuspendedWorkReport suspension, int depth) {
+        int position = suspension.getPosition(depth);
+        Work work = position == 0 ? toExecute : position == 1 ? nextOnPredicateSuccess : nextOnPredicateFailure;
+        WorkReport jobReport = ResumableWorkFlow.resume(work, workContext, suspension, depth + 1);
+        if (jobReport instanceof SuspendedWorkReport) {
+            return ((SuspendedWorkReport) jobReport).enclosedBy(position);
+        }
+        return position == 0 ? next(jobReport, workContext) : jobReport;
+    }
+
+    private WorkReport next(WorkReport jobReport, WorkContext workContext) {
+        return next(predicate.apply(jobReport), jobReport, workContext);
+    }
+
+    private WorkReport next(boolean success, WorkReport jobReport, WorkContext workContext) {
+        int position;
+        if (success) {
+            jobReport = WorkExecution.call(nextOnPredicateSuccess, workContext);
+            position = 1;
         } else {
-            if (nextOnPredicateFailure != null && !(nextOnPredicateFailure instanceof NoOpWork)) { // else is optional
-                jobReport = nextOnPredicateFailure.call(workContext);
+            if (nextOnPredicateFailure == null || nextOnPredicateFailure instanceof NoOpWork) { // else is optional
+                return jobReport;
             }
+            jobReport = WorkExecution.call(nextOnPredicateFailure, workContext);
+            position = 2;
+        }
+        if (jobReport instanceof SuspendedWorkReport) {
+            return ((SuspendedWorkReport) jobReport).enclosedBy(position);
         }
         return jobReport;
     }
 
+    private Speculation speculate(Work work, WorkContext workContext) {
+        if (speculationExecutor == null || work == null || work instanceof NoOpWork || !work.isSideEffectFree()) {
+            return null;
+        }
+        ContextOverlay overlay = workContext.overlay();
+        FutureTask<WorkReport> task = new FutureTask<>(WorkExecution.fork(work, overlay));
+        try {
+            speculationExecutor.execute(task);
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+        return new Speculation(overlay, task);
+    }
+
+    private static void cancel(Speculation speculation) {
+        if (speculation != null) {
+            speculation.task.cancel(true);
+        }
+    }
+
+    private static class Speculation {
+
+        private final ContextOverlay overlay;
+        private final FutureTask<WorkReport> task;
+
+        Speculation(ContextOverlay overlay, FutureTask<WorkReport> task) {
+            this.overlay = overlay;
+            this.task = task;
+        }
+
+        /**
+         * Wait for the speculative branch and commit its writes.
+         *
+         * @param workContext of the flow
+         * @return the report of the branch, a failed report if the calling thread was interrupted
+         * while waiting, or null if the branch must be called again on the context
+         */
+        WorkReport commit(WorkContext workContext) {
+            WorkReport report;
+            task.run(); // no-op if started, avoids waiting for a task queued behind the calling thread
+            try {
+                report = task.get();
+            } catch (InterruptedException e) {
+                task.cancel(true);
+                Thread.currentThread().interrupt();
+                return new DefaultWorkReport(WorkStatus.FAILED, workContext, e);
+            } catch (ExecutionException e) {
+                return null;
+            }
+            if (report instanceof SuspendedWorkReport || !overlay.isConsistent()) {
+                return null;
+            }
+            overlay.commit();
+            return report;
+        }
+    }
+
     public static class Builder {
 
         private String name;
         private Work toExecute, nextOnPredicateSuccess, nextOnPredicateFailure;
         private WorkReportPredicate predicate;
+        private ExecutorService speculationExecutor;
 
         private Builder() {
             this.name = UUID.randomUUID().toString();
@@ -116,8 +249,20 @@ public class ConditionalFlow extends AbstractWorkFlow {
             return this;
         }
 
+        /**
+         * Start the side-effect-free branches on the given executor while the work to execute runs.
+         *
+         * @param executor running the speculative branches
+         * @return this builder
+         * @see Work#isSideEffectFree()
+         */
+        public ConditionalFlow.Builder speculate(ExecutorService executor) {
+            this.speculationExecutor = executor;
+            return this;
+        }
+
         public ConditionalFlow build() {
-            return new ConditionalFlow(name, toExecute, nextOnPredicateSuccess, nextOnPredicateFailure, predicate);
+            return new ConditionalFlow(name, toExecute, nextOnPredicateSuccess, nextOnPredicateFailure, predicate, speculationExecutor);
         }
     }
 }
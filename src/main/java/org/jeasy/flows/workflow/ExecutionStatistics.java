@@ -0,0 +1,116 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import java.util.Arrays;
+
+/**
+ * Summary statistics of a set of durations, in nanoseconds.
+ *
+ * Percentiles use the nearest-rank method on the sorted values.
+ */
+public class ExecutionStatistics {
+
+    static final ExecutionStatistics EMPTY = new ExecutionStatistics(new long[0]);
+
+    private final long[] sortedValues;
+    private final long sum;
+
+    /**
+     * Create a new {@link ExecutionStatistics}. The given array is sorted in place and kept.
+     *
+     * @param values durations in nanoseconds
+     */
+    ExecutionStatistics(long[] values) {
+        Arrays.sort(values);
+        long total = 0;
+        for (long value : values) {
+            total += value;
+        }
+        this.sortedValues = values;
+        this.sum = total;
+    }
+
+    public int getCount() {
+        return sortedValues.length;
+    }
+
+    /**
+     * @return the minimum value, 0 if there are no values
+     */
+    public long getMin() {
+        return sortedValues.length == 0 ? 0 : sortedValues[0];
+    }
+
+    /**
+     * @return the maximum value, 0 if there are no values
+     */
+    public long getMax() {
+        return sortedValues.length == 0 ? 0 : sortedValues[sortedValues.length - 1];
+    }
+
+    /**
+     * @return the mean value, 0 if there are no values
+     */
+    public double getMean() {
+        return sortedValues.length == 0 ? 0 : (double) sum / sortedValues.length;
+    }
+
+    /**
+     * @return the sum of all values
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the value at the given percentile.
+     *
+     * @param percentile between 0 and 100
+     * @return the value at the given percentile, 0 if there are no values
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("percentile must be between 0 and 100");
+        }
+        if (sortedValues.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * sortedValues.length);
+        return sortedValues[Math.max(0, rank - 1)];
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutionStatistics {" +
+                "count=" + getCount() +
+                ", min=" + getMin() +
+                ", mean=" + getMean() +
+                ", p50=" + getPercentile(50) +
+                ", p90=" + getPercentile(90) +
+                ", p99=" + getPercentile(99) +
+                ", max=" + getMax() +
+                '}';
+    }
+}
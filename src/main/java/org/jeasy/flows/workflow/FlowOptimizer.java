@@ -0,0 +1,324 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkReportPredicate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Rewrites a built flow tree into an equivalent tree with fewer nodes. A rewritten flow
+ * reports the same status as the original one in the same context, and calls the same
+ * work units in the same order, but the intermediate flows removed from the tree no
+ * longer appear in execution traces and metrics.
+ *
+ * Sequential, parallel, conditional and repeat flows are rewritten; other works, including
+ * other flows, are left as they are. The flow given to the optimizer keeps its type and
+ * name, only its descendants may be replaced. A flow shared by several parents is rewritten
+ * once and stays shared.
+ *
+ * @see FlowOptimizer.Pass
+ * @see FlowOptimizer.Builder
+ */
+public class FlowOptimizer {
+
+    /**
+     * Rewriting passes of the optimizer, all enabled by default.
+     */
+    public enum Pass {
+
+        /**
+         * Remove {@link NoOpWork}s from sequential and parallel flows, and replace flows
+         * doing nothing but no-ops by a no-op.
+         */
+        REMOVE_NO_OPS,
+
+        /**
+         * Inline the works of sequential flows nested in sequential flows.
+         */
+        FLATTEN_SEQUENTIAL_FLOWS,
+
+        /**
+         * Replace sequential flows of a single work, and repeat flows of a single iteration,
+         * by their work. Single-branch parallel flows are kept: they report a
+         * {@link ParallelFlowReport} and turn an exception of their branch into a failure.
+         */
+        INLINE_TRIVIAL_FLOWS,
+
+        /**
+         * Replace conditional flows whose outcome is known at build time by the work they
+         * end up executing: a no-op followed by a constant or status predicate, or an
+         * {@link WorkReportPredicate#ALWAYS_FALSE} predicate without otherwise branch.
+         */
+        FOLD_CONDITIONAL_FLOWS
+    }
+
+    private final Set<Pass> passes;
+
+    FlowOptimizer(Set<Pass> passes) {
+        this.passes = passes;
+    }
+
+    /**
+     * Optimize the given flow.
+     *
+     * @param workFlow to optimize, left untouched
+     * @return the optimized flow and the changes made
+     */
+    public Result optimize(WorkFlow workFlow) {
+        Rewriter rewriter = new Rewriter();
+        Work optimized = rewriter.rewrite(workFlow, true);
+        return new Result((WorkFlow) optimized, rewriter.changes);
+    }
+
+    /**
+     * An optimized flow and the changes made by the optimizer.
+     */
+    public static class Result {
+
+        private final WorkFlow workFlow;
+        private final List<String> changes;
+
+        Result(WorkFlow workFlow, List<String> changes) {
+            this.workFlow = workFlow;
+            this.changes = Collections.unmodifiableList(changes);
+        }
+
+        /**
+         * @return the optimized flow, the original flow if nothing was changed
+         */
+        public WorkFlow getWorkFlow() {
+            return workFlow;
+        }
+
+        /**
+         * @return descriptions of the changes, in the order they were made
+         */
+        public List<String> getChanges() {
+            return changes;
+        }
+
+        public boolean isChanged() {
+            return !changes.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return changes.isEmpty() ? "no change" : String.join("\n", changes);
+        }
+    }
+
+    private class Rewriter {
+
+        private final Map<Work, Work> rewritten = new IdentityHashMap<>();
+        private final List<String> changes = new ArrayList<>();
+
+        Work rewrite(Work work, boolean root) {
+            Work result = rewritten.get(work);
+            if (result == null) {
+                result = rewriteOnce(work, root);
+                rewritten.put(work, result);
+            }
+            return result;
+        }
+
+        private Work rewriteOnce(Work work, boolean root) {
+            if (work instanceof SequentialFlow) {
+                return rewrite((SequentialFlow) work, root);
+            }
+            if (work instanceof ParallelFlow) {
+                return rewrite((ParallelFlow) work, root);
+            }
+            if (work instanceof ConditionalFlow) {
+                return rewrite((ConditionalFlow) work, root);
+            }
+            if (work instanceof RepeatFlow) {
+                return rewrite((RepeatFlow) work, root);
+            }
+            return work;
+        }
+
+        private Work rewrite(SequentialFlow flow, boolean root) {
+            List<Work> works = new ArrayList<>();
+            int noOps = 0;
+            for (Work child : flow.works) {
+                Work work = rewrite(child, false);
+                if (enabled(Pass.REMOVE_NO_OPS) && work instanceof NoOpWork) {
+                    noOps++;
+                } else if (enabled(Pass.FLATTEN_SEQUENTIAL_FLOWS) && work instanceof SequentialFlow) {
+                    change("inlined sequential flow '%s' into sequential flow '%s'", work.getName(), flow.getName());
+                    works.addAll(((SequentialFlow) work).works);
+                } else {
+                    works.add(work);
+                }
+            }
+            if (noOps > 0) {
+                change("removed %d no-op(s) from sequential flow '%s'", noOps, flow.getName());
+                if (works.isEmpty()) {
+                    return root ? new SequentialFlow(flow.getName(), Collections.singletonList(new NoOpWork())) : noOp(flow);
+                }
+            }
+            if (!root && works.size() == 1 && enabled(Pass.INLINE_TRIVIAL_FLOWS)) {
+                change("replaced sequential flow '%s' by its single work %s", flow.getName(), describe(works.get(0)));
+                return works.get(0);
+            }
+            return sameWorks(works, flow.works) ? flow : new SequentialFlow(flow.getName(), works);
+        }
+
+        private Work rewrite(ParallelFlow flow, boolean root) {
+            List<Work> works = new ArrayList<>();
+            int noOps = 0;
+            for (Work child : flow.works) {
+                Work work = rewrite(child, false);
+                if (enabled(Pass.REMOVE_NO_OPS) && work instanceof NoOpWork) {
+                    noOps++;
+                } else {
+                    works.add(work);
+                }
+            }
+            if (noOps > 0) {
+                change("removed %d no-op branch(es) from parallel flow '%s'", noOps, flow.getName());
+                if (works.isEmpty()) {
+                    return root ? new ParallelFlow(flow.getName(), Collections.singletonList(new NoOpWork()), flow.workExecutor) : noOp(flow);
+                }
+            }
+            return sameWorks(works, flow.works) ? flow : new ParallelFlow(flow.getName(), works, flow.workExecutor);
+        }
+
+        private Work rewrite(ConditionalFlow flow, boolean root) {
+            Work toExecute = rewrite(flow.toExecute, false);
+            Work onSuccess = rewrite(flow.nextOnPredicateSuccess, false);
+            Work onFailure = flow.nextOnPredicateFailure == null ? null : rewrite(flow.nextOnPredicateFailure, false);
+            WorkReportPredicate predicate = flow.predicate;
+            if (!root && enabled(Pass.FOLD_CONDITIONAL_FLOWS)) {
+                if (toExecute instanceof NoOpWork && isTrueOnCompleted(predicate)) {
+                    change("folded conditional flow '%s' into its then work %s", flow.getName(), describe(onSuccess));
+                    return onSuccess;
+                }
+                if (toExecute instanceof NoOpWork && isFalseOnCompleted(predicate)) {
+                    Work otherwise = onFailure == null ? new NoOpWork() : onFailure;
+                    change("folded conditional flow '%s' into its otherwise work %s", flow.getName(), describe(otherwise));
+                    return otherwise;
+                }
+                if (predicate == WorkReportPredicate.ALWAYS_FALSE && (onFailure == null || onFailure instanceof NoOpWork)) {
+                    change("folded conditional flow '%s' into its first work %s", flow.getName(), describe(toExecute));
+                    return toExecute;
+                }
+            }
+            if (toExecute == flow.toExecute && onSuccess == flow.nextOnPredicateSuccess && onFailure == flow.nextOnPredicateFailure) {
+                return flow;
+            }
+            return new ConditionalFlow(flow.getName(), toExecute, onSuccess, onFailure, predicate, flow.speculationExecutor);
+        }
+
+        private Work rewrite(RepeatFlow flow, boolean root) {
+            Work work = rewrite(flow.work, false);
+            boolean singleIteration = flow.times == 1 || (flow.times <= 0 && flow.predicate == WorkReportPredicate.ALWAYS_FALSE);
+            boolean bounded = flow.times > 0 || flow.predicate == WorkReportPredicate.ALWAYS_FALSE;
+            if (!root && enabled(Pass.REMOVE_NO_OPS) && work instanceof NoOpWork && bounded) {
+                change("replaced repeat flow '%s' of a no-op by a no-op", flow.getName());
+                return work;
+            }
+            if (!root && enabled(Pass.INLINE_TRIVIAL_FLOWS) && singleIteration) {
+                change("replaced repeat flow '%s' of a single iteration by its work %s", flow.getName(), describe(work));
+                return work;
+            }
+            return work == flow.work ? flow : new RepeatFlow(flow.getName(), work, flow.predicate, flow.times);
+        }
+
+        private Work noOp(WorkFlow flow) {
+            change("replaced %s '%s' by a no-op", flow.getClass().getSimpleName(), flow.getName());
+            return new NoOpWork();
+        }
+
+        private boolean enabled(Pass pass) {
+            return passes.contains(pass);
+        }
+
+        private void change(String format, Object... arguments) {
+            changes.add(String.format(format, arguments));
+        }
+    }
+
+    private static String describe(Work work) {
+        return work instanceof NoOpWork ? "no-op" : "'" + work.getName() + "'";
+    }
+
+    private static boolean isTrueOnCompleted(WorkReportPredicate predicate) {
+        return predicate == WorkReportPredicate.ALWAYS_TRUE || predicate == WorkReportPredicate.COMPLETED;
+    }
+
+    private static boolean isFalseOnCompleted(WorkReportPredicate predicate) {
+        return predicate == WorkReportPredicate.ALWAYS_FALSE || predicate == WorkReportPredicate.FAILED;
+    }
+
+    private static boolean sameWorks(List<Work> works, List<Work> originalWorks) {
+        if (works.size() != originalWorks.size()) {
+            return false;
+        }
+        for (int i = 0; i < works.size(); i++) {
+            if (works.get(i) != originalWorks.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static class Builder {
+
+        private final EnumSet<Pass> passes;
+
+        private Builder() {
+            this.passes = EnumSet.allOf(Pass.class);
+        }
+
+        public static FlowOptimizer.Builder aNewFlowOptimizer() {
+            return new FlowOptimizer.Builder();
+        }
+
+        /**
+         * Disable the given passes.
+         *
+         * @param passes to disable
+         * @return this builder
+         */
+        public FlowOptimizer.Builder disable(Pass... passes) {
+            this.passes.removeAll(Arrays.asList(passes));
+            return this;
+        }
+
+        public FlowOptimizer build() {
+            return new FlowOptimizer(EnumSet.copyOf(passes));
+        }
+    }
+}
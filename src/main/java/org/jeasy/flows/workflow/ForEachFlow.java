@@ -0,0 +1,407 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BinaryOperator;
+
+/**
+ * A for-each flow processes the elements of a collection (or array) held by the
+ * {@link WorkContext} in parallel. The elements are split into chunks which are
+ * processed by up to {@code parallelism} workers: the calling thread and tasks submitted
+ * to an executor service (the common fork/join pool by default). Results of elements
+ * or chunks can be combined with a reducer, in element order, and stored in the context.
+ *
+ * The status of a for-each flow execution is defined as:
+ *
+ * <ul>
+ *     <li>{@link WorkStatus#COMPLETED}: If all elements have been processed</li>
+ *     <li>{@link WorkStatus#FAILED}: If the collection is missing or processing an element has thrown an exception,
+ *     in which case remaining chunks are not processed</li>
+ * </ul>
+ *
+ * <strong>It is the responsibility of the caller to manage the lifecycle of the
+ * executor service.</strong>
+ *
+ * @see ForEachFlow.Builder
+ */
+public class ForEachFlow extends AbstractWorkFlow {
+
+    /**
+     * Processing of a single element.
+     *
+     * @param <T> type of elements
+     * @param <R> type of results
+     */
+    @FunctionalInterface
+    public interface ElementWork<T, R> {
+        R process(T element, WorkContext workContext) throws Exception;
+    }
+
+    /**
+     * Processing of a chunk of elements.
+     *
+     * @param <T> type of elements
+     * @param <R> type of results
+     */
+    @FunctionalInterface
+    public interface ChunkWork<T, R> {
+        R process(List<T> chunk, WorkContext workContext) throws Exception;
+    }
+
+    private final String collectionKey;
+    private final ChunkWork<Object, Object> chunkWork;
+    private final BinaryOperator<Object> reducer;
+    private final String resultKey;
+    private final ExecutorService executorService;
+    private final int parallelism;
+    private final int chunkSize;
+
+    ForEachFlow(String name, String collectionKey, ChunkWork<Object, Object> chunkWork, BinaryOperator<Object> reducer,
+                String resultKey, ExecutorService executorService, int parallelism, int chunkSize) {
+        super(name);
+        this.collectionKey = collectionKey;
+        this.chunkWork = chunkWork;
+        this.reducer = reducer;
+        this.resultKey = resultKey;
+        this.executorService = executorService;
+        this.parallelism = parallelism;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public WorkReport call(WorkContext workContext) {
+        List<Object> elements = elements(workContext.get(collectionKey));
+        if (elements == null) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                    new IllegalArgumentException("No collection under context key '" + collectionKey + "'"));
+        }
+        int size = chunkSize > 0 ? chunkSize : Math.max(1, elements.size() / (parallelism * 4));
+        Run run = new Run(elements, size, workContext);
+        List<Helper> helpers = new ArrayList<>();
+        int workers = Math.min(parallelism, run.chunks.length) - 1;
+        try {
+            for (int i = 0; i < workers; i++) {
+                Helper helper = new Helper(run);
+                helper.future = executorService.submit(helper);
+                helpers.add(helper);
+            }
+        } catch (RejectedExecutionException e) {
+            // the calling thread processes the chunks the executor does not take
+        }
+        run.run();
+        awaitHelpers(helpers, run);
+        if (run.error != null) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext, run.error);
+        }
+        if (resultKey != null) {
+            Object result = null;
+            for (Object partial : run.chunks) {
+                result = result == null ? partial : partial == null ? result : reducer.apply(result, partial);
+            }
+            if (result != null) {
+                workContext.put(resultKey, result);
+            }
+        }
+        return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+    }
+
+    /*
+     * When the calling thread is done, every chunk has been claimed: helpers that have not
+     * started are disabled and cancelled (they may be queued behind the calling thread itself,
+     * if it is a thread of the executor), started ones are waited for, so that no helper
+     * writes to the context once the flow has reported.
+     */
+    private static void awaitHelpers(List<Helper> helpers, Run run) {
+        boolean interrupted = false;
+        for (Helper helper : helpers) {
+            if (helper.started.compareAndSet(false, true)) {
+                helper.future.cancel(false);
+                continue;
+            }
+            for (;;) {
+                try {
+                    helper.future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    run.fail(e);
+                } catch (ExecutionException | CancellationException e) {
+                    run.fail(e);
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Object> elements(Object collection) {
+        if (collection instanceof List) {
+            return (List<Object>) collection;
+        }
+        if (collection instanceof Collection) {
+            return new ArrayList<>((Collection<Object>) collection);
+        }
+        if (collection instanceof Object[]) {
+            return Arrays.asList((Object[]) collection);
+        }
+        return null;
+    }
+
+    /**
+     * A run hands out chunks to workers through a shared counter, so fast workers
+     * take more chunks. The result of each chunk is stored at its index.
+     */
+    private class Run implements Runnable {
+
+        private final List<Object> elements;
+        private final int chunkSize;
+        private final WorkContext workContext;
+        private final Object[] chunks;
+        private final AtomicInteger nextChunk = new AtomicInteger();
+        private volatile Throwable error;
+
+        Run(List<Object> elements, int chunkSize, WorkContext workContext) {
+            this.elements = elements;
+            this.chunkSize = chunkSize;
+            this.workContext = workContext;
+            this.chunks = new Object[(elements.size() + chunkSize - 1) / chunkSize];
+        }
+
+        @Override
+        public void run() {
+            int chunk;
+            while (error == null && (chunk = nextChunk.getAndIncrement()) < chunks.length) {
+                int from = chunk * chunkSize;
+                try {
+                    chunks[chunk] = chunkWork.process(elements.subList(from, Math.min(from + chunkSize, elements.size())), workContext);
+                } catch (Throwable e) {
+                    fail(e);
+                }
+            }
+        }
+
+        synchronized void fail(Throwable e) {
+            if (error == null) {
+                error = e instanceof ExecutionException && e.getCause() != null ? e.getCause() : e;
+            }
+        }
+    }
+
+    /**
+     * A worker submitted to the executor, which processes chunks only if it starts
+     * before the calling thread gives up on it.
+     */
+    private static class Helper implements Runnable {
+
+        private final Run run;
+        private final AtomicBoolean started = new AtomicBoolean();
+        private Future<?> future;
+
+        Helper(Run run) {
+            this.run = run;
+        }
+
+        @Override
+        public void run() {
+            if (started.compareAndSet(false, true)) {
+                run.run();
+            }
+        }
+    }
+
+    public static class Builder {
+
+        private String name;
+        private String collectionKey;
+        private ElementWork<Object, Object> elementWork;
+        private ChunkWork<Object, Object> chunkWork;
+        private BinaryOperator<Object> reducer;
+        private String resultKey;
+        private ExecutorService executorService;
+        private int parallelism;
+        private int chunkSize;
+
+        private Builder() {
+            this.name = UUID.randomUUID().toString();
+            this.chunkWork = (chunk, workContext) -> null;
+            this.executorService = ForkJoinPool.commonPool();
+            this.parallelism = ForkJoinPool.getCommonPoolParallelism() + 1;
+        }
+
+        public static ForEachFlow.Builder aNewForEachFlow() {
+            return new ForEachFlow.Builder();
+        }
+
+        public ForEachFlow.Builder named(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Process the collection, list or array held by the context under the given key.
+         * The collection must not be modified while the flow runs.
+         *
+         * @param collectionKey context key of the collection
+         * @return this builder
+         */
+        public ForEachFlow.Builder over(String collectionKey) {
+            this.collectionKey = collectionKey;
+            return this;
+        }
+
+        /**
+         * Process elements one by one. Results of the elements of a chunk are
+         * combined with the reducer, if any.
+         *
+         * @param elementWork to apply to each element
+         * @param <T> type of elements
+         * @param <R> type of results
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <T, R> ForEachFlow.Builder forEach(ElementWork<T, R> elementWork) {
+            this.elementWork = (ElementWork<Object, Object>) elementWork;
+            this.chunkWork = null;
+            return this;
+        }
+
+        /**
+         * Process elements chunk by chunk.
+         *
+         * @param chunkWork to apply to each chunk
+         * @param <T> type of elements
+         * @param <R> type of results
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <T, R> ForEachFlow.Builder forEachChunk(ChunkWork<T, R> chunkWork) {
+            this.chunkWork = (ChunkWork<Object, Object>) chunkWork;
+            this.elementWork = null;
+            return this;
+        }
+
+        /**
+         * Combine non-null results with the given reducer and put the result in the context.
+         * Results are combined in element order, so the reducer needs to be associative
+         * but not commutative.
+         *
+         * @param reducer to combine two results
+         * @param resultKey context key of the result
+         * @param <R> type of results
+         * @return this builder
+         */
+        @SuppressWarnings("unchecked")
+        public <R> ForEachFlow.Builder reduce(BinaryOperator<R> reducer, String resultKey) {
+            this.reducer = (BinaryOperator<Object>) reducer;
+            this.resultKey = resultKey;
+            return this;
+        }
+
+        /**
+         * Executor service running the workers in addition to the calling thread.
+         * Defaults to the common fork/join pool.
+         *
+         * @param executorService to use
+         * @return this builder
+         */
+        public ForEachFlow.Builder executorService(ExecutorService executorService) {
+            this.executorService = executorService;
+            return this;
+        }
+
+        /**
+         * Maximum number of workers processing chunks concurrently, including the calling
+         * thread. Defaults to the parallelism of the common fork/join pool plus one.
+         *
+         * @param parallelism maximum number of workers
+         * @return this builder
+         */
+        public ForEachFlow.Builder parallelism(int parallelism) {
+            if (parallelism < 1) {
+                throw new IllegalArgumentException("Parallelism must be positive");
+            }
+            this.parallelism = parallelism;
+            return this;
+        }
+
+        /**
+         * Number of elements per chunk. Defaults to a size giving about four
+         * chunks per worker, to balance uneven chunks.
+         *
+         * @param chunkSize number of elements per chunk
+         * @return this builder
+         */
+        public ForEachFlow.Builder chunkSize(int chunkSize) {
+            if (chunkSize < 1) {
+                throw new IllegalArgumentException("Chunk size must be positive");
+            }
+            this.chunkSize = chunkSize;
+            return this;
+        }
+
+        public ForEachFlow build() {
+            if (collectionKey == null) {
+                throw new IllegalStateException("The context key of the collection must be set with over()");
+            }
+            ChunkWork<Object, Object> work = elementWork != null ? chunkOf(elementWork, reducer) : chunkWork;
+            return new ForEachFlow(name, collectionKey, work, reducer, resultKey, executorService, parallelism, chunkSize);
+        }
+
+        private static ChunkWork<Object, Object> chunkOf(ElementWork<Object, Object> elementWork, BinaryOperator<Object> reducer) {
+            return (chunk, workContext) -> {
+                Object result = null;
+                for (Object element : chunk) {
+                    Object elementResult = elementWork.process(element, workContext);
+                    if (reducer != null && elementResult != null) {
+                        result = result == null ? elementResult : reducer.apply(result, elementResult);
+                    }
+                }
+                return result;
+            };
+        }
+    }
+}
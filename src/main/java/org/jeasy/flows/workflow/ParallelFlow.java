@@ -25,7 +25,6 @@ package org.jeasy.flows.workflow;
 
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
-import org.jeasy.flows.work.WorkReport;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -52,8 +51,8 @@ import java.util.concurrent.ExecutorService;
  */
 public class ParallelFlow extends AbstractWorkFlow {
 
-    private List<Work> works = new ArrayList<>();
-    private ParallelFlowExecutor workExecutor;
+    final List<Work> works = new ArrayList<>();
+    final ParallelFlowExecutor workExecutor;
 
     ParallelFlow(String name, List<Work> works, ParallelFlowExecutor parallelFlowExecutor) {
         super(name);
@@ -65,10 +64,7 @@ public class ParallelFlow extends AbstractWorkFlow {
      * {@inheritDoc}
      */
     public ParallelFlowReport call(WorkContext workContext) {
-        ParallelFlowReport workFlowReport = new ParallelFlowReport();
-        List<WorkReport> workReports = workExecutor.executeInParallel(works, workContext);
-        workFlowReport.addAll(workReports);
-        return workFlowReport;
+        return new ParallelFlowReport(workExecutor.executeInParallel(works, workContext));
     }
 
     public static class Builder {
@@ -76,11 +72,13 @@ public class ParallelFlow extends AbstractWorkFlow {
         private String name;
         private List<Work> works;
         private ExecutorService executorService;
+        private int maxConcurrentBranches;
 
         private Builder(ExecutorService executorService) {
             this.name = UUID.randomUUID().toString();
             this.works = new ArrayList<>();
             this.executorService = executorService;
+            this.maxConcurrentBranches = ParallelFlowExecutor.DEFAULT_MAX_CONCURRENT_BRANCHES;
         }
 
         /**
@@ -108,8 +106,23 @@ public class ParallelFlow extends AbstractWorkFlow {
             return this;
         }
 
+        /**
+         * Maximum number of work units submitted to the executor service at a time,
+         * defaults to 1024. Further work units are submitted as others complete.
+         *
+         * @param maxConcurrentBranches maximum number of work units in flight
+         * @return this builder
+         */
+        public ParallelFlow.Builder maxConcurrentBranches(int maxConcurrentBranches) {
+            if (maxConcurrentBranches < 1) {
+                throw new IllegalArgumentException("The maximum number of concurrent branches must be positive");
+            }
+            this.maxConcurrentBranches = maxConcurrentBranches;
+            return this;
+        }
+
         public ParallelFlow build() {
-            return new ParallelFlow(name, works, new ParallelFlowExecutor(executorService));
+            return new ParallelFlow(name, works, new ParallelFlowExecutor(executorService, maxConcurrentBranches));
         }
     }
 }
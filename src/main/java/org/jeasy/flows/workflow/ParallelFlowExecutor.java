@@ -23,59 +23,130 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.jeasy.flows.work.DefaultWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
 import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
 
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.AbstractList;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.RandomAccess;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Future;
-import java.util.logging.Level;
-import java.util.logging.Logger;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Runs the branches of a parallel flow. At most {@code maxConcurrentBranches} branches are
+ * submitted to the executor at a time, the next branch being submitted when one completes,
+ * so the executor queue and the memory of a run stay flat whatever the fan-out. Reports are
+ * stored by branch index, failures are tracked with counters.
+ */
 class ParallelFlowExecutor {
 
-    private static final Logger LOGGER = Logger.getLogger(ParallelFlowExecutor.class.getName());
+    static final int DEFAULT_MAX_CONCURRENT_BRANCHES = 1024;
 
-    private ExecutorService workExecutor;
+    private final ExecutorService workExecutor;
+    private final int maxConcurrentBranches;
 
     ParallelFlowExecutor(ExecutorService workExecutor) {
+        this(workExecutor, DEFAULT_MAX_CONCURRENT_BRANCHES);
+    }
+
+    ParallelFlowExecutor(ExecutorService workExecutor, int maxConcurrentBranches) {
         this.workExecutor = workExecutor;
+        this.maxConcurrentBranches = maxConcurrentBranches;
     }
 
     List<WorkReport> executeInParallel(List<Work> works, WorkContext workContext) {
-        // submit work units to be executed in parallel
-        Map<Work, Future<WorkReport>> reportFutures = new HashMap<>();
-        for (Work work : works) {
-            Future<WorkReport> reportFuture = workExecutor.submit(() -> work.call(workContext));
-            reportFutures.put(work, reportFuture);
-        }
-
-        // poll for work completion
-        int finishedWorks = works.size();
-        // FIXME polling futures for completion, not sure this is the best way to run callables in parallel and wait for them to complete (use CompletionService??)
-        while (finishedWorks > 0) {
-            for (Future<WorkReport> future : reportFutures.values()) {
-                if (future != null && future.isDone()) {
-                        finishedWorks--;
+        BranchReports branches = new BranchReports(works.size());
+        int permits = Math.max(1, Math.min(maxConcurrentBranches, works.size()));
+        Semaphore window = new Semaphore(permits);
+        boolean interrupted = false;
+        for (int index = 0; index < works.size(); index++) {
+            if (!interrupted) {
+                try {
+                    window.acquire();
+                } catch (InterruptedException e) {
+                    interrupted = true;
                 }
             }
-        }
-
-        // gather reports
-        List<WorkReport> workReports = new ArrayList<>();
-        for (Map.Entry<Work, Future<WorkReport>> entry : reportFutures.entrySet()) {
+            if (interrupted) {
+                branches.complete(index, new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                        new InterruptedException("Parallel flow interrupted before branch " + index + " was submitted")));
+                continue;
+            }
+            int branch = index;
+            Callable<WorkReport> callable = WorkExecution.fork(works.get(index), workContext);
             try {
-                workReports.add(entry.getValue().get());
-            } catch (InterruptedException | ExecutionException e) {
-                LOGGER.log(Level.WARNING, "Unable to get report of work unit ''{0}''", entry.getKey().getName());
+                workExecutor.execute(() -> {
+                    try {
+                        branches.complete(branch, AbstractWorkFlow.failIfSuspended(callable.call()));
+                    } catch (Throwable e) {
+                        branches.complete(branch, new DefaultWorkReport(WorkStatus.FAILED, workContext, e));
+                    } finally {
+                        window.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                window.release();
+                branches.complete(branch, new DefaultWorkReport(WorkStatus.FAILED, workContext, e));
             }
         }
+        // wait for the branches in flight
+        window.acquireUninterruptibly(permits);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+        return branches;
+    }
+
+    /**
+     * Unmodifiable reports of the branches, in branch order, with the number of failed
+     * branches and the index of the first branch with an error.
+     */
+    static final class BranchReports extends AbstractList<WorkReport> implements RandomAccess {
+
+        private final WorkReport[] reports;
+        private final AtomicInteger failures = new AtomicInteger();
+        private final AtomicInteger firstError = new AtomicInteger(Integer.MAX_VALUE);
+
+        BranchReports(int size) {
+            this.reports = new WorkReport[size];
+        }
+
+        @Override
+        public WorkReport get(int index) {
+            return reports[index];
+        }
+
+        @Override
+        public int size() {
+            return reports.length;
+        }
+
+        int getFailures() {
+            return failures.get();
+        }
 
-        return workReports;
+        int getFirstError() {
+            return firstError.get();
+        }
+
+        void complete(int index, WorkReport workReport) {
+            reports[index] = workReport;
+            if (workReport == null) {
+                return;
+            }
+            if (workReport.getStatus() == WorkStatus.FAILED) {
+                failures.incrementAndGet();
+            }
+            if (workReport.getError() != null) {
+                firstError.accumulateAndGet(index, Math::min);
+            }
+        }
     }
 }
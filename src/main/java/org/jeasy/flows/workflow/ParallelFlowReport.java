@@ -23,22 +23,30 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.jeasy.flows.work.AbstractWorkReport;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
 import org.jeasy.flows.work.WorkReport;
 import org.jeasy.flows.work.WorkStatus;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Set;
 
 /**
  * Aggregate report of the partial reports of work units executed in a parallel flow.
  *
  * @author Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
  */
-public class ParallelFlowReport implements WorkReport {
+public class ParallelFlowReport extends AbstractWorkReport {
 
     private List<WorkReport> reports;
+    // tracked by the executor, -1 when unknown
+    private int failures = -1;
+    private int firstError = -1;
 
     /**
      * Create a new {@link ParallelFlowReport}.
@@ -54,10 +62,15 @@ public class ParallelFlowReport implements WorkReport {
      */
     public ParallelFlowReport(List<WorkReport> reports) {
         this.reports = reports;
+        if (reports instanceof ParallelFlowExecutor.BranchReports) {
+            ParallelFlowExecutor.BranchReports branchReports = (ParallelFlowExecutor.BranchReports) reports;
+            this.failures = branchReports.getFailures();
+            this.firstError = branchReports.getFirstError();
+        }
     }
 
     /**
-     * Get partial reports.
+     * Get partial reports, in the order of the work units of the parallel flow.
      *
      * @return partial reports
      */
@@ -67,10 +80,14 @@ public class ParallelFlowReport implements WorkReport {
 
     void add(WorkReport workReport) {
         reports.add(workReport);
+        failures = -1;
+        firstError = -1;
     }
 
     void addAll(List<WorkReport> workReports) {
         reports.addAll(workReports);
+        failures = -1;
+        firstError = -1;
     }
 
     /**
@@ -86,6 +103,9 @@ public class ParallelFlowReport implements WorkReport {
      */
     @Override
     public WorkStatus getStatus() {
+        if (failures >= 0) {
+            return failures > 0 ? WorkStatus.FAILED : WorkStatus.COMPLETED;
+        }
         for (WorkReport report : reports) {
             if (report.getStatus().equals(WorkStatus.FAILED)) {
                 return WorkStatus.FAILED;
@@ -101,6 +121,9 @@ public class ParallelFlowReport implements WorkReport {
      */
     @Override
     public Throwable getError() {
+        if (firstError >= 0) {
+            return firstError == Integer.MAX_VALUE ? null : reports.get(firstError).getError();
+        }
         for (WorkReport report : reports) {
             Throwable error = report.getError();
             if (error != null) {
@@ -110,20 +133,65 @@ public class ParallelFlowReport implements WorkReport {
         return null;
     }
 
+    /**
+     * Get statistics of the execution time of the work units executed in parallel.
+     * Only work units whose execution was recorded by the engine are taken into account.
+     *
+     * @return statistics of branch durations, in nanoseconds
+     * @see org.jeasy.flows.engine.WorkFlowEngineBuilder#recordExecutions(boolean)
+     */
+    public ExecutionStatistics getDurationStatistics() {
+        return statistics(false);
+    }
+
+    /**
+     * Get statistics of the time work units executed in parallel waited for an executor thread.
+     * Only work units whose execution was recorded by the engine are taken into account.
+     *
+     * @return statistics of branch queue waits, in nanoseconds
+     * @see org.jeasy.flows.engine.WorkFlowEngineBuilder#recordExecutions(boolean)
+     */
+    public ExecutionStatistics getQueueWaitStatistics() {
+        return statistics(true);
+    }
+
+    private ExecutionStatistics statistics(boolean queueWait) {
+        int count = 0;
+        for (WorkReport report : reports) {
+            if (report.getWorkExecution() != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return ExecutionStatistics.EMPTY;
+        }
+        long[] values = new long[count];
+        int i = 0;
+        for (WorkReport report : reports) {
+            WorkExecution workExecution = report.getWorkExecution();
+            if (workExecution != null && i < count) {
+                values[i++] = queueWait ? workExecution.getQueueWaitNanos() : workExecution.getDurationNanos();
+            }
+        }
+        return new ExecutionStatistics(i == count ? values : Arrays.copyOf(values, i));
+    }
+
     /**
      * The parallel flow context is the union of all partial contexts. In a parallel
      * flow, each work unit should have its own unique keys to avoid key overriding
-     * when merging partial contexts.
+     * when merging partial contexts. Accumulators sharing a key, like
+     * {@link WorkContext#longAdder(String)}, are merged instead.
      * 
      * @return the union of all partial contexts
      */
     @Override
     public WorkContext getWorkContext() {
         WorkContext workContext = new WorkContext();
+        Set<WorkContext> partialContexts = Collections.newSetFromMap(new IdentityHashMap<>());
         for (WorkReport report : reports) {
             WorkContext partialContext = report.getWorkContext();
-            for (Map.Entry<String, Object> entry : partialContext.getEntrySet()) {
-                workContext.put(entry.getKey(), entry.getValue());
+            if (partialContexts.add(partialContext)) {
+                workContext.merge(partialContext);
             }
         }
         return workContext;
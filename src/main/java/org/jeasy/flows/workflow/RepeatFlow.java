@@ -24,8 +24,10 @@
 package org.jeasy.flows.workflow;
 
 import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.SuspendedWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
 import org.jeasy.flows.work.WorkReportPredicate;
 import org.jeasy.flows.work.WorkReport;
 
@@ -38,13 +40,15 @@ import java.util.UUID;
  */
 public class RepeatFlow extends AbstractWorkFlow {
 
-    private Work work;
-    private WorkReportPredicate predicate;
+    final Work work;
+    final WorkReportPredicate predicate;
+    final int times;
 
-    RepeatFlow(String name, Work work, WorkReportPredicate predicate) {
+    RepeatFlow(String name, Work work, WorkReportPredicate predicate, int times) {
         super(name);
         this.work = work;
         this.predicate = predicate;
+        this.times = times;
     }
 
     /**
@@ -52,9 +56,13 @@ public class RepeatFlow extends AbstractWorkFlow {
      */
     public WorkReport call(WorkContext workContext) {
         WorkReport workReport;
+        int iteration = 0;
         do {
-            workReport = work.call(workContext);
-        } while (predicate.apply(workReport));
+            workReport = WorkExecution.call(work, workContext, ++iteration);
+            if (workReport instanceof SuspendedWorkReport) {
+                return failIfSuspended(workReport);
+            }
+        } while (times > 0 ? iteration < times : predicate.apply(workReport));
         return workReport;
     }
 
@@ -63,6 +71,7 @@ public class RepeatFlow extends AbstractWorkFlow {
         private String name;
         private Work work;
         private WorkReportPredicate predicate;
+        private int times;
 
         private Builder() {
             this.name = UUID.randomUUID().toString();
@@ -84,17 +93,26 @@ public class RepeatFlow extends AbstractWorkFlow {
             return this;
         }
 
+        /**
+         * Repeat the work the given number of times. Iterations are counted
+         * per run, so the flow can be run any number of times.
+         *
+         * @param times number of times to execute the work
+         * @return this builder
+         */
         public RepeatFlow.Builder times(int times) {
-            return until(WorkReportPredicate.TimesPredicate.times(times));
+            this.times = times;
+            return this;
         }
 
         public RepeatFlow.Builder until(WorkReportPredicate predicate) {
             this.predicate = predicate;
+            this.times = 0;
             return this;
         }
 
         public RepeatFlow build() {
-            return new RepeatFlow(name, work, predicate);
+            return new RepeatFlow(name, work, predicate, times);
         }
     }
 }
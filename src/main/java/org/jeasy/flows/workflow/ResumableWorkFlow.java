@@ -0,0 +1,70 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.SuspendedWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+
+/**
+ * A workflow able to resume a run suspended by one of its (direct or indirect) work units.
+ *
+ * @see SuspendedWorkReport
+ */
+public interface ResumableWorkFlow extends WorkFlow {
+
+    /**
+     * Resume a suspended run right after the suspended work unit.
+     *
+     * @param workContext of the run
+     * @param suspension report returned by this flow when the run has been suspended
+     * @param depth of this flow in the suspension path, 0 if it is the flow run by the engine
+     * @return the report of this flow, which may be a new suspension
+     */
+    WorkReport resume(WorkContext workContext, SuspendedWorkReport suspension, int depth);
+
+    /**
+     * Resume the given child of a flow. If the child is the suspended work unit itself,
+     * it is considered completed.
+     *
+     * @param work child of the resumed flow
+     * @param workContext of the run
+     * @param suspension report of the suspended run
+     * @param depth of the child in the suspension path
+     * @return the report of the child
+     */
+    static WorkReport resume(Work work, WorkContext workContext, SuspendedWorkReport suspension, int depth) {
+        if (depth == suspension.getDepth()) {
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        }
+        if (!(work instanceof ResumableWorkFlow)) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext,
+                    new IllegalStateException("Work unit '" + work.getName() + "' can not be resumed"));
+        }
+        return ((ResumableWorkFlow) work).resume(workContext, suspension, depth);
+    }
+}
@@ -23,8 +23,10 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.jeasy.flows.work.SuspendedWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
 import org.jeasy.flows.work.WorkReport;
 
 import java.util.ArrayList;
@@ -39,14 +41,15 @@ import static org.jeasy.flows.work.WorkStatus.FAILED;
  * A sequential flow executes a set of work units in sequence.
  *
  * If a init of work fails, next work units in the pipeline will be skipped.
+ * If a unit of work suspends the run, the flow can be resumed after it.
  *
  * @author Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
  */
-public class SequentialFlow extends AbstractWorkFlow {
+public class SequentialFlow extends AbstractWorkFlow implements ResumableWorkFlow {
 
     private static final Logger LOGGER = Logger.getLogger(SequentialFlow.class.getName());
 
-    private List<Work> works = new ArrayList<>();
+    final List<Work> works = new ArrayList<>();
 
     SequentialFlow(String name, List<Work> works) {
         super(name);
@@ -57,9 +60,31 @@ public class SequentialFlow extends AbstractWorkFlow {
      * {@inheritDoc}
      */
     public WorkReport call(WorkContext workContext) {
-        WorkReport workReport = null;
-        for (Work work : works) {
-            workReport = work.call(workContext);
+        return callFrom(0, null, workContext);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public WorkReport resume(WorkContext workContext, SuspendedWorkReport suspension, int depth) {
+        int position = suspension.getPosition(depth);
+        WorkReport workReport = ResumableWorkFlow.resume(works.get(position), workContext, suspension, depth + 1);
+        if (workReport instanceof SuspendedWorkReport) {
+            return ((SuspendedWorkReport) workReport).enclosedBy(position);
+        }
+        if (FAILED.equals(workReport.getStatus())) {
+            return workReport;
+        }
+        return callFrom(position + 1, workReport, workContext);
+    }
+
+    private WorkReport callFrom(int start, WorkReport workReport, WorkContext workContext) {
+        for (int i = start; i < works.size(); i++) {
+            Work work = works.get(i);
+            workReport = WorkExecution.call(work, workContext);
+            if (workReport instanceof SuspendedWorkReport) {
+                return ((SuspendedWorkReport) workReport).enclosedBy(i);
+            }
             if (workReport != null && FAILED.equals(workReport.getStatus())) {
                 LOGGER.log(Level.INFO, "Work unit ''{0}'' has failed, skipping subsequent work units", work.getName());
                 break;
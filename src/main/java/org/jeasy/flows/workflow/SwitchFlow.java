@@ -0,0 +1,207 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.SuspendedWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkReport;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * A switch flow executes a first work, extracts a key from its report and executes
+ * the work registered for this key, or a default work if no work is registered for it.
+ *
+ * Branches are looked up in a table indexed by enum ordinal when all keys are constants
+ * of the same enum, and in a hash table otherwise, so each run pays a single lookup
+ * whatever the number of branches.
+ *
+ * @see SwitchFlow.Builder
+ */
+public class SwitchFlow extends AbstractWorkFlow {
+
+    private final Work toExecute;
+    private final Function<WorkReport, ?> keyExtractor;
+    private final Map<Object, Work> cases;
+    private final Work[] enumCases;
+    private final Class<?> enumType;
+    private final Work defaultWork;
+
+    SwitchFlow(String name, Work toExecute, Function<WorkReport, ?> keyExtractor, Map<Object, Work> cases, Work defaultWork) {
+        super(name);
+        this.toExecute = toExecute;
+        this.keyExtractor = keyExtractor;
+        this.defaultWork = defaultWork;
+        this.enumType = enumType(cases);
+        if (enumType != null) {
+            this.enumCases = new Work[enumType.getEnumConstants().length];
+            for (Map.Entry<Object, Work> entry : cases.entrySet()) {
+                enumCases[((Enum<?>) entry.getKey()).ordinal()] = entry.getValue();
+            }
+            this.cases = null;
+        } else {
+            this.enumCases = null;
+            this.cases = new HashMap<>(cases);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public WorkReport call(WorkContext workContext) {
+        WorkReport workReport = WorkExecution.call(toExecute, workContext);
+        if (workReport instanceof SuspendedWorkReport) {
+            return failIfSuspended(workReport);
+        }
+        Work next = select(keyExtractor.apply(workReport));
+        if (next != null && !(next instanceof NoOpWork)) {
+            workReport = failIfSuspended(WorkExecution.call(next, workContext));
+        }
+        return workReport;
+    }
+
+    private Work select(Object key) {
+        Work work;
+        if (key == null) {
+            work = null;
+        } else if (enumCases != null) {
+            work = enumType.isInstance(key) ? enumCases[((Enum<?>) key).ordinal()] : null;
+        } else {
+            work = cases.get(key);
+        }
+        return work != null ? work : defaultWork;
+    }
+
+    private static Class<?> enumType(Map<Object, Work> cases) {
+        Class<?> type = null;
+        for (Object key : cases.keySet()) {
+            if (!(key instanceof Enum)) {
+                return null;
+            }
+            Class<?> keyType = ((Enum<?>) key).getDeclaringClass();
+            if (type != null && type != keyType) {
+                return null;
+            }
+            type = keyType;
+        }
+        return type;
+    }
+
+    public static class Builder {
+
+        private String name;
+        private Work toExecute;
+        private Function<WorkReport, ?> keyExtractor;
+        private Map<Object, Work> cases;
+        private Work defaultWork;
+
+        private Builder() {
+            this.name = UUID.randomUUID().toString();
+            this.toExecute = new NoOpWork();
+            this.keyExtractor = workReport -> null;
+            this.cases = new HashMap<>();
+            this.defaultWork = new NoOpWork();
+        }
+
+        public static SwitchFlow.Builder aNewSwitchFlow() {
+            return new SwitchFlow.Builder();
+        }
+
+        public SwitchFlow.Builder named(String name) {
+            this.name = name;
+            return this;
+        }
+
+        /**
+         * Work to execute before selecting a branch (optional).
+         *
+         * @param work to execute first
+         * @return this builder
+         */
+        public SwitchFlow.Builder execute(Work work) {
+            this.toExecute = work;
+            return this;
+        }
+
+        /**
+         * Key to switch on, extracted from the report of the first work.
+         *
+         * @param keyExtractor function returning the key, which may be null
+         * @return this builder
+         */
+        public SwitchFlow.Builder on(Function<WorkReport, ?> keyExtractor) {
+            this.keyExtractor = keyExtractor;
+            return this;
+        }
+
+        /**
+         * Switch on the value of a context entry.
+         *
+         * @param key of the context entry
+         * @return this builder
+         */
+        public SwitchFlow.Builder onContextKey(String key) {
+            return on(workReport -> workReport.getWorkContext().get(key));
+        }
+
+        /**
+         * Register the work to execute for a key.
+         *
+         * @param key to match, compared with {@link Object#equals(Object)}
+         * @param work to execute
+         * @return this builder
+         * @throws IllegalArgumentException if a work is already registered for this key
+         */
+        public SwitchFlow.Builder when(Object key, Work work) {
+            if (key == null) {
+                throw new IllegalArgumentException("Switch case key must not be null");
+            }
+            if (cases.putIfAbsent(key, work) != null) {
+                throw new IllegalArgumentException("Duplicate switch case '" + key + "'");
+            }
+            return this;
+        }
+
+        /**
+         * Work to execute when no work is registered for the key (optional).
+         *
+         * @param work to execute by default
+         * @return this builder
+         */
+        public SwitchFlow.Builder otherwise(Work work) {
+            this.defaultWork = work;
+            return this;
+        }
+
+        public SwitchFlow build() {
+            return new SwitchFlow(name, toExecute, keyExtractor, cases, defaultWork);
+        }
+    }
+}
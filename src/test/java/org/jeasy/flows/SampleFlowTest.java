@@ -0,0 +1,108 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows;
+
+import org.jeasy.flows.definition.FlowRepository;
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.metrics.MetricsRegistry;
+import org.jeasy.flows.tracing.Tracer;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+/**
+ * Runs a sample flow exercising the main features of the library together: a flow loaded
+ * from a JSON definition, traced and recorded in metrics.
+ */
+public class SampleFlowTest {
+
+    private static final String FLOW = "{\"name\": \"sample\", \"type\": \"sequential\", \"works\": [\n" +
+            "  {\"type\": \"repeat\", \"work\": \"count\", \"times\": 3},\n" +
+            "  {\"type\": \"parallel\", \"executor\": \"parallel\", \"works\": [\"count\", \"count\"]},\n" +
+            "  {\"type\": \"conditional\", \"execute\": \"count\", \"when\": \"COMPLETED\", \"then\": \"count\"}\n" +
+            "]}";
+
+    @Test
+    public void sampleFlowRuns() throws Exception {
+        // given
+        AtomicInteger counter = new AtomicInteger();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        FlowRepository flowRepository = FlowRepository.Builder.aNewFlowRepository()
+                .work("count", new CountingWork(counter))
+                .executorService("parallel", executorService)
+                .build();
+        flowRepository.load("sample.json", new StringReader(FLOW));
+        Tracer tracer = Tracer.Builder.aNewTracer().build();
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .workExecutionListener(tracer)
+                .metricsRegistry(metricsRegistry)
+                .recordExecutions(true)
+                .build();
+
+        // when
+        WorkReport workReport = workFlowEngine.run(flowRepository.getWorkFlow("sample"), new WorkContext());
+        executorService.shutdown();
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workReport.getWorkExecution().getChildren()).hasSize(3);
+        assertThat(counter.get()).isEqualTo(7);
+        assertThat(tracer.getSpans()).hasSize(11);
+        StringBuilder metrics = new StringBuilder();
+        metricsRegistry.writePrometheus(metrics);
+        assertThat(metrics.toString()).contains("easyflows_work_executions_total{work=\"count\",status=\"COMPLETED\"} 7\n");
+    }
+
+    static class CountingWork implements Work {
+
+        private final AtomicInteger counter;
+
+        CountingWork(AtomicInteger counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public String getName() {
+            return "count";
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            counter.incrementAndGet();
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.analysis;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkExecution;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.jeasy.flows.workflow.RepeatFlow;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.RepeatFlow.Builder.aNewRepeatFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class CriticalPathAnalyzerTest {
+
+    @Test
+    public void criticalPathGoesThroughTheSlowestParallelBranch() {
+        // given
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        ParallelFlow parallelFlow = aNewParallelFlow(executorService)
+                .named("parallel")
+                .execute(sleep("fast", 5), sleep("slow", 50))
+                .build();
+        SequentialFlow sequentialFlow = aNewSequentialFlow()
+                .named("flow")
+                .execute(sleep("first", 5))
+                .then(parallelFlow)
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().recordExecutions(true).build();
+
+        // when
+        WorkReport workReport = workFlowEngine.run(sequentialFlow, new WorkContext());
+        executorService.shutdown();
+        CriticalPath criticalPath = CriticalPathAnalyzer.analyze(workReport);
+
+        // then
+        assertThat(criticalPath.getPath()).extracting(workExecution -> workExecution.getWork().getName())
+                .containsExactly("flow", "first", "parallel", "slow");
+        Map<String, Long> slacks = criticalPath.getBranchSlacks().entrySet().stream()
+                .collect(Collectors.toMap(entry -> entry.getKey().getWork().getName(), Map.Entry::getValue));
+        assertThat(slacks.get("slow")).isZero();
+        assertThat(slacks.get("fast")).isGreaterThan(TimeUnit.MILLISECONDS.toNanos(20));
+        assertThat(criticalPath.getWallTimeNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(55));
+        assertThat(criticalPath.getQueuedNanos() + criticalPath.getExecutingNanos()).isEqualTo(criticalPath.getWallTimeNanos());
+    }
+
+    @Test
+    public void whenExecutionsAreNotRecorded_thenReportCanNotBeAnalyzed() {
+        // given
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+
+        // when
+        WorkReport workReport = workFlowEngine.run(aNewSequentialFlow().execute(sleep("work", 0)).build(), new WorkContext());
+
+        // then
+        assertThat(workReport.getWorkExecution()).isNull();
+        assertThatThrownBy(() -> CriticalPathAnalyzer.analyze(workReport)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rootExecutionIsAttachedToTheReport() {
+        // given
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().recordExecutions(true).build();
+        SequentialFlow sequentialFlow = aNewSequentialFlow().named("flow").execute(sleep("work", 0)).build();
+
+        // when
+        WorkReport workReport = workFlowEngine.run(sequentialFlow, new WorkContext());
+
+        // then
+        WorkExecution workExecution = workReport.getWorkExecution();
+        assertThat(workExecution.getWork()).isSameAs(sequentialFlow);
+        assertThat(workExecution.getChildren()).hasSize(1);
+        assertThat(workExecution.getChildren().get(0).getThread()).isSameAs(Thread.currentThread());
+    }
+
+    @Test(timeout = 10_000)
+    public void runsWithManyChildrenAreAnalyzedQuickly() {
+        // given
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().recordExecutions(true).build();
+        RepeatFlow repeatFlow = aNewRepeatFlow().named("repeat").repeat(sleep("work", 0)).times(50_000).build();
+
+        // when
+        WorkReport workReport = workFlowEngine.run(repeatFlow, new WorkContext());
+        CriticalPath criticalPath = CriticalPathAnalyzer.analyze(workReport);
+
+        // then
+        assertThat(criticalPath.getPath()).hasSize(50_001);
+        assertThat(criticalPath.getPath().get(0).getWork()).isSameAs(repeatFlow);
+    }
+
+    private static Work sleep(String name, long millis) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                try {
+                    Thread.sleep(millis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.definition;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.FlowOptimizer;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.jeasy.flows.workflow.ParallelFlowReport;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.jeasy.flows.workflow.WorkFlow;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class FlowRepositoryTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(2);
+    private final List<String> executed = Collections.synchronizedList(new ArrayList<>());
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void definitionsAreCompiledIntoFlows() throws Exception {
+        // given
+        FlowRepository flowRepository = repository();
+        String json = "{\"flows\": [\n" +
+                "  {\"name\": \"order\", \"type\": \"sequential\", \"works\": [\"validate\", \"checks\", \"ship\"]},\n" +
+                "  {\"name\": \"checks\", \"type\": \"parallel\", \"executor\": \"io\", \"works\": [\"fraud\", \"stock\"]},\n" +
+                "  {\"name\": \"ship\", \"type\": \"conditional\", \"execute\": \"fraud\", \"when\": \"COMPLETED\",\n" +
+                "   \"then\": {\"type\": \"repeat\", \"work\": \"dispatch\", \"times\": 2}, \"otherwise\": \"cancel\"}\n" +
+                "]}";
+
+        // when
+        flowRepository.load("orders.json", new StringReader(json));
+        WorkFlow order = flowRepository.getWorkFlow("order");
+        WorkReport workReport = order.call(new WorkContext());
+        order.call(new WorkContext());
+
+        // then
+        assertThat(flowRepository.getWorkFlowNames()).containsExactly("checks", "order", "ship");
+        assertThat(order).isInstanceOf(SequentialFlow.class);
+        assertThat(flowRepository.getWorkFlow("checks")).isInstanceOf(ParallelFlow.class);
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(executed).hasSize(12).containsOnly("validate", "fraud", "stock", "dispatch");
+        assertThat(executed.subList(0, 6)).filteredOn("dispatch"::equals).hasSize(2);
+    }
+
+    @Test
+    public void switchDefinitionsMatchContextValues() throws Exception {
+        // given
+        FlowRepository flowRepository = repository();
+        flowRepository.load("route.json", new StringReader("{\"name\": \"route\", \"type\": \"switch\", \"on\": \"channel\"," +
+                " \"cases\": {\"web\": \"validate\", \"2\": \"stock\"}, \"default\": \"cancel\"}"));
+        WorkFlow route = flowRepository.getWorkFlow("route");
+
+        // when
+        WorkContext workContext = new WorkContext();
+        workContext.put("channel", "web");
+        route.call(workContext);
+        workContext.put("channel", 2);
+        route.call(workContext);
+        route.call(new WorkContext());
+
+        // then
+        assertThat(executed).containsExactly("validate", "stock", "cancel");
+    }
+
+    @Test
+    public void invalidDefinitionsAreRejectedWithTheirLocation() throws Exception {
+        // given
+        FlowRepository flowRepository = repository();
+        flowRepository.load("main.json", new StringReader("{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"validate\"]}"));
+
+        // when / then
+        assertThatThrownBy(() -> flowRepository.load("main.json", new StringReader(
+                "{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"validate\", \"unknown\"]}")))
+                .isInstanceOf(FlowDefinitionException.class)
+                .hasMessage("main.json: $.works[1]: unknown work or flow 'unknown'");
+        assertThatThrownBy(() -> flowRepository.load("cycle.json", new StringReader("{\"flows\": [" +
+                "{\"name\": \"a\", \"type\": \"sequential\", \"works\": [\"b\"]}," +
+                "{\"name\": \"b\", \"type\": \"repeat\", \"work\": \"a\", \"until\": \"FAILED\"}]}")))
+                .isInstanceOf(FlowDefinitionException.class)
+                .hasMessageContaining("cyclic flow reference [a, b] -> a");
+        assertThatThrownBy(() -> flowRepository.load("typo.json", new StringReader(
+                "{\"name\": \"typo\", \"type\": \"parallel\", \"executor\": \"io\", \"work\": []}")))
+                .isInstanceOf(FlowDefinitionException.class)
+                .hasMessage("typo.json: $: unknown attribute 'work'");
+        assertThatThrownBy(() -> flowRepository.load("broken.json", new StringReader("{\"name\": \"main\",\n \"type\" \"sequential\"}")))
+                .isInstanceOf(FlowDefinitionException.class)
+                .hasMessage("broken.json:2:9: expected ':'");
+        assertThat(flowRepository.getWorkFlowNames()).containsExactly("main");
+    }
+
+    @Test
+    public void watchedDirectoryIsReloadedAtomically() throws Exception {
+        // given
+        FlowRepository flowRepository = repository();
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path file = directory.resolve("flows.json");
+        write(file, "{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"validate\"]}", 1);
+
+        try (Closeable ignored = flowRepository.watch(directory, 10, TimeUnit.MILLISECONDS)) {
+            WorkFlow inFlight = flowRepository.getWorkFlow("main");
+
+            // when
+            write(file, "{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"stock\"]}", 2);
+            WorkFlow reloaded = awaitChange(flowRepository, inFlight);
+            write(directory.resolve("other.json"), "{\"name\": \"other\", \"type\": \"oops\"}", 3);
+            Thread.sleep(100);
+
+            // then
+            inFlight.call(new WorkContext());
+            reloaded.call(new WorkContext());
+            assertThat(executed).containsExactly("validate", "stock");
+            assertThat(flowRepository.getWorkFlowNames()).containsExactly("main");
+            assertThat(flowRepository.getWorkFlow("main")).isSameAs(reloaded);
+        }
+    }
+
+    @Test
+    public void failedReloadsAreRetriedWithTheirCoChangedFiles() throws Exception {
+        // given
+        FlowRepository flowRepository = repository();
+        Path directory = temporaryFolder.getRoot().toPath();
+        Path file = directory.resolve("flows.json");
+        Path other = directory.resolve("other.json");
+        write(file, "{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"validate\"]}", 1);
+
+        try (Closeable ignored = flowRepository.watch(directory, 10, TimeUnit.MILLISECONDS)) {
+            WorkFlow initial = flowRepository.getWorkFlow("main");
+            write(file, "{\"name\": \"main\", \"type\": \"sequential\", \"works\": [\"stock\"]}", 2);
+            write(other, "{\"name\": \"other\", \"type\": \"sequ", 2);
+            Thread.sleep(100);
+            assertThat(flowRepository.getWorkFlow("main")).isSameAs(initial);
+
+            // when the half-written file is completed, without a new modification time
+            write(other, "{\"name\": \"other\", \"type\": \"sequential\", \"works\": [\"dispatch\"]}", 2);
+            WorkFlow reloaded = awaitChange(flowRepository, initial);
+
+            // then
+            reloaded.call(new WorkContext());
+            assertThat(executed).containsExactly("stock");
+            assertThat(flowRepository.getWorkFlowNames()).containsExactly("main", "other");
+        }
+    }
+
+    @Test
+    public void compiledFlowsAreOptimized() throws Exception {
+        // given
+        FlowRepository flowRepository = FlowRepository.Builder.aNewFlowRepository()
+                .works(work("validate", WorkStatus.COMPLETED), work("stock", WorkStatus.COMPLETED))
+                .executorService("io", executorService)
+                .optimizer(FlowOptimizer.Builder.aNewFlowOptimizer().build())
+                .build();
+        String json = "{\"name\": \"order\", \"type\": \"sequential\", \"works\": [\"validate\",\n" +
+                "  {\"type\": \"sequential\", \"works\": [{\"type\": \"parallel\", \"executor\": \"io\", \"works\": [\"stock\"]}]}\n" +
+                "]}";
+
+        // when
+        flowRepository.load("order.json", new StringReader(json));
+        WorkFlow order = flowRepository.getWorkFlow("order");
+        WorkReport workReport = order.call(new WorkContext());
+
+        // then
+        assertThat(order.getName()).isEqualTo("order");
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workReport).isInstanceOf(ParallelFlowReport.class);
+        assertThat(executed).containsExactly("validate", "stock");
+    }
+
+    private FlowRepository repository() {
+        return FlowRepository.Builder.aNewFlowRepository()
+                .works(work("validate", WorkStatus.COMPLETED), work("fraud", WorkStatus.COMPLETED),
+                        work("stock", WorkStatus.COMPLETED), work("dispatch", WorkStatus.COMPLETED),
+                        work("cancel", WorkStatus.COMPLETED))
+                .executorService("io", executorService)
+                .build();
+    }
+
+    private Work work(String name, WorkStatus status) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                executed.add(name);
+                return new DefaultWorkReport(status, workContext);
+            }
+        };
+    }
+
+    private static void write(Path file, String content, long version) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(version * 1000));
+    }
+
+    private static WorkFlow awaitChange(FlowRepository flowRepository, WorkFlow previous) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flowRepository.getWorkFlow("main") == previous && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        return flowRepository.getWorkFlow("main");
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.WorkFlow;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.AdmissionController.Builder.aNewAdmissionController;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+public class AdmissionControllerTest {
+
+    @Test
+    public void whenMaxInFlightFlowsIsReached_thenRunIsRejected() throws Exception {
+        // given
+        AdmissionController admissionController = aNewAdmissionController()
+                .maxInFlightFlows(1)
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().admissionController(admissionController).build();
+        BlockingWorkFlow blockingWorkFlow = new BlockingWorkFlow();
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+        // when
+        Future<WorkReport> first = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        blockingWorkFlow.started.await(1, TimeUnit.SECONDS);
+        WorkReport rejected = workFlowEngine.run(blockingWorkFlow, new WorkContext());
+        blockingWorkFlow.release.countDown();
+        WorkReport completed = first.get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        // then
+        assertThat(rejected.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(rejected.getError()).isInstanceOf(FlowRejectedException.class);
+        assertThat(completed.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(admissionController.getAdmittedCount()).isEqualTo(1);
+        assertThat(admissionController.getRejectedCount()).isEqualTo(1);
+        assertThat(admissionController.getInFlightFlows()).isZero();
+    }
+
+    @Test
+    public void whenPolicyIsBlock_thenQueuedRunIsAdmittedOnceSlotIsReleased() throws Exception {
+        // given
+        AdmissionController admissionController = aNewAdmissionController()
+                .maxInFlightFlows(1)
+                .queueCapacity(1)
+                .rejectionPolicy(RejectionPolicy.block(5, TimeUnit.SECONDS))
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().admissionController(admissionController).build();
+        BlockingWorkFlow blockingWorkFlow = new BlockingWorkFlow();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        // when
+        Future<WorkReport> first = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        blockingWorkFlow.started.await(1, TimeUnit.SECONDS);
+        Future<WorkReport> second = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        while (admissionController.getQueuedFlows() == 0) {
+            Thread.sleep(1);
+        }
+        WorkReport rejected = workFlowEngine.run(blockingWorkFlow, new WorkContext());
+        blockingWorkFlow.release.countDown();
+
+        // then
+        assertThat(rejected.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(first.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(second.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(admissionController.getAdmittedCount()).isEqualTo(2);
+        assertThat(admissionController.getRejectedCount()).isEqualTo(1);
+        assertThat(admissionController.getTotalQueuedTimeNanos()).isPositive();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void whenPolicyIsShedOldest_thenOldestQueuedRunIsRejected() throws Exception {
+        // given
+        AdmissionController admissionController = aNewAdmissionController()
+                .maxInFlightFlows(1)
+                .queueCapacity(1)
+                .rejectionPolicy(RejectionPolicy.shedOldest(5, TimeUnit.SECONDS))
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().admissionController(admissionController).build();
+        BlockingWorkFlow blockingWorkFlow = new BlockingWorkFlow();
+        ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+        // when
+        Future<WorkReport> first = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        blockingWorkFlow.started.await(1, TimeUnit.SECONDS);
+        Future<WorkReport> oldest = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        while (admissionController.getQueuedFlows() == 0) {
+            Thread.sleep(1);
+        }
+        Future<WorkReport> newest = executorService.submit(() -> workFlowEngine.run(blockingWorkFlow, new WorkContext()));
+        WorkReport shedReport = oldest.get(1, TimeUnit.SECONDS);
+        blockingWorkFlow.release.countDown();
+
+        // then
+        assertThat(shedReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(first.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(newest.get(1, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(admissionController.getShedCount()).isEqualTo(1);
+        executorService.shutdown();
+    }
+
+    static class BlockingWorkFlow implements WorkFlow {
+
+        private final CountDownLatch started = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public String getName() {
+            return "blocking flow";
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        }
+    }
+}
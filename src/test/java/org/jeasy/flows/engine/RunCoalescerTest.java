@@ -0,0 +1,213 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.engine;
+
+import org.jeasy.flows.metrics.MetricsRegistry;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ParallelFlowReport;
+import org.jeasy.flows.workflow.WorkFlow;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+
+public class RunCoalescerTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+    private final AtomicInteger executions = new AtomicInteger();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final WorkFlow workFlow = workContext -> {
+        executions.incrementAndGet();
+        await(release);
+        workContext.put("result", "price of " + workContext.get("product"));
+        return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+    };
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void concurrentRunsWithTheSameKeyAreExecutedOnce() throws Exception {
+        // given
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .coalesceRuns((flow, workContext) -> workContext.get("product"))
+                .build();
+        List<WorkContext> workContexts = new ArrayList<>();
+        List<Future<WorkReport>> workReports = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < 8; i++) {
+            WorkContext workContext = new WorkContext();
+            workContext.put("product", "book");
+            workContexts.add(workContext);
+            workReports.add(executorService.submit(() -> workFlowEngine.run(workFlow, workContext)));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // then
+        for (int i = 0; i < 8; i++) {
+            WorkReport workReport = workReports.get(i).get(5, TimeUnit.SECONDS);
+            assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+            assertThat(workReport.getWorkContext()).isSameAs(workContexts.get(i));
+            assertThat(workReport.getWorkContext().get("result")).isEqualTo("price of book");
+        }
+        assertThat(executions.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void runsWithDifferentOrNoKeyAreNotCoalesced() throws Exception {
+        // given
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .coalesceRuns((flow, workContext) -> workContext.get("product"), ContextCopy.SHARED)
+                .metricsRegistry(metricsRegistry)
+                .build();
+        List<Future<WorkReport>> workReports = new ArrayList<>();
+
+        // when
+        for (String product : new String[]{"book", "pen", null, null, "book"}) {
+            WorkContext workContext = new WorkContext();
+            if (product != null) {
+                workContext.put("product", product);
+            }
+            workReports.add(executorService.submit(() -> workFlowEngine.run(workFlow, workContext)));
+        }
+        Thread.sleep(100);
+        release.countDown();
+
+        // then
+        for (Future<WorkReport> workReport : workReports) {
+            assertThat(workReport.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        }
+        assertThat(executions.get()).isEqualTo(4);
+        assertThat(workReports.get(4).get().getWorkContext()).isSameAs(workReports.get(0).get().getWorkContext());
+        StringBuilder metrics = new StringBuilder();
+        metricsRegistry.writePrometheus(metrics);
+        assertThat(metrics.toString()).contains("# TYPE easyflows_coalesced_runs_total counter").contains("easyflows_coalesced_runs_total 1");
+    }
+
+    @Test
+    public void errorsOfTheExecutedRunAreRethrownToCoalescedCallers() throws Exception {
+        // given
+        AssertionError error = new AssertionError("boom");
+        WorkFlow failingWorkFlow = workContext -> {
+            await(release);
+            throw error;
+        };
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .coalesceRuns((flow, workContext) -> "key")
+                .build();
+
+        // when
+        Future<WorkReport> leader = executorService.submit(() -> workFlowEngine.run(failingWorkFlow, new WorkContext()));
+        Thread.sleep(50);
+        Future<WorkReport> follower = executorService.submit(() -> workFlowEngine.run(failingWorkFlow, new WorkContext()));
+        Thread.sleep(50);
+        release.countDown();
+
+        // then
+        assertThat(catchThrowable(() -> leader.get(5, TimeUnit.SECONDS))).hasCause(error);
+        assertThat(catchThrowable(() -> follower.get(5, TimeUnit.SECONDS))).hasCause(error);
+    }
+
+    @Test
+    public void sharedContextCallersGetTheReportOfTheExecutedRun() throws Exception {
+        // given
+        ExecutorService branchExecutor = Executors.newSingleThreadExecutor();
+        Work work = workContext -> {
+            await(release);
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        WorkFlow parallelFlow = aNewParallelFlow(branchExecutor).execute(work).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .coalesceRuns((flow, workContext) -> "key", ContextCopy.SHARED)
+                .recordExecutions(true)
+                .build();
+
+        // when
+        Future<WorkReport> leader = executorService.submit(() -> workFlowEngine.run(parallelFlow, new WorkContext()));
+        Thread.sleep(50);
+        Future<WorkReport> follower = executorService.submit(() -> workFlowEngine.run(parallelFlow, new WorkContext()));
+        Thread.sleep(50);
+        release.countDown();
+
+        // then
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isSameAs(leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ParallelFlowReport.class);
+        branchExecutor.shutdown();
+    }
+
+    @Test
+    public void callersWithTheirOwnContextKeepTheExecutionOfTheRun() throws Exception {
+        // given
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine()
+                .coalesceRuns((flow, workContext) -> workContext.get("product"))
+                .recordExecutions(true)
+                .build();
+        WorkContext followerContext = new WorkContext();
+        followerContext.put("product", "book");
+
+        // when
+        Future<WorkReport> leader = executorService.submit(() -> {
+            WorkContext workContext = new WorkContext();
+            workContext.put("product", "book");
+            return workFlowEngine.run(workFlow, workContext);
+        });
+        Thread.sleep(50);
+        Future<WorkReport> follower = executorService.submit(() -> workFlowEngine.run(workFlow, followerContext));
+        Thread.sleep(50);
+        release.countDown();
+
+        // then
+        WorkReport followerReport = follower.get(5, TimeUnit.SECONDS);
+        assertThat(followerReport.getWorkContext()).isSameAs(followerContext);
+        assertThat(followerReport.getWorkExecution()).isNotNull().isSameAs(leader.get(5, TimeUnit.SECONDS).getWorkExecution());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
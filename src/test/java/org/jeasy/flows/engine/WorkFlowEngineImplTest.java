@@ -23,12 +23,17 @@
  */
 package org.jeasy.flows.engine;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.SuspendedWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
 import org.jeasy.flows.work.WorkReport;
@@ -162,6 +167,147 @@ public class WorkFlowEngineImplTest {
         assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
     }
 
+    @Test
+    public void suspendedRunIsResumedBySignal() {
+        // given
+        List<String> steps = new ArrayList<>();
+        List<String> requests = new ArrayList<>();
+        WorkFlow workflow = aNewSequentialFlow()
+                .execute(step("prepare", steps))
+                .then(aNewConditionalFlow()
+                        .execute(workContext -> SuspendedWorkReport.suspend("approval-42", "approved", workContext)
+                                .onSuspended(() -> requests.add("approval-42")))
+                        .when(workReport -> (Boolean) workReport.getWorkContext().get("approved"))
+                        .then(step("approved", steps))
+                        .otherwise(step("rejected", steps))
+                        .build())
+                .then(step("done", steps))
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+        WorkContext workContext = new WorkContext();
+
+        // when
+        WorkReport suspendedReport = workFlowEngine.run(workflow, workContext);
+
+        // then
+        assertThat(suspendedReport.getStatus()).isEqualTo(WorkStatus.SUSPENDED);
+        assertThat(steps).containsExactly("prepare");
+        assertThat(requests).containsExactly("approval-42");
+        assertThat(workFlowEngine.getSuspendedRuns()).containsExactly("approval-42");
+
+        // when
+        WorkReport workReport = workFlowEngine.signal("approval-42", true);
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workReport.getWorkContext()).isSameAs(workContext);
+        assertThat(steps).containsExactly("prepare", "approved", "done");
+        assertThat(workFlowEngine.getSuspendedRuns()).isEmpty();
+        assertThat(workFlowEngine.signal("approval-42", true)).isNull();
+    }
+
+    @Test
+    public void suspensionInFlowsWhichCanNotBeResumedFailsTheRun() {
+        // given
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        List<String> requests = new ArrayList<>();
+        AtomicInteger iterations = new AtomicInteger();
+        Work suspending = workContext -> {
+            iterations.incrementAndGet();
+            return SuspendedWorkReport.suspend("key-" + workContext.get("id"), workContext)
+                    .onSuspended(() -> requests.add("key-" + workContext.get("id")));
+        };
+        WorkFlow repeatFlow = aNewSequentialFlow()
+                .execute(aNewRepeatFlow().repeat(suspending).times(3).build())
+                .build();
+        WorkFlow parallelFlow = aNewSequentialFlow()
+                .execute(aNewParallelFlow(executorService).execute(suspending, new NoOpWork()).build())
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+        WorkContext repeatContext = new WorkContext();
+        repeatContext.put("id", "repeat");
+        WorkContext parallelContext = new WorkContext();
+        parallelContext.put("id", "parallel");
+
+        // when
+        WorkReport repeatReport = workFlowEngine.run(repeatFlow, repeatContext);
+        int repeatIterations = iterations.get();
+        WorkReport parallelReport = workFlowEngine.run(parallelFlow, parallelContext);
+
+        // then
+        assertThat(repeatReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(repeatReport.getError()).isInstanceOf(IllegalStateException.class).hasMessageContaining("key-repeat");
+        assertThat(repeatIterations).isEqualTo(1);
+        assertThat(parallelReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(parallelReport.getError()).isInstanceOf(IllegalStateException.class).hasMessageContaining("key-parallel");
+        assertThat(workFlowEngine.getSuspendedRuns()).isEmpty();
+        assertThat(requests).isEmpty();
+        executorService.shutdown();
+    }
+
+    @Test
+    public void manySuspendedRunsAreParkedWithoutThreads() {
+        // given
+        int runs = 10_000;
+        WorkFlow workflow = aNewSequentialFlow()
+                .execute(workContext -> SuspendedWorkReport.suspend((String) workContext.get("id"), workContext))
+                .then(aNewSequentialFlow()
+                        .execute(workContext -> SuspendedWorkReport.suspend(workContext.get("id") + "-again", workContext))
+                        .build())
+                .then(workContext -> {
+                    workContext.put("done", true);
+                    return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+                })
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+        int threads = Thread.activeCount();
+
+        // when
+        for (int i = 0; i < runs; i++) {
+            WorkContext workContext = new WorkContext();
+            workContext.put("id", "run-" + i);
+            workFlowEngine.run(workflow, workContext);
+        }
+
+        // then
+        assertThat(workFlowEngine.getSuspendedRuns()).hasSize(runs);
+        assertThat(Thread.activeCount()).isLessThanOrEqualTo(threads);
+        for (int i = 0; i < runs; i++) {
+            assertThat(workFlowEngine.signal("run-" + i, null).getStatus()).isEqualTo(WorkStatus.SUSPENDED);
+        }
+        for (int i = 0; i < runs; i++) {
+            WorkReport workReport = workFlowEngine.signal("run-" + i + "-again", null);
+            assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+            assertThat(workReport.getWorkContext().get("done")).isEqualTo(true);
+        }
+        assertThat(workFlowEngine.getSuspendedRuns()).isEmpty();
+    }
+
+    @Test
+    public void runIsFailedWhenCorrelationKeyIsAlreadyUsed() {
+        // given
+        WorkFlow workflow = aNewSequentialFlow()
+                .execute(workContext -> SuspendedWorkReport.suspend("callback", workContext))
+                .build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+        workFlowEngine.run(workflow, new WorkContext());
+
+        // when
+        WorkReport workReport = workFlowEngine.run(workflow, new WorkContext());
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(workReport.getError()).isInstanceOf(IllegalStateException.class);
+        assertThat(workFlowEngine.getSuspendedRuns()).containsExactly("callback");
+    }
+
+    private static Work step(String name, List<String> steps) {
+        return workContext -> {
+            steps.add(name);
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+    }
+
     static class PrintMessageWork implements Work {
 
         private String message;
@@ -0,0 +1,158 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.executor;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.executor.FairShareExecutorService.Builder.aNewFairShareExecutorService;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+
+public class FairShareExecutorServiceTest {
+
+    private FairShareExecutorService executorService;
+    private CountDownLatch release;
+    private List<String> executions;
+
+    @Before
+    public void setUp() throws Exception {
+        executorService = aNewFairShareExecutorService()
+                .parallelism(1)
+                .weight("heavy", 1)
+                .weight("light", 2)
+                .build();
+        release = new CountDownLatch(1);
+        executions = new CopyOnWriteArrayList<>();
+        CountDownLatch blocked = new CountDownLatch(1);
+        // occupy the single worker so that the following tasks are queued
+        executorService.execute(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        blocked.await(1, TimeUnit.SECONDS);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void higherPriorityTasksAreScheduledFirst() throws Exception {
+        // given
+        submit(SchedulingKey.of(0, "batch"), "batch1");
+        submit(SchedulingKey.of(0, "batch"), "batch2");
+        Future<?> last = submit(SchedulingKey.of(10, "interactive"), "interactive");
+
+        // when
+        release.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(last.isDone()).isTrue();
+        assertThat(executions).containsExactly("interactive", "batch1", "batch2");
+    }
+
+    @Test
+    public void groupsOfTheSamePriorityShareWorkersAccordingToTheirWeight() throws Exception {
+        // given
+        for (int i = 1; i <= 4; i++) {
+            submit(SchedulingKey.of(0, "heavy"), "heavy" + i);
+        }
+        for (int i = 1; i <= 4; i++) {
+            submit(SchedulingKey.of(0, "light"), "light" + i);
+        }
+
+        // when
+        release.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(executions).containsExactly("heavy1", "light1", "light2", "heavy2", "light3", "light4", "heavy3", "heavy4");
+    }
+
+    @Test
+    public void workersSurviveErrorsThrownByTasks() throws Exception {
+        // given
+        SchedulingKey.of(0, "batch").callWith(() -> {
+            executorService.execute(() -> {
+                throw new AssertionError("boom");
+            });
+            return null;
+        });
+        submit(SchedulingKey.of(0, "batch"), "batch1");
+
+        // when
+        release.countDown();
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.SECONDS);
+
+        // then
+        assertThat(executions).containsExactly("batch1");
+    }
+
+    @Test
+    public void parallelFlowBranchesInheritTheSchedulingKeyOfTheRun() {
+        // given
+        release.countDown();
+        Work work = workContext -> {
+            workContext.put("group", SchedulingKey.current().getGroup());
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        ParallelFlow parallelFlow = aNewParallelFlow(executorService).execute(work).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().build();
+        WorkContext workContext = new WorkContext();
+
+        // when
+        workFlowEngine.run(parallelFlow, workContext, SchedulingKey.of(5, "tenant-a"));
+
+        // then
+        assertThat(workContext.get("group")).isEqualTo("tenant-a");
+    }
+
+    private Future<?> submit(SchedulingKey key, String name) {
+        return key.callWith(() -> executorService.submit(() -> executions.add(name)));
+    }
+}
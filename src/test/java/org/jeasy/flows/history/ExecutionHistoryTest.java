@@ -0,0 +1,211 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.history;
+
+import org.assertj.core.api.Assertions;
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ConditionalFlow;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
+public class ExecutionHistoryTest {
+
+    @Test
+    public void recentRunsAreKeptInABoundedRing() {
+        // given
+        ExecutionHistory executionHistory = new ExecutionHistory(3);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().executionHistory(executionHistory).build();
+        SequentialFlow workFlow = SequentialFlow.Builder.aNewSequentialFlow()
+                .named("flow")
+                .execute(new CompletedWork())
+                .build();
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            workFlowEngine.run(workFlow, new WorkContext());
+        }
+
+        // then
+        List<RunSummary> runs = executionHistory.getRecentRuns("flow", 10);
+        Assertions.assertThat(runs).hasSize(3);
+        Assertions.assertThat(runs).extracting(RunSummary::getStatus).containsOnly(WorkStatus.COMPLETED);
+        Assertions.assertThat(runs).extracting(RunSummary::getFlowName).containsOnly("flow");
+        Assertions.assertThat(executionHistory.getRecentRuns("flow", 1)).hasSize(1);
+        Assertions.assertThat(executionHistory.getFlowNames()).containsExactly("flow");
+    }
+
+    @Test
+    public void failedRunsRecordTheFailingWorkAndErrorType() {
+        // given
+        ExecutionHistory executionHistory = new ExecutionHistory(10);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().executionHistory(executionHistory).build();
+        Work failingWork = new FailingWork("failing", new IllegalStateException("boom"));
+        SequentialFlow failingFlow = SequentialFlow.Builder.aNewSequentialFlow()
+                .named("flow")
+                .execute(new CompletedWork())
+                .then(failingWork)
+                .build();
+        SequentialFlow completedFlow = SequentialFlow.Builder.aNewSequentialFlow()
+                .named("flow")
+                .execute(new CompletedWork())
+                .build();
+
+        // when
+        workFlowEngine.run(failingFlow, new WorkContext());
+        workFlowEngine.run(completedFlow, new WorkContext());
+        workFlowEngine.run(completedFlow, new WorkContext());
+        workFlowEngine.run(completedFlow, new WorkContext());
+
+        // then
+        Assertions.assertThat(executionHistory.getFailureRate("flow", Duration.ofMinutes(1))).isEqualTo(0.25);
+        Assertions.assertThat(executionHistory.getFailureRate("unknown", Duration.ofMinutes(1))).isZero();
+        RunSummary failed = executionHistory.getRecentRuns("flow", 10).stream()
+                .filter(run -> run.getStatus() == WorkStatus.FAILED)
+                .findFirst().get();
+        Assertions.assertThat(failed.getFailingWorkName()).isEqualTo("failing");
+        Assertions.assertThat(failed.getErrorType()).isEqualTo(IllegalStateException.class.getName());
+    }
+
+    @Test
+    public void slowestRunsComeFirst() {
+        // given
+        ExecutionHistory executionHistory = new ExecutionHistory(10);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().executionHistory(executionHistory).build();
+        Work sleepingWork = workContext -> {
+            try {
+                Thread.sleep((Integer) workContext.get("sleep"));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        SequentialFlow workFlow = SequentialFlow.Builder.aNewSequentialFlow()
+                .named("flow")
+                .execute(sleepingWork)
+                .build();
+
+        // when
+        for (int sleep : new int[]{1, 30, 10}) {
+            WorkContext workContext = new WorkContext();
+            workContext.put("sleep", sleep);
+            workFlowEngine.run(workFlow, workContext);
+        }
+
+        // then
+        List<RunSummary> slowest = executionHistory.getSlowestRuns("flow", 2);
+        Assertions.assertThat(slowest).hasSize(2);
+        Assertions.assertThat(slowest.get(0).getDurationNanos()).isGreaterThanOrEqualTo(30_000_000L);
+        Assertions.assertThat(slowest.get(1).getDurationNanos()).isBetween(10_000_000L, slowest.get(0).getDurationNanos());
+    }
+
+    @Test
+    public void failuresRecoveredFromAreNotBlamed() {
+        // given
+        ExecutionHistory executionHistory = new ExecutionHistory(10);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().executionHistory(executionHistory).build();
+        SequentialFlow workFlow = SequentialFlow.Builder.aNewSequentialFlow()
+                .named("flow")
+                .execute(ConditionalFlow.Builder.aNewConditionalFlow()
+                        .execute(new FailingWork("check", new IllegalArgumentException()))
+                        .when(WorkReportPredicate.COMPLETED)
+                        .then(new CompletedWork())
+                        .otherwise(new CompletedWork())
+                        .build())
+                .then(new FailingWork("store", new IllegalStateException()))
+                .build();
+
+        // when
+        workFlowEngine.run(workFlow, new WorkContext());
+
+        // then
+        RunSummary run = executionHistory.getRecentRuns("flow", 1).get(0);
+        Assertions.assertThat(run.getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(run.getFailingWorkName()).isEqualTo("store");
+        Assertions.assertThat(run.getErrorType()).isEqualTo(IllegalStateException.class.getName());
+    }
+
+    @Test
+    public void runsOfUntrackedFlowsShareAnOverflowRing() {
+        // given
+        ExecutionHistory executionHistory = new ExecutionHistory(10, 1);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().executionHistory(executionHistory).build();
+
+        // when
+        for (String name : new String[]{"tracked", "other", "another"}) {
+            workFlowEngine.run(SequentialFlow.Builder.aNewSequentialFlow().named(name).execute(new CompletedWork()).build(),
+                    new WorkContext());
+        }
+
+        // then
+        Assertions.assertThat(executionHistory.getFlowNames()).containsExactly("another", "other", "tracked");
+        Assertions.assertThat(executionHistory.getRecentRuns("other", 10)).extracting(RunSummary::getFlowName).containsExactly("other");
+        Assertions.assertThat(executionHistory.getRecentRuns("another", 10)).hasSize(1);
+        Assertions.assertThat(executionHistory.getRecentRuns("tracked", 10)).hasSize(1);
+    }
+
+    static class FailingWork implements Work {
+
+        private final String name;
+        private final Exception error;
+
+        FailingWork(String name, Exception error) {
+            this.name = name;
+            this.error = error;
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            return new DefaultWorkReport(WorkStatus.FAILED, workContext, error);
+        }
+    }
+
+    static class CompletedWork implements Work {
+
+        @Override
+        public String getName() {
+            return "completed";
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        }
+    }
+}
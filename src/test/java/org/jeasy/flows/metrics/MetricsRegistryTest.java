@@ -0,0 +1,146 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.metrics;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void histogramBucketsAreLogarithmic() {
+        assertThat(LatencyHistogram.bucketOf(0)).isEqualTo(0);
+        assertThat(LatencyHistogram.bucketOf(1000)).isEqualTo(0);
+        assertThat(LatencyHistogram.bucketOf(1001)).isEqualTo(1);
+        assertThat(LatencyHistogram.bucketOf(2000)).isEqualTo(1);
+        assertThat(LatencyHistogram.bucketOf(2001)).isEqualTo(2);
+        assertThat(LatencyHistogram.bucketOf(Long.MAX_VALUE)).isEqualTo(LatencyHistogram.BUCKETS);
+
+        LatencyHistogram histogram = new MetricsRegistry().histogram("latency", "latency");
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1500);
+        }
+        histogram.record(1_000_000);
+        assertThat(histogram.getPercentile(50)).isEqualTo(2000);
+        assertThat(histogram.getPercentile(100)).isEqualTo(1_024_000);
+    }
+
+    @Test
+    public void engineMetricsAreWrittenInPrometheusFormat() throws Exception {
+        // given
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        metricsRegistry.monitor("parallel", executorService);
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().metricsRegistry(metricsRegistry).build();
+
+        // when
+        workFlowEngine.run(aNewSequentialFlow()
+                .named("flow")
+                .execute(work("work1", WorkStatus.COMPLETED))
+                .then(aNewParallelFlow(executorService).named("parallel").execute(work("work2", WorkStatus.FAILED)).build())
+                .build(), new WorkContext());
+        executorService.shutdown();
+        executorService.awaitTermination(5, TimeUnit.SECONDS);
+        StringBuilder text = new StringBuilder();
+        metricsRegistry.writePrometheus(text);
+
+        // then
+        assertThat(text.toString())
+                .contains("# TYPE easyflows_flow_runs_total counter\n")
+                .contains("easyflows_flow_runs_total{flow=\"flow\",status=\"FAILED\"} 1\n")
+                .contains("easyflows_flow_runs_total{flow=\"flow\",status=\"COMPLETED\"} 0\n")
+                .contains("easyflows_work_executions_total{work=\"work1\",status=\"COMPLETED\"} 1\n")
+                .contains("easyflows_work_executions_total{work=\"work2\",status=\"FAILED\"} 1\n")
+                .contains("# TYPE easyflows_work_duration_seconds histogram\n")
+                .contains("easyflows_work_duration_seconds_bucket{work=\"work1\",le=\"+Inf\"} 1\n")
+                .contains("easyflows_work_queue_wait_seconds_count{work=\"work2\"} 1\n")
+                .contains("# TYPE easyflows_executor_completed_tasks_total counter\n")
+                .contains("easyflows_executor_completed_tasks_total{executor=\"parallel\"} 1\n");
+    }
+
+    @Test
+    public void metricsAreServedOverHttp() throws Exception {
+        // given
+        MetricsRegistry metricsRegistry = new MetricsRegistry();
+        metricsRegistry.counter("requests_total", "Requests", "path", "/a\"b").add(3);
+
+        // when
+        String body;
+        int status;
+        try (MetricsHttpServer server = new MetricsHttpServer(metricsRegistry, new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + server.getPort() + "/metrics").openConnection();
+            status = connection.getResponseCode();
+            try (InputStream in = connection.getInputStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[4096];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                body = new String(out.toByteArray(), StandardCharsets.UTF_8);
+            }
+        }
+
+        // then
+        assertThat(status).isEqualTo(200);
+        assertThat(body).isEqualTo("# HELP requests_total Requests\n" +
+                "# TYPE requests_total counter\n" +
+                "requests_total{path=\"/a\\\"b\"} 3\n");
+    }
+
+    private static Work work(String name, WorkStatus status) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                return new DefaultWorkReport(status, workContext);
+            }
+        };
+    }
+}
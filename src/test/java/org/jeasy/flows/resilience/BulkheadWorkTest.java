@@ -0,0 +1,96 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class BulkheadWorkTest {
+
+    @Test
+    public void whenBulkheadIsFull_thenWorkIsRejected() throws Exception {
+        // given
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Work blockingWork = workContext -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        Bulkhead bulkhead = new Bulkhead(1);
+        BulkheadWork bulkheadWork = new BulkheadWork(blockingWork, bulkhead, AcquirePolicy.failFast());
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        WorkContext workContext = new WorkContext();
+
+        // when
+        Future<WorkReport> first = executorService.submit(() -> bulkheadWork.call(workContext));
+        started.await(1, TimeUnit.SECONDS);
+        WorkReport rejected = bulkheadWork.call(workContext);
+        release.countDown();
+        WorkReport completed = first.get(1, TimeUnit.SECONDS);
+        executorService.shutdown();
+
+        // then
+        assertThat(rejected.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(rejected.getError()).isInstanceOf(PermitUnavailableException.class);
+        assertThat(completed.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    public void whenWorkFails_thenPermitIsReleased() {
+        // given
+        Work failingWork = workContext -> {
+            throw new IllegalStateException("boom");
+        };
+        Bulkhead bulkhead = new Bulkhead(1);
+        BulkheadWork bulkheadWork = new BulkheadWork(failingWork, bulkhead, AcquirePolicy.failFast());
+
+        // when
+        try {
+            bulkheadWork.call(new WorkContext());
+        } catch (IllegalStateException e) {
+            // expected
+        }
+
+        // then
+        assertThat(bulkhead.getAvailablePermits()).isEqualTo(1);
+    }
+}
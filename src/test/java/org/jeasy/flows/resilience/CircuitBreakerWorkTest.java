@@ -0,0 +1,228 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.resilience.CircuitBreaker.Builder.aNewCircuitBreaker;
+
+public class CircuitBreakerWorkTest {
+
+    @Test
+    public void whenFailureRateReachesThreshold_thenCircuitOpensAndCallsAreShortCircuited() {
+        // given
+        StubWork work = new StubWork(WorkStatus.FAILED, new IllegalStateException("downstream is down"));
+        CircuitBreaker circuitBreaker = aNewCircuitBreaker()
+                .named("downstream")
+                .slidingWindowSize(4)
+                .minimumNumberOfCalls(4)
+                .failureRateThreshold(50)
+                .build();
+        CircuitBreakerWork circuitBreakerWork = new CircuitBreakerWork(work, circuitBreaker);
+        WorkContext workContext = new WorkContext();
+
+        // when
+        for (int i = 0; i < 4; i++) {
+            circuitBreakerWork.call(workContext);
+        }
+        WorkReport workReport = circuitBreakerWork.call(workContext);
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(workReport.getError()).isInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(work.calls.get()).isEqualTo(4);
+    }
+
+    @Test
+    public void whenErrorIsIgnored_thenFailureIsNotRecorded() {
+        // given
+        StubWork work = new StubWork(WorkStatus.FAILED, new IllegalArgumentException("invalid input"));
+        CircuitBreaker circuitBreaker = aNewCircuitBreaker()
+                .slidingWindowSize(2)
+                .minimumNumberOfCalls(2)
+                .ignoreErrors(IllegalArgumentException.class)
+                .build();
+        CircuitBreakerWork circuitBreakerWork = new CircuitBreakerWork(work, circuitBreaker);
+
+        // when
+        for (int i = 0; i < 5; i++) {
+            circuitBreakerWork.call(new WorkContext());
+        }
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(circuitBreaker.getFailureRate()).isEqualTo(0f);
+        assertThat(work.calls.get()).isEqualTo(5);
+    }
+
+    @Test
+    public void whenWaitDurationHasElapsed_thenTrialCallsCloseTheCircuit() throws Exception {
+        // given
+        StubWork work = new StubWork(WorkStatus.FAILED, null);
+        CircuitBreaker circuitBreaker = aNewCircuitBreaker()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(20, TimeUnit.MILLISECONDS)
+                .permittedCallsInHalfOpenState(2)
+                .build();
+        CircuitBreakerWork circuitBreakerWork = new CircuitBreakerWork(work, circuitBreaker);
+        circuitBreakerWork.call(new WorkContext());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        // when
+        Thread.sleep(30);
+        work.status = WorkStatus.COMPLETED;
+        WorkReport trial1 = circuitBreakerWork.call(new WorkContext());
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        WorkReport trial2 = circuitBreakerWork.call(new WorkContext());
+
+        // then
+        assertThat(trial1.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(trial2.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    public void concurrentCallsAfterWaitDurationGetOnlyThePermittedTrialCalls() throws Exception {
+        // given
+        int threads = 16;
+        CircuitBreaker circuitBreaker = aNewCircuitBreaker()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(1, TimeUnit.MILLISECONDS)
+                .permittedCallsInHalfOpenState(2)
+                .build();
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        circuitBreaker.onError(new IllegalStateException("downstream is down"));
+
+        // when
+        List<Integer> permittedCalls = new ArrayList<>();
+        for (int round = 0; round < 500; round++) {
+            Thread.sleep(2);
+            CyclicBarrier barrier = new CyclicBarrier(threads);
+            List<Future<Boolean>> permissions = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                permissions.add(executorService.submit(() -> {
+                    barrier.await();
+                    return circuitBreaker.tryAcquirePermission();
+                }));
+            }
+            int permitted = 0;
+            for (Future<Boolean> permission : permissions) {
+                permitted += permission.get() ? 1 : 0;
+            }
+            permittedCalls.add(permitted);
+            // a failed trial call opens the circuit again
+            circuitBreaker.onError(new IllegalStateException("downstream is still down"));
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(permittedCalls).containsOnly(2);
+    }
+
+    @Test
+    public void concurrentTrialFailuresOpenTheCircuitFromTheFirstFailure() throws Exception {
+        // given
+        int threads = 8;
+        long waitMillis = 200;
+        CircuitBreaker circuitBreaker = aNewCircuitBreaker()
+                .slidingWindowSize(1)
+                .minimumNumberOfCalls(1)
+                .waitDurationInOpenState(waitMillis, TimeUnit.MILLISECONDS)
+                .permittedCallsInHalfOpenState(threads)
+                .build();
+        circuitBreaker.onError(new IllegalStateException("downstream is down"));
+        Thread.sleep(waitMillis + 10);
+        for (int i = 0; i < threads; i++) {
+            assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+        }
+        ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        CyclicBarrier barrier = new CyclicBarrier(threads);
+        List<Future<Long>> failures = new ArrayList<>();
+
+        // when
+        for (int i = 0; i < threads; i++) {
+            failures.add(executorService.submit(() -> {
+                barrier.await();
+                circuitBreaker.onError(new IllegalStateException("downstream is still down"));
+                return System.nanoTime();
+            }));
+        }
+        // the circuit is opened before any of the failures is recorded
+        long firstFailureRecorded = Long.MAX_VALUE;
+        for (Future<Long> failure : failures) {
+            firstFailureRecorded = Math.min(firstFailureRecorded, failure.get());
+        }
+        executorService.shutdown();
+
+        // then
+        assertThat(circuitBreaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(circuitBreaker.tryAcquirePermission()).isFalse();
+        long waitElapsed = firstFailureRecorded + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        while (System.nanoTime() - waitElapsed < 0) {
+            Thread.sleep(1);
+        }
+        assertThat(circuitBreaker.tryAcquirePermission()).isTrue();
+    }
+
+    static class StubWork implements Work {
+
+        private final AtomicInteger calls = new AtomicInteger();
+        private volatile WorkStatus status;
+        private final Throwable error;
+
+        StubWork(WorkStatus status, Throwable error) {
+            this.status = status;
+            this.error = error;
+        }
+
+        @Override
+        public String getName() {
+            return "stub work";
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            calls.incrementAndGet();
+            return new DefaultWorkReport(status, workContext, error);
+        }
+    }
+}
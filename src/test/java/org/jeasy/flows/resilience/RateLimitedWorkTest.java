@@ -0,0 +1,113 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.resilience;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RateLimitedWorkTest {
+
+    @Test
+    public void whenPermitsAreExhaustedWithFailFastPolicy_thenWorkIsNotCalled() {
+        // given
+        CountingWork work = new CountingWork();
+        RateLimiter rateLimiter = new RateLimiter(2, 1, TimeUnit.HOURS, 2);
+        RateLimitedWork rateLimitedWork = new RateLimitedWork(work, rateLimiter, AcquirePolicy.failFast());
+        WorkContext workContext = new WorkContext();
+
+        // when
+        WorkReport report1 = rateLimitedWork.call(workContext);
+        WorkReport report2 = rateLimitedWork.call(workContext);
+        WorkReport report3 = rateLimitedWork.call(workContext);
+
+        // then
+        assertThat(report1.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(report2.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(report3.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(report3.getError()).isInstanceOf(PermitUnavailableException.class);
+        assertThat(work.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void whenPermitsAreExhaustedWithWaitPolicy_thenWorkIsCalledOnceAPermitIsAvailable() {
+        // given
+        CountingWork work = new CountingWork();
+        RateLimiter rateLimiter = new RateLimiter(1, 50, TimeUnit.MILLISECONDS, 1);
+        RateLimitedWork rateLimitedWork = new RateLimitedWork(work, rateLimiter, AcquirePolicy.waitAtMost(1, TimeUnit.SECONDS));
+        WorkContext workContext = new WorkContext();
+
+        // when
+        long start = System.nanoTime();
+        rateLimitedWork.call(workContext);
+        WorkReport workReport = rateLimitedWork.call(workContext);
+        long elapsed = System.nanoTime() - start;
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(work.calls.get()).isEqualTo(2);
+        assertThat(elapsed).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(40));
+    }
+
+    @Test
+    public void whenPermitIsNotAvailableBeforeTimeout_thenWorkIsNotCalled() {
+        // given
+        CountingWork work = new CountingWork();
+        RateLimiter rateLimiter = new RateLimiter(1, 1, TimeUnit.HOURS, 1);
+        RateLimitedWork rateLimitedWork = new RateLimitedWork(work, rateLimiter, AcquirePolicy.waitAtMost(10, TimeUnit.MILLISECONDS));
+        WorkContext workContext = new WorkContext();
+
+        // when
+        rateLimitedWork.call(workContext);
+        WorkReport workReport = rateLimitedWork.call(workContext);
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(work.calls.get()).isEqualTo(1);
+    }
+
+    static class CountingWork implements Work {
+
+        private final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public String getName() {
+            return "counting work";
+        }
+
+        @Override
+        public WorkReport call(WorkContext workContext) {
+            calls.incrementAndGet();
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        }
+    }
+}
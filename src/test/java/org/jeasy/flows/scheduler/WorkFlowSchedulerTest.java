@@ -0,0 +1,198 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.scheduler;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.WorkFlow;
+import org.junit.After;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class WorkFlowSchedulerTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(8);
+    private final WorkFlowScheduler scheduler = WorkFlowScheduler.Builder.aNewWorkFlowScheduler(executorService)
+            .tickDuration(1, TimeUnit.MILLISECONDS)
+            .build();
+
+    @After
+    public void tearDown() {
+        scheduler.close();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void workFlowIsRunOnceAfterDelay() throws Exception {
+        // given
+        CountDownLatch latch = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // when
+        ScheduledRun scheduledRun = scheduler.schedule(workFlow(latch::countDown), WorkContext::new, 50, TimeUnit.MILLISECONDS);
+
+        // then
+        assertThat(latch.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(System.nanoTime() - start).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        awaitRuns(scheduledRun, 1);
+        assertThat(scheduledRun.getLastReport().getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(scheduler.getPendingTimers()).isZero();
+    }
+
+    @Test
+    public void cancelledWorkFlowIsNotRun() throws Exception {
+        // given
+        AtomicInteger runs = new AtomicInteger();
+        ScheduledRun scheduledRun = scheduler.schedule(workFlow(runs::incrementAndGet), WorkContext::new, 50, TimeUnit.MILLISECONDS);
+
+        // when
+        scheduledRun.cancel();
+        Thread.sleep(150);
+
+        // then
+        assertThat(scheduledRun.isCancelled()).isTrue();
+        assertThat(runs.get()).isZero();
+        assertThat(scheduler.getPendingTimers()).isZero();
+    }
+
+    @Test
+    public void overlappingRunsOfTheSameWorkFlowAreSkipped() throws Exception {
+        // given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        WorkFlow slowFlow = workFlow(() -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(50);
+            running.decrementAndGet();
+        });
+
+        // when
+        ScheduledRun scheduledRun = scheduler.scheduleAtFixedRate(slowFlow, WorkContext::new, 0, 10, TimeUnit.MILLISECONDS);
+        Thread.sleep(300);
+        scheduledRun.cancel();
+
+        // then
+        assertThat(maxRunning.get()).isEqualTo(1);
+        assertThat(scheduledRun.getRuns()).isGreaterThanOrEqualTo(2);
+        assertThat(scheduledRun.getSkippedRuns()).isGreaterThan(0);
+    }
+
+    @Test
+    public void concurrentRunsAreLimited() throws Exception {
+        // given
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try (WorkFlowScheduler limitedScheduler = WorkFlowScheduler.Builder.aNewWorkFlowScheduler(executorService)
+                .tickDuration(1, TimeUnit.MILLISECONDS)
+                .maxConcurrentRuns(2)
+                .build()) {
+            List<ScheduledRun> scheduledRuns = new ArrayList<>();
+
+            // when
+            for (int i = 0; i < 6; i++) {
+                WorkFlow slowFlow = workFlow(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    sleep(100);
+                    running.decrementAndGet();
+                });
+                scheduledRuns.add(limitedScheduler.schedule(slowFlow, WorkContext::new, 10, TimeUnit.MILLISECONDS));
+            }
+            Thread.sleep(300);
+
+            // then
+            assertThat(maxRunning.get()).isEqualTo(2);
+            assertThat(scheduledRuns.stream().mapToLong(ScheduledRun::getRuns).sum()).isEqualTo(2);
+            assertThat(scheduledRuns.stream().mapToLong(ScheduledRun::getSkippedRuns).sum()).isEqualTo(4);
+        }
+    }
+
+    @Test
+    public void manyTimersAreFired() throws Exception {
+        // given
+        int timers = 10_000;
+        CountDownLatch latch = new CountDownLatch(timers);
+
+        // when
+        for (int i = 0; i < timers; i++) {
+            scheduler.schedule(workFlow(latch::countDown), WorkContext::new, i % 1000, TimeUnit.MILLISECONDS);
+        }
+
+        // then
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    public void cronExpressionComputesNextRunTime() {
+        // given
+        ZonedDateTime time = ZonedDateTime.of(2024, 1, 31, 10, 7, 30, 0, ZoneOffset.UTC);
+
+        // when / then
+        assertThat(CronExpression.parse("*/15 * * * *", ZoneOffset.UTC).next(time))
+                .isEqualTo(ZonedDateTime.of(2024, 1, 31, 10, 15, 0, 0, ZoneOffset.UTC));
+        assertThat(CronExpression.parse("0 9-17/4 * * 1-5", ZoneOffset.UTC).next(time))
+                .isEqualTo(ZonedDateTime.of(2024, 1, 31, 13, 0, 0, 0, ZoneOffset.UTC));
+        assertThat(CronExpression.parse("30 2 29 2 *", ZoneOffset.UTC).next(time))
+                .isEqualTo(ZonedDateTime.of(2024, 2, 29, 2, 30, 0, 0, ZoneOffset.UTC));
+        // day of month or day of week (Sunday as 7) when both are restricted
+        assertThat(CronExpression.parse("0 0 15 * 7", ZoneOffset.UTC).next(time))
+                .isEqualTo(ZonedDateTime.of(2024, 2, 4, 0, 0, 0, 0, ZoneOffset.UTC));
+        assertThatThrownBy(() -> CronExpression.parse("60 * * * *"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static WorkFlow workFlow(Runnable action) {
+        return workContext -> {
+            action.run();
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+    }
+
+    private static void awaitRuns(ScheduledRun scheduledRun, long runs) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduledRun.getRuns() < runs && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.tracing;
+
+import org.jeasy.flows.engine.WorkFlowEngine;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkStatus;
+import org.jeasy.flows.workflow.ParallelFlow;
+import org.jeasy.flows.workflow.SequentialFlow;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+import static org.jeasy.flows.tracing.Tracer.Builder.aNewTracer;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class TracerTest {
+
+    @Test
+    public void spansAreRecordedForEachWorkWithTheirParent() throws Exception {
+        // given
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        ParallelFlow parallelFlow = aNewParallelFlow(executorService)
+                .named("parallel")
+                .execute(work("work2"), work("work3"))
+                .build();
+        SequentialFlow sequentialFlow = aNewSequentialFlow()
+                .named("sequential")
+                .execute(work("work1"))
+                .then(parallelFlow)
+                .build();
+        Tracer tracer = aNewTracer().build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().workExecutionListener(tracer).build();
+
+        // when
+        workFlowEngine.run(sequentialFlow, new WorkContext());
+        executorService.shutdown();
+
+        // then
+        Map<String, Span> spans = tracer.getSpans().stream().collect(Collectors.toMap(Span::getName, Function.identity()));
+        assertThat(spans).containsOnlyKeys("sequential", "work1", "parallel", "work2", "work3");
+        assertThat(spans.get("sequential").getParentId()).isZero();
+        assertThat(spans.get("work1").getParentId()).isEqualTo(spans.get("sequential").getId());
+        assertThat(spans.get("parallel").getParentId()).isEqualTo(spans.get("sequential").getId());
+        assertThat(spans.get("work2").getParentId()).isEqualTo(spans.get("parallel").getId());
+        assertThat(spans.get("work3").getParentId()).isEqualTo(spans.get("parallel").getId());
+        assertThat(spans.get("work2").getThreadName()).startsWith("pool-");
+        assertThat(spans.get("work1").getStatus()).isEqualTo(WorkStatus.COMPLETED);
+
+        StringBuilder json = new StringBuilder();
+        tracer.writeChromeTrace(json);
+        assertThat(json.toString())
+                .startsWith("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[")
+                .contains("\"name\":\"work2\",\"cat\":\"work\",\"ph\":\"X\"")
+                .contains("\"name\":\"thread_name\",\"ph\":\"M\"")
+                .endsWith("]}");
+    }
+
+    @Test
+    public void whenRunIsNotSampled_thenNoSpanIsRecorded() {
+        // given
+        Tracer tracer = aNewTracer().samplingRate(0).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().workExecutionListener(tracer).build();
+
+        // when
+        workFlowEngine.run(aNewSequentialFlow().execute(work("work1")).build(), new WorkContext());
+
+        // then
+        assertThat(tracer.getSpans()).isEmpty();
+    }
+
+    @Test
+    public void whenBufferIsFull_thenOldestSpansAreOverwritten() {
+        // given
+        Tracer tracer = aNewTracer().bufferCapacity(3).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().workExecutionListener(tracer).build();
+
+        // when
+        workFlowEngine.run(aNewSequentialFlow().named("flow")
+                .execute(work("work1")).then(work("work2")).then(work("work3")).build(), new WorkContext());
+
+        // then
+        List<String> names = tracer.getSpans().stream().map(Span::getName).collect(Collectors.toList());
+        assertThat(names).containsExactly("work2", "work3", "flow");
+    }
+
+    @Test
+    public void spansOfTerminatedThreadsAreKeptInABoundedRing() throws Exception {
+        // given
+        Tracer tracer = aNewTracer().bufferCapacity(2).build();
+        WorkFlowEngine workFlowEngine = aNewWorkFlowEngine().workExecutionListener(tracer).build();
+
+        // when
+        for (int i = 0; i < 10; i++) {
+            Thread thread = new Thread(() -> workFlowEngine.run(aNewSequentialFlow().named("flow")
+                    .execute(work("work")).build(), new WorkContext()), "worker-" + i);
+            thread.start();
+            thread.join();
+        }
+
+        // then
+        List<Span> spans = tracer.getSpans();
+        assertThat(spans).extracting(Span::getName).containsExactly("work", "flow");
+        assertThat(spans).extracting(Span::getThreadName).containsOnly("worker-9");
+        StringBuilder json = new StringBuilder();
+        tracer.writeChromeTrace(json);
+        assertThat(json.toString()).contains("\"worker-9\"").doesNotContain("\"worker-8\"");
+    }
+
+    private static Work work(String name) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public DefaultWorkReport call(WorkContext workContext) {
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+    }
+}
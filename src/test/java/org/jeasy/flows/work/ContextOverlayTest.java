@@ -0,0 +1,90 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import org.assertj.core.api.Assertions;
+import org.junit.Test;
+
+public class ContextOverlayTest {
+
+    @Test
+    public void commitAppliesWritesAndMergesAccumulators() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.put("kept", 1);
+        workContext.put("removed", 2);
+        workContext.longAdder("count").add(10);
+        ContextOverlay overlay = workContext.overlay();
+
+        // when
+        overlay.put("added", 3);
+        overlay.remove("removed");
+        overlay.longAdder("count").add(5);
+
+        // then
+        Assertions.assertThat(workContext.get("added")).isNull();
+        Assertions.assertThat(workContext.longAdder("count").sum()).isEqualTo(10);
+        Assertions.assertThat(overlay.get("kept")).isEqualTo(1);
+        Assertions.assertThat(overlay.get("removed")).isNull();
+        Assertions.assertThat(overlay.isConsistent()).isTrue();
+        overlay.commit();
+        Assertions.assertThat(workContext.get("added")).isEqualTo(3);
+        Assertions.assertThat(workContext.get("removed")).isNull();
+        Assertions.assertThat(workContext.longAdder("count").sum()).isEqualTo(15);
+    }
+
+    @Test
+    public void overlayIsInconsistentWhenAReadValueChanged() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.put("id", "a");
+        ContextOverlay overlay = workContext.overlay();
+        overlay.get("id");
+        overlay.get("missing");
+
+        // when
+        workContext.put("missing", "b");
+
+        // then
+        Assertions.assertThat(overlay.isConsistent()).isFalse();
+    }
+
+    @Test
+    public void overlayAccumulatorsHoldOnlyTheirDelta() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.longAdder("count").add(10);
+        ContextOverlay overlay = workContext.overlay();
+
+        // when
+        overlay.longAdder("count").add(5);
+        workContext.longAdder("count").add(1);
+
+        // then
+        Assertions.assertThat(overlay.longAdder("count").sum()).isEqualTo(5);
+        Assertions.assertThat(overlay.isConsistent()).isTrue();
+        overlay.commit();
+        Assertions.assertThat(workContext.longAdder("count").sum()).isEqualTo(16);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.work;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+public class ValueStoreTest {
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void largeValuesAreMovedOffHeapThenSpilledUnderBudget() throws Exception {
+        // given
+        Path spillDirectory = temporaryFolder.getRoot().toPath();
+        ValueStore valueStore = ValueStore.Builder.aNewValueStore()
+                .offHeapThreshold(1024)
+                .offHeapBudget(3000)
+                .spillDirectory(spillDirectory)
+                .build();
+        WorkContext workContext = new WorkContext(valueStore);
+
+        // when
+        workContext.putBytes("small", bytes(100));
+        workContext.putBytes("large", bytes(2000));
+        workContext.putBytes("larger", bytes(2000));
+
+        // then
+        assertThat(workContext.getBytes("small").isDirect()).isFalse();
+        assertThat(workContext.getBytes("large").isDirect()).isTrue();
+        assertThat(workContext.getBytes("larger")).isInstanceOf(MappedByteBuffer.class);
+        assertThat(workContext.getBytes("larger")).isEqualTo(bytes(2000));
+        assertThat(valueStore.getOffHeapBytes()).isEqualTo(2000);
+        assertThat(valueStore.getMappedBytes()).isEqualTo(2000);
+        assertThat(files(spillDirectory)).isEqualTo(1);
+
+        // when
+        workContext.release();
+
+        // then
+        assertThat(valueStore.getOffHeapBytes()).isZero();
+        assertThat(valueStore.getMappedBytes()).isZero();
+        assertThat(files(spillDirectory)).isZero();
+        assertThat(workContext.getBytes("large")).isEqualTo(bytes(2000));
+    }
+
+    @Test
+    public void viewsAreIndependentAndReplacedValuesAreReleased() {
+        // given
+        ValueStore valueStore = ValueStore.Builder.aNewValueStore().offHeapThreshold(10).build();
+        WorkContext workContext = new WorkContext(valueStore);
+        workContext.putBytes("payload", bytes(100));
+
+        // when
+        ByteBuffer first = workContext.getBytes("payload");
+        first.position(50);
+        ByteBuffer second = workContext.getBytes("payload");
+
+        // then
+        assertThat(second.position()).isZero();
+        assertThat(second.isReadOnly()).isTrue();
+        assertThat(second.get(99)).isEqualTo((byte) 99);
+
+        // when
+        workContext.putBytes("payload", bytes(40));
+        workContext.put("other", "value");
+        workContext.remove("other");
+
+        // then
+        assertThat(valueStore.getOffHeapBytes()).isEqualTo(40);
+
+        // when
+        workContext.put("payload", "replaced");
+
+        // then
+        assertThat(valueStore.getOffHeapBytes()).isZero();
+        assertThat(workContext.get("payload")).isEqualTo("replaced");
+    }
+
+    private static ByteBuffer bytes(int size) {
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            buffer.put((byte) i);
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    @Test
+    public void concurrentPutsOfTheSameKeyKeepBudgetAccountingExact() throws Exception {
+        // given
+        ValueStore valueStore = ValueStore.Builder.aNewValueStore()
+                .offHeapThreshold(1024)
+                .offHeapBudget(1024 * 1024)
+                .build();
+        WorkContext workContext = new WorkContext(valueStore);
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+
+        // when
+        Future<?> binaryPuts = executorService.submit(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                workContext.putBytes("key", bytes(2000));
+            }
+        });
+        Future<?> puts = executorService.submit(() -> {
+            for (int i = 0; i < 10_000; i++) {
+                workContext.put("key", "value");
+            }
+        });
+        binaryPuts.get();
+        puts.get();
+        executorService.shutdown();
+
+        // then
+        Object value = workContext.get("key");
+        assertThat(valueStore.getOffHeapBytes()).isEqualTo(value instanceof ByteBuffer ? 2000 : 0);
+        workContext.release();
+        assertThat(valueStore.getOffHeapBytes()).isZero();
+    }
+
+    @Test
+    public void getBytesOfAnEntryWhichIsNotBinaryIsRejected() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.put("text", "value");
+
+        // when
+        Throwable thrown = catchThrowable(() -> workContext.getBytes("text"));
+
+        // then
+        assertThat(thrown).isInstanceOf(IllegalStateException.class).hasMessageContaining("text");
+        assertThat(workContext.getBytes("missing")).isNull();
+    }
+
+    @Test
+    public void nullValuesAreRejectedWithOrWithoutStore() {
+        // given
+        WorkContext workContext = new WorkContext();
+        WorkContext storeContext = new WorkContext(ValueStore.Builder.aNewValueStore().build());
+
+        // when
+        Throwable thrown = catchThrowable(() -> workContext.put("key", null));
+        Throwable thrownWithStore = catchThrowable(() -> storeContext.put("key", null));
+
+        // then
+        assertThat(thrown).isInstanceOf(NullPointerException.class);
+        assertThat(thrownWithStore).isInstanceOf(NullPointerException.class);
+    }
+
+    private static long files(Path directory) throws Exception {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Guards the hot paths of flows against allocation regressions: the bytes allocated per run
+ * of canonical flows, measured with thread allocation counters, must stay within the budgets
+ * recorded in {@code allocation-budgets.properties}. Budgets are only checked on the JDKs they were
+ * measured on, and not when classes are instrumented for coverage.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARMUP_RUNS = 20_000;
+    private static final int MEASURED_RUNS = 10_000;
+    private static final List<String> MEASURED_JAVA_VERSIONS = Arrays.asList("1.8", "11", "17", "21");
+
+    private static com.sun.management.ThreadMXBean threadMXBean;
+    private static final List<Thread> executorThreads = new CopyOnWriteArrayList<>();
+    private static ExecutorService executorService;
+    private static Properties budgets;
+
+    private final Work work = workContext -> new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+    private final Work putting = workContext -> {
+        workContext.put("status", "done");
+        return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+    };
+
+    @BeforeClass
+    public static void setUp() throws IOException {
+        assumeTrue(MEASURED_JAVA_VERSIONS.contains(System.getProperty("java.specification.version")));
+        assumeFalse(isInstrumentedForCoverage());
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        threadMXBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadMXBean.isThreadAllocatedMemorySupported());
+        threadMXBean.setThreadAllocatedMemoryEnabled(true);
+        executorService = Executors.newFixedThreadPool(4, runnable -> {
+            Thread thread = new Thread(runnable);
+            executorThreads.add(thread);
+            return thread;
+        });
+        budgets = new Properties();
+        try (InputStream budgetsStream = AllocationBudgetTest.class.getResourceAsStream("/allocation-budgets.properties")) {
+            budgets.load(budgetsStream);
+        }
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        if (executorService != null) {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    public void sequentialFlow() {
+        assertWithinBudget("sequential", SequentialFlow.Builder.aNewSequentialFlow()
+                .execute(putting)
+                .then(work)
+                .then(work)
+                .build());
+    }
+
+    @Test
+    public void parallelFlow() {
+        assertWithinBudget("parallel", ParallelFlow.Builder.aNewParallelFlow(executorService)
+                .execute(work, work, work, work)
+                .build());
+    }
+
+    @Test
+    public void conditionalFlow() {
+        assertWithinBudget("conditional", ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(work)
+                .when(WorkReportPredicate.COMPLETED)
+                .then(work)
+                .otherwise(work)
+                .build());
+    }
+
+    @Test
+    public void repeatFlow() {
+        assertWithinBudget("repeat", RepeatFlow.Builder.aNewRepeatFlow()
+                .repeat(work)
+                .times(10)
+                .build());
+    }
+
+    private void assertWithinBudget(String flow, WorkFlow workFlow) {
+        WorkContext workContext = new WorkContext();
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            run(workFlow, workContext);
+        }
+        long before = allocatedBytes();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            run(workFlow, workContext);
+        }
+        long bytesPerRun = (allocatedBytes() - before) / MEASURED_RUNS;
+        long budget = Long.parseLong(budgets.getProperty(flow));
+        assertThat(bytesPerRun)
+                .as("%d bytes allocated per run of the %s flow, see allocation-budgets.properties", bytesPerRun, flow)
+                .isLessThanOrEqualTo(budget);
+    }
+
+    private static void run(WorkFlow workFlow, WorkContext workContext) {
+        WorkReport workReport = workFlow.call(workContext);
+        if (workReport.getStatus() != WorkStatus.COMPLETED) {
+            throw new IllegalStateException("Flow has failed: " + workReport);
+        }
+    }
+
+    private static boolean isInstrumentedForCoverage() {
+        try {
+            Class.forName("net.sourceforge.cobertura.coveragedata.TouchCollector");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    private static long allocatedBytes() {
+        long bytes = threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        for (Thread thread : executorThreads) {
+            bytes += Math.max(0, threadMXBean.getThreadAllocatedBytes(thread.getId()));
+        }
+        return bytes;
+    }
+}
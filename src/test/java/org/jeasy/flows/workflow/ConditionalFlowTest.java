@@ -23,12 +23,24 @@
  */
 package org.jeasy.flows.workflow;
 
+import org.assertj.core.api.Assertions;
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.SideEffectFreeWork;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
 import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.work.WorkStatus;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 public class ConditionalFlowTest {
 
     @Test
@@ -81,4 +93,191 @@ public class ConditionalFlowTest {
         Mockito.verify(nextOnPredicateSuccess, Mockito.never()).call(workContext);
     }
 
+    @Test
+    public void speculativeCallCommitsSelectedBranchAndCancelsTheOther() throws Exception {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        CountDownLatch otherwiseStarted = new CountDownLatch(1);
+        CountDownLatch otherwiseCancelled = new CountDownLatch(1);
+        Work toExecute = workContext -> {
+            await(otherwiseStarted);
+            workContext.put("checked", true);
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        Work then = new SideEffectFreeWork(workContext -> {
+            workContext.put("result", "then");
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        Work otherwise = new SideEffectFreeWork(workContext -> {
+            workContext.put("result", "otherwise");
+            otherwiseStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                otherwiseCancelled.countDown();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        ConditionalFlow conditionalFlow = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(toExecute)
+                .when(WorkReportPredicate.COMPLETED)
+                .then(then)
+                .otherwise(otherwise)
+                .speculate(executor)
+                .build();
+        WorkContext workContext = new WorkContext();
+
+        // when
+        WorkReport report = conditionalFlow.call(workContext);
+
+        // then
+        Assertions.assertThat(report.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        Assertions.assertThat(workContext.get("checked")).isEqualTo(true);
+        Assertions.assertThat(workContext.get("result")).isEqualTo("then");
+        Assertions.assertThat(otherwiseCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        Assertions.assertThat(workContext.get("result")).isEqualTo("then");
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void speculativeCallRunsSelectedBranchAgainWhenItsInputsChanged() {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch thenRead = new CountDownLatch(1);
+        AtomicInteger thenCalls = new AtomicInteger();
+        Work toExecute = workContext -> {
+            await(thenRead);
+            workContext.put("id", 2);
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        Work then = new SideEffectFreeWork(workContext -> {
+            thenCalls.incrementAndGet();
+            workContext.put("fetched", "item-" + workContext.get("id"));
+            thenRead.countDown();
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        ConditionalFlow conditionalFlow = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(toExecute)
+                .when(WorkReportPredicate.COMPLETED)
+                .then(then)
+                .speculate(executor)
+                .build();
+        WorkContext workContext = new WorkContext();
+        workContext.put("id", 1);
+
+        // when
+        conditionalFlow.call(workContext);
+
+        // then
+        Assertions.assertThat(workContext.get("fetched")).isEqualTo("item-2");
+        Assertions.assertThat(thenCalls.get()).isEqualTo(2);
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void speculativeCallOnItsOwnSaturatedExecutorRunsSelectedBranchOnCallingThread() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Work then = new SideEffectFreeWork(workContext -> {
+            workContext.put("result", "then");
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        ConditionalFlow conditionalFlow = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(workContext -> new DefaultWorkReport(WorkStatus.COMPLETED, workContext))
+                .when(WorkReportPredicate.COMPLETED)
+                .then(then)
+                .speculate(executor)
+                .build();
+        WorkContext workContext = new WorkContext();
+
+        // when
+        Future<WorkReport> report = executor.submit(() -> conditionalFlow.call(workContext));
+
+        // then
+        Assertions.assertThat(report.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        Assertions.assertThat(workContext.get("result")).isEqualTo("then");
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void speculativeBranchesAreCancelledWhenTheWorkToExecuteThrows() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch thenStarted = new CountDownLatch(1);
+        CountDownLatch thenCancelled = new CountDownLatch(1);
+        IllegalStateException error = new IllegalStateException("boom");
+        Work then = new SideEffectFreeWork(workContext -> {
+            thenStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                thenCancelled.countDown();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        ConditionalFlow conditionalFlow = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(workContext -> {
+                    await(thenStarted);
+                    throw error;
+                })
+                .when(WorkReportPredicate.COMPLETED)
+                .then(then)
+                .speculate(executor)
+                .build();
+
+        // when
+        Throwable thrown = Assertions.catchThrowable(() -> conditionalFlow.call(new WorkContext()));
+
+        // then
+        Assertions.assertThat(thrown).isSameAs(error);
+        Assertions.assertThat(thenCancelled.await(5, TimeUnit.SECONDS)).isTrue();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void interruptionWhileWaitingForTheSelectedBranchFailsTheFlow() throws Exception {
+        // given
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        CountDownLatch thenStarted = new CountDownLatch(1);
+        AtomicInteger thenCalls = new AtomicInteger();
+        Work then = new SideEffectFreeWork(workContext -> {
+            thenCalls.incrementAndGet();
+            thenStarted.countDown();
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        });
+        Thread caller = Thread.currentThread();
+        ConditionalFlow conditionalFlow = ConditionalFlow.Builder.aNewConditionalFlow()
+                .execute(workContext -> {
+                    await(thenStarted);
+                    caller.interrupt();
+                    return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+                })
+                .when(WorkReportPredicate.COMPLETED)
+                .then(then)
+                .speculate(executor)
+                .build();
+
+        // when
+        WorkReport report = conditionalFlow.call(new WorkContext());
+
+        // then
+        Assertions.assertThat(Thread.interrupted()).isTrue();
+        Assertions.assertThat(report.getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(report.getError()).isInstanceOf(InterruptedException.class);
+        Assertions.assertThat(thenCalls.get()).isEqualTo(1);
+        executor.shutdownNow();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
 }
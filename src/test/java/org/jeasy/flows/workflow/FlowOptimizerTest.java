@@ -0,0 +1,193 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.NoOpWork;
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkReportPredicate;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.jeasy.flows.workflow.ConditionalFlow.Builder.aNewConditionalFlow;
+import static org.jeasy.flows.workflow.FlowOptimizer.Builder.aNewFlowOptimizer;
+import static org.jeasy.flows.workflow.ParallelFlow.Builder.aNewParallelFlow;
+import static org.jeasy.flows.workflow.RepeatFlow.Builder.aNewRepeatFlow;
+import static org.jeasy.flows.workflow.SequentialFlow.Builder.aNewSequentialFlow;
+
+public class FlowOptimizerTest {
+
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+    private final Work a = work("a");
+    private final Work b = work("b");
+    private final Work c = work("c");
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void nestedFlowsAreFlattenedAndNoOpsRemoved() {
+        // given
+        SequentialFlow workFlow = aNewSequentialFlow()
+                .named("root")
+                .execute(a)
+                .then(new NoOpWork())
+                .then(aNewSequentialFlow()
+                        .named("inner")
+                        .execute(b)
+                        .then(aNewParallelFlow(executorService).named("single").execute(c).build())
+                        .build())
+                .build();
+
+        // when
+        FlowOptimizer.Result result = aNewFlowOptimizer().build().optimize(workFlow);
+
+        // then
+        SequentialFlow optimized = (SequentialFlow) result.getWorkFlow();
+        assertThat(optimized.getName()).isEqualTo("root");
+        assertThat(optimized.works).hasSize(3).startsWith(a, b);
+        assertThat(optimized.works.get(2)).isInstanceOf(ParallelFlow.class);
+        assertThat(result.getChanges()).containsExactly(
+                "inlined sequential flow 'inner' into sequential flow 'root'",
+                "removed 1 no-op(s) from sequential flow 'root'");
+        assertSameOutcome(workFlow, optimized);
+    }
+
+    @Test
+    public void conditionalFlowsWithKnownOutcomeAreFolded() {
+        // given
+        SequentialFlow workFlow = aNewSequentialFlow()
+                .named("root")
+                .execute(aNewConditionalFlow().named("always").when(WorkReportPredicate.ALWAYS_TRUE).then(a).otherwise(b).build())
+                .then(aNewConditionalFlow().named("never").execute(b).when(WorkReportPredicate.ALWAYS_FALSE).then(c).build())
+                .then(aNewConditionalFlow().named("kept").execute(c).when(WorkReportPredicate.COMPLETED).then(a).build())
+                .then(aNewRepeatFlow().named("once").repeat(b).times(1).build())
+                .build();
+
+        // when
+        FlowOptimizer.Result result = aNewFlowOptimizer().build().optimize(workFlow);
+
+        // then
+        SequentialFlow optimized = (SequentialFlow) result.getWorkFlow();
+        assertThat(optimized.works).hasSize(4);
+        assertThat(optimized.works.get(0)).isSameAs(a);
+        assertThat(optimized.works.get(1)).isSameAs(b);
+        assertThat(optimized.works.get(2)).isInstanceOf(ConditionalFlow.class);
+        assertThat(optimized.works.get(3)).isSameAs(b);
+        assertSameOutcome(workFlow, optimized);
+    }
+
+    @Test
+    public void disabledPassesAreNotApplied() {
+        // given
+        SequentialFlow workFlow = aNewSequentialFlow()
+                .execute(aNewSequentialFlow().named("inner").execute(a).then(b).build())
+                .then(new NoOpWork())
+                .build();
+
+        // when
+        FlowOptimizer.Result result = aNewFlowOptimizer()
+                .disable(FlowOptimizer.Pass.FLATTEN_SEQUENTIAL_FLOWS)
+                .build()
+                .optimize(workFlow);
+
+        // then
+        SequentialFlow optimized = (SequentialFlow) result.getWorkFlow();
+        assertThat(optimized.works).hasSize(1);
+        assertThat(optimized.works.get(0).getName()).isEqualTo("inner");
+        assertThat(result.getChanges()).containsExactly("removed 1 no-op(s) from sequential flow '" + workFlow.getName() + "'");
+    }
+
+    @Test
+    public void leanFlowIsReturnedUnchanged() {
+        // given
+        SequentialFlow workFlow = aNewSequentialFlow().execute(a).then(b).build();
+
+        // when
+        FlowOptimizer.Result result = aNewFlowOptimizer().build().optimize(workFlow);
+
+        // then
+        assertThat(result.isChanged()).isFalse();
+        assertThat(result.getWorkFlow()).isSameAs(workFlow);
+    }
+
+    @Test
+    public void singleBranchParallelFlowsAreKept() {
+        // given
+        Work throwing = workContext -> {
+            throw new IllegalStateException("boom");
+        };
+        SequentialFlow workFlow = aNewSequentialFlow()
+                .named("root")
+                .execute(aNewParallelFlow(executorService).named("single").execute(throwing).build())
+                .then(a)
+                .build();
+
+        // when
+        FlowOptimizer.Result result = aNewFlowOptimizer().build().optimize(workFlow);
+
+        // then
+        assertThat(result.isChanged()).isFalse();
+        assertThat(result.getWorkFlow()).isSameAs(workFlow);
+        assertThat(workFlow.call(new WorkContext()).getStatus()).isEqualTo(WorkStatus.FAILED);
+    }
+
+    private void assertSameOutcome(WorkFlow original, WorkFlow optimized) {
+        calls.clear();
+        WorkReport originalReport = original.call(new WorkContext());
+        List<String> originalCalls = new ArrayList<>(calls);
+        calls.clear();
+        WorkReport optimizedReport = optimized.call(new WorkContext());
+        assertThat(optimizedReport.getStatus()).isEqualTo(originalReport.getStatus());
+        assertThat(calls).isEqualTo(originalCalls);
+    }
+
+    private Work work(String name) {
+        return new Work() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                calls.add(name);
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+    }
+}
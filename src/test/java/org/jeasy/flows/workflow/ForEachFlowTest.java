@@ -0,0 +1,175 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkReport;
+import org.jeasy.flows.work.WorkStatus;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ForEachFlowTest {
+
+    private final ExecutorService executorService = Executors.newFixedThreadPool(3);
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void elementsAreProcessedInParallelAndReducedInOrder() {
+        // given
+        List<Integer> numbers = IntStream.rangeClosed(1, 1000).boxed().collect(Collectors.toList());
+        WorkContext workContext = new WorkContext();
+        workContext.put("numbers", numbers);
+        Set<String> threads = ConcurrentHashMap.newKeySet();
+        ForEachFlow forEachFlow = ForEachFlow.Builder.aNewForEachFlow()
+                .named("concat")
+                .over("numbers")
+                .executorService(executorService)
+                .parallelism(4)
+                .chunkSize(10)
+                .<Integer, String>forEach((number, context) -> {
+                    threads.add(Thread.currentThread().getName());
+                    sleep(number % 10 == 0 ? 1 : 0);
+                    return number + ",";
+                })
+                .<String>reduce(String::concat, "result")
+                .build();
+
+        // when
+        WorkReport workReport = forEachFlow.call(workContext);
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workContext.get("result")).isEqualTo(numbers.stream().map(number -> number + ",").collect(Collectors.joining()));
+        assertThat(threads.size()).isGreaterThan(1);
+    }
+
+    @Test
+    public void chunksAreProcessedOnTheCommonPool() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.put("numbers", IntStream.range(0, 100).boxed().toArray());
+        List<Integer> chunkSizes = Collections.synchronizedList(new ArrayList<>());
+        ForEachFlow forEachFlow = ForEachFlow.Builder.aNewForEachFlow()
+                .over("numbers")
+                .chunkSize(30)
+                .<Integer, Long>forEachChunk((chunk, context) -> {
+                    chunkSizes.add(chunk.size());
+                    return chunk.stream().mapToLong(Integer::longValue).sum();
+                })
+                .<Long>reduce(Long::sum, "sum")
+                .build();
+
+        // when
+        WorkReport workReport = forEachFlow.call(workContext);
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workContext.get("sum")).isEqualTo(4950L);
+        assertThat(chunkSizes).containsExactlyInAnyOrder(30, 30, 30, 10);
+    }
+
+    @Test
+    public void flowRunningOnItsOwnSaturatedExecutorDoesNotWaitForQueuedHelpers() throws Exception {
+        // given
+        ExecutorService singleThreadExecutor = Executors.newSingleThreadExecutor();
+        List<Integer> numbers = IntStream.rangeClosed(1, 100).boxed().collect(Collectors.toList());
+        WorkContext workContext = new WorkContext();
+        workContext.put("numbers", numbers);
+        ForEachFlow forEachFlow = ForEachFlow.Builder.aNewForEachFlow()
+                .over("numbers")
+                .executorService(singleThreadExecutor)
+                .parallelism(4)
+                .<Integer, Integer>forEach((number, context) -> number)
+                .<Integer>reduce(Integer::sum, "sum")
+                .build();
+
+        // when
+        Future<WorkReport> workReport = singleThreadExecutor.submit(() -> forEachFlow.call(workContext));
+
+        // then
+        assertThat(workReport.get(5, TimeUnit.SECONDS).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        assertThat(workContext.get("sum")).isEqualTo(5050);
+        singleThreadExecutor.shutdownNow();
+    }
+
+    @Test
+    public void failureStopsProcessing() {
+        // given
+        WorkContext workContext = new WorkContext();
+        workContext.put("numbers", IntStream.range(0, 1000).boxed().collect(Collectors.toList()));
+        AtomicInteger processed = new AtomicInteger();
+        IllegalStateException error = new IllegalStateException("boom");
+        ForEachFlow forEachFlow = ForEachFlow.Builder.aNewForEachFlow()
+                .over("numbers")
+                .executorService(executorService)
+                .parallelism(2)
+                .chunkSize(1)
+                .<Integer, Void>forEach((number, context) -> {
+                    processed.incrementAndGet();
+                    if (number == 5) {
+                        throw error;
+                    }
+                    return null;
+                })
+                .build();
+
+        // when
+        WorkReport workReport = forEachFlow.call(workContext);
+        WorkReport missingCollection = forEachFlow.call(new WorkContext());
+
+        // then
+        assertThat(workReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(workReport.getError()).isSameAs(error);
+        assertThat(processed.get()).isLessThan(1000);
+        assertThat(missingCollection.getStatus()).isEqualTo(WorkStatus.FAILED);
+        assertThat(missingCollection.getError()).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -32,10 +32,17 @@ import org.jeasy.flows.work.WorkStatus;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ParallelFlowExecutorTest {
 
@@ -59,6 +66,90 @@ public class ParallelFlowExecutorTest {
         Assertions.assertThat(work2.isExecuted()).isTrue();
     }
 
+    @Test
+    public void largeFanOutIsSubmittedThroughABoundedWindow() {
+
+        // given
+        ThreadPoolExecutor executorService = new ThreadPoolExecutor(4, 4, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        AtomicInteger maxQueued = new AtomicInteger();
+        Work work = new Work() {
+            @Override
+            public String getName() {
+                return "branch";
+            }
+
+            @Override
+            public WorkReport call(WorkContext workContext) {
+                maxQueued.accumulateAndGet(executorService.getQueue().size(), Math::max);
+                return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+            }
+        };
+        HelloWorldWork failing = new HelloWorldWork("failing", WorkStatus.FAILED);
+        List<Work> works = new ArrayList<>(Collections.nCopies(100_000, work));
+        works.set(70_000, failing);
+        WorkContext workContext = new WorkContext();
+        ParallelFlowExecutor parallelFlowExecutor = new ParallelFlowExecutor(executorService, 16);
+
+        // when
+        List<WorkReport> workReports = parallelFlowExecutor.executeInParallel(works, workContext);
+        ParallelFlowReport parallelFlowReport = new ParallelFlowReport(workReports);
+        executorService.shutdown();
+
+        // then
+        Assertions.assertThat(workReports).hasSize(100_000).doesNotContainNull();
+        Assertions.assertThat(workReports.get(70_000).getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(workReports.get(69_999).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        Assertions.assertThat(parallelFlowReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(maxQueued.get()).isLessThanOrEqualTo(16);
+    }
+
+    @Test
+    public void exceptionsAndRejectionsAreReportedAsFailedBranches() {
+
+        // given
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        IllegalStateException error = new IllegalStateException("boom");
+        Work throwing = Mockito.mock(Work.class);
+        Mockito.when(throwing.call(Mockito.any())).thenThrow(error);
+        HelloWorldWork work = new HelloWorldWork("work", WorkStatus.COMPLETED);
+        WorkContext workContext = new WorkContext();
+        ParallelFlowExecutor parallelFlowExecutor = new ParallelFlowExecutor(executorService);
+
+        // when
+        ParallelFlowReport parallelFlowReport = new ParallelFlowReport(parallelFlowExecutor.executeInParallel(Arrays.asList(work, throwing), workContext));
+        executorService.shutdown();
+        ParallelFlowReport rejectedReport = new ParallelFlowReport(parallelFlowExecutor.executeInParallel(Arrays.asList(work, work), workContext));
+
+        // then
+        Assertions.assertThat(parallelFlowReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(parallelFlowReport.getError()).isSameAs(error);
+        Assertions.assertThat(parallelFlowReport.getReports().get(0).getStatus()).isEqualTo(WorkStatus.COMPLETED);
+        Assertions.assertThat(rejectedReport.getReports()).extracting(WorkReport::getStatus).containsExactly(WorkStatus.FAILED, WorkStatus.FAILED);
+        Assertions.assertThat(rejectedReport.getError()).isInstanceOf(RejectedExecutionException.class);
+    }
+
+    @Test
+    public void errorsAreReportedAsFailedBranches() {
+
+        // given
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        StackOverflowError error = new StackOverflowError();
+        Work throwing = Mockito.mock(Work.class);
+        Mockito.when(throwing.call(Mockito.any())).thenThrow(error);
+        HelloWorldWork work = new HelloWorldWork("work", WorkStatus.COMPLETED);
+        WorkContext workContext = new WorkContext();
+        ParallelFlowExecutor parallelFlowExecutor = new ParallelFlowExecutor(executorService);
+
+        // when
+        ParallelFlowReport parallelFlowReport = new ParallelFlowReport(parallelFlowExecutor.executeInParallel(Arrays.asList(work, throwing), workContext));
+        executorService.shutdown();
+
+        // then
+        Assertions.assertThat(parallelFlowReport.getReports()).doesNotContainNull();
+        Assertions.assertThat(parallelFlowReport.getStatus()).isEqualTo(WorkStatus.FAILED);
+        Assertions.assertThat(parallelFlowReport.getError()).isSameAs(error);
+    }
+
     static class HelloWorldWork implements Work {
 
         private String name;
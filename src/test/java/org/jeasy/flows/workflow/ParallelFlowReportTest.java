@@ -25,11 +25,18 @@ package org.jeasy.flows.workflow;
 
 import org.assertj.core.api.Assertions;
 import org.jeasy.flows.work.DefaultWorkReport;
+import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
 import org.jeasy.flows.work.WorkStatus;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.jeasy.flows.engine.WorkFlowEngineBuilder.aNewWorkFlowEngine;
+
 public class ParallelFlowReportTest {
 
 	private Exception exception;
@@ -59,4 +66,45 @@ public class ParallelFlowReportTest {
 	public void testGetReports() {
 		Assertions.assertThat(parallelFlowReport.getReports()).hasSize(2);
 	}
+
+	@Test
+	public void testGetDurationStatistics() {
+		// given
+		ExecutorService executorService = Executors.newFixedThreadPool(3);
+		ParallelFlow parallelFlow = ParallelFlow.Builder.aNewParallelFlow(executorService)
+				.execute(sleep(5), sleep(10), sleep(30))
+				.build();
+
+		// when
+		ParallelFlowReport report = (ParallelFlowReport) aNewWorkFlowEngine().recordExecutions(true).build()
+				.run(parallelFlow, new WorkContext());
+		executorService.shutdown();
+
+		// then
+		ExecutionStatistics statistics = report.getDurationStatistics();
+		Assertions.assertThat(statistics.getCount()).isEqualTo(3);
+		Assertions.assertThat(statistics.getMin()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+		Assertions.assertThat(statistics.getMax()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(30));
+		Assertions.assertThat(statistics.getPercentile(50)).isBetween(statistics.getMin(), statistics.getMax());
+		Assertions.assertThat(report.getQueueWaitStatistics().getCount()).isEqualTo(3);
+		Assertions.assertThat(report.getReports()).allSatisfy(partialReport ->
+				Assertions.assertThat(partialReport.getWorkExecution().getThread()).isNotSameAs(Thread.currentThread()));
+	}
+
+	@Test
+	public void testGetDurationStatisticsWhenExecutionsAreNotRecorded() {
+		Assertions.assertThat(parallelFlowReport.getDurationStatistics().getCount()).isZero();
+		Assertions.assertThat(parallelFlowReport.getDurationStatistics().getPercentile(99)).isZero();
+	}
+
+	private static Work sleep(long millis) {
+		return workContext -> {
+			try {
+				Thread.sleep(millis);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+		};
+	}
 }
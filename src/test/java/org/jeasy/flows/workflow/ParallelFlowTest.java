@@ -24,13 +24,17 @@
 package org.jeasy.flows.workflow;
 
 import org.assertj.core.api.Assertions;
+import org.jeasy.flows.work.DefaultWorkReport;
 import org.jeasy.flows.work.Work;
 import org.jeasy.flows.work.WorkContext;
+import org.jeasy.flows.work.WorkStatus;
 import org.junit.Test;
 import org.mockito.Mockito;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class ParallelFlowTest {
 
@@ -52,4 +56,33 @@ public class ParallelFlowTest {
         Mockito.verify(parallelFlowExecutor).executeInParallel(works, workContext);
     }
 
+    @Test
+    public void branchesUpdateContextAccumulators() {
+        // given
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        Work work = workContext -> {
+            for (int i = 0; i < 1000; i++) {
+                workContext.longAdder("count").increment();
+                workContext.doubleAdder("total").add(0.5);
+                workContext.longMax("max").accumulate(i);
+                workContext.longMin("min").accumulate(i);
+                workContext.distinctCounter("distinct").add(i);
+            }
+            return new DefaultWorkReport(WorkStatus.COMPLETED, workContext);
+        };
+        ParallelFlow parallelFlow = ParallelFlow.Builder.aNewParallelFlow(executor)
+                .execute(work, work, work, work)
+                .build();
+
+        // when
+        WorkContext workContext = parallelFlow.call(new WorkContext()).getWorkContext();
+
+        // then
+        Assertions.assertThat(workContext.longAdder("count").sum()).isEqualTo(4000);
+        Assertions.assertThat(workContext.doubleAdder("total").sum()).isEqualTo(2000.0);
+        Assertions.assertThat(workContext.longMax("max").get()).isEqualTo(999);
+        Assertions.assertThat(workContext.longMin("min").get()).isEqualTo(0);
+        Assertions.assertThat(workContext.distinctCounter("distinct").estimate()).isBetween(950L, 1050L);
+        executor.shutdownNow();
+    }
 }
@@ -66,4 +66,22 @@ public class RepeatFlowTest {
         Mockito.verify(work, Mockito.times(3)).call(workContext);
     }
 
+    @Test
+    public void testRepeatTimesIsCountedPerRun() {
+        // given
+        Work work = Mockito.mock(Work.class);
+        WorkContext workContext = Mockito.mock(WorkContext.class);
+        RepeatFlow repeatFlow = RepeatFlow.Builder.aNewRepeatFlow()
+                .repeat(work)
+                .times(3)
+                .build();
+
+        // when
+        repeatFlow.call(workContext);
+        repeatFlow.call(workContext);
+
+        // then
+        Mockito.verify(work, Mockito.times(6)).call(workContext);
+    }
+
 }
@@ -0,0 +1,99 @@
+/*
+ * The MIT License
+ *
+ *  Copyright (c) 2020, Mahmoud Ben Hassine (mahmoud.benhassine@icloud.com)
+ *
+ *  Permission is hereby granted, free of charge, to any person obtaining a copy
+ *  of this software and associated documentation files (the "Software"), to deal
+ *  in the Software without restriction, including without limitation the rights
+ *  to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ *  copies of the Software, and to permit persons to whom the Software is
+ *  furnished to do so, subject to the following conditions:
+ *
+ *  The above copyright notice and this permission notice shall be included in
+ *  all copies or substantial portions of the Software.
+ *
+ *  THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ *  IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ *  FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ *  AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ *  LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ *  OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ *  THE SOFTWARE.
+ */
+package org.jeasy.flows.workflow;
+
+import org.jeasy.flows.work.Work;
+import org.jeasy.flows.work.WorkContext;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class SwitchFlowTest {
+
+    enum MessageType { ORDER, INVOICE, REFUND }
+
+    @Test
+    public void callDispatchesOnEnumKey() {
+        // given
+        Work toExecute = Mockito.mock(Work.class);
+        Work order = Mockito.mock(Work.class);
+        Work invoice = Mockito.mock(Work.class);
+        Work other = Mockito.mock(Work.class);
+        WorkContext workContext = new WorkContext();
+        SwitchFlow switchFlow = SwitchFlow.Builder.aNewSwitchFlow()
+                .named("testFlow")
+                .onContextKey("type")
+                .when(MessageType.ORDER, order)
+                .when(MessageType.INVOICE, invoice)
+                .otherwise(other)
+                .build();
+
+        // when
+        workContext.put("type", MessageType.INVOICE);
+        switchFlow.call(workContext);
+        workContext.put("type", MessageType.REFUND);
+        switchFlow.call(workContext);
+
+        // then
+        Mockito.verify(invoice, Mockito.times(1)).call(workContext);
+        Mockito.verify(other, Mockito.times(1)).call(workContext);
+        Mockito.verify(order, Mockito.never()).call(workContext);
+        Mockito.verifyNoInteractions(toExecute);
+    }
+
+    @Test
+    public void callDispatchesOnHashedKeyAndFallsBackToDefault() {
+        // given
+        Work toExecute = Mockito.mock(Work.class);
+        Work order = Mockito.mock(Work.class);
+        Work other = Mockito.mock(Work.class);
+        WorkContext workContext = Mockito.mock(WorkContext.class);
+        Mockito.when(workContext.get("type")).thenReturn("order", "unknown", null);
+        SwitchFlow switchFlow = SwitchFlow.Builder.aNewSwitchFlow()
+                .named("anotherTestFlow")
+                .execute(toExecute)
+                .on(workReport -> workContext.get("type"))
+                .when("order", order)
+                .when(MessageType.ORDER, other)
+                .otherwise(other)
+                .build();
+
+        // when
+        switchFlow.call(workContext);
+        switchFlow.call(workContext);
+        switchFlow.call(workContext);
+
+        // then
+        Mockito.verify(toExecute, Mockito.times(3)).call(workContext);
+        Mockito.verify(order, Mockito.times(1)).call(workContext);
+        Mockito.verify(other, Mockito.times(2)).call(workContext);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void duplicateCasesAreRejected() {
+        SwitchFlow.Builder.aNewSwitchFlow()
+                .when("order", Mockito.mock(Work.class))
+                .when("order", Mockito.mock(Work.class));
+    }
+
+}